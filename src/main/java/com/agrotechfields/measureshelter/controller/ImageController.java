@@ -10,10 +10,14 @@ import com.agrotechfields.measureshelter.service.ImageService;
 import jakarta.servlet.ServletException;
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -23,6 +27,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
@@ -37,6 +42,14 @@ public class ImageController {
   @Value("${endpoint.image}")
   private String endpoint;
 
+  /** The maximum size of a page of images. */
+  @Value("${image.page.max-size:1000}")
+  private int pageMaxSize;
+
+  /** The max-age of the cached images. */
+  @Value("${image.cache.max-age-seconds:31536000}")
+  private long cacheMaxAgeSeconds;
+
   /** The id service. */
   @Autowired
   private IdService idService;
@@ -46,13 +59,22 @@ public class ImageController {
   private ImageService imageService;
 
   /**
-   * Gets the all images.
+   * Gets a page of the images, metadata only, in creation order.
    *
-   * @return all images
+   * @param page the page number, from zero
+   * @param size the page size
+   * @return the images
+   * @throws ServletException the servlet exception
    */
   @GetMapping
-  public ResponseEntity<List<ImageResponseDto>> getAllImages() {
-    List<Image> images = imageService.findAllImages();
+  public ResponseEntity<List<ImageResponseDto>> getAllImages(
+      @RequestParam(name = "page", defaultValue = "0") int page,
+      @RequestParam(name = "size", defaultValue = "100") int size) throws ServletException {
+    if (page < 0 || size < 1 || size > pageMaxSize) {
+      throw new ServletException(
+          "The page must be positive and the page size between 1 and " + pageMaxSize);
+    }
+    List<Image> images = imageService.findImages(page, size);
     return ResponseEntity.ok().body(convertToDto(images));
   }
 
@@ -60,36 +82,30 @@ public class ImageController {
    * Gets the image by id.
    *
    * @param id the id
+   * @param request the request
    * @return the image by id
    * @throws InvalidIdException the invalid id exception
    * @throws EntityNotFoundException the entity not found exception
    */
   @GetMapping("/id/{id}")
-  public ResponseEntity<byte[]> getImageById(@PathVariable("id") String id)
+  public ResponseEntity<Resource> getImageById(@PathVariable("id") String id, WebRequest request)
       throws InvalidIdException, EntityNotFoundException {
     ObjectId objectId = idService.getObjectId(id);
-    byte[] data = imageService.findImageById(objectId).getImageData().getData();
-    return ResponseEntity
-        .ok()
-        .contentType(MediaType.IMAGE_PNG)
-        .body(data);
+    return buildContentResponse(imageService.findImageById(objectId), request);
   }
 
   /**
    * Gets image by name.
    *
    * @param name the string name
+   * @param request the request
    * @return the image by name
    * @throws EntityNotFoundException the entity not found exception
    */
   @GetMapping("/name/{name}")
-  public ResponseEntity<byte[]> getImageByName(@PathVariable("name") String name)
-      throws EntityNotFoundException {
-    byte[] data = imageService.findImageByName(name).getImageData().getData();
-    return ResponseEntity
-        .ok()
-        .contentType(MediaType.IMAGE_PNG)
-        .body(data);
+  public ResponseEntity<Resource> getImageByName(@PathVariable("name") String name,
+      WebRequest request) throws EntityNotFoundException {
+    return buildContentResponse(imageService.findImageByName(name), request);
   }
 
   /**
@@ -127,6 +143,41 @@ public class ImageController {
     return ResponseEntity.noContent().build();
   }
 
+  /**
+   * Builds the response of the content of an image, streamed to the client as it is read. The
+   * images never change, so the content hash is their strong ETag: a request whose
+   * {@code If-None-Match} matches it gets a {@code 304 Not Modified} without reading the content,
+   * and the response may be cached for long. A {@code Range} request gets the {@code 206 Partial
+   * Content} of its ranges from the message converters of the resource.
+   *
+   * @param image the image
+   * @param request the request, for its conditional headers
+   * @return the response entity
+   * @throws EntityNotFoundException the entity not found exception
+   */
+  private ResponseEntity<Resource> buildContentResponse(Image image, WebRequest request)
+      throws EntityNotFoundException {
+    CacheControl cacheControl =
+        CacheControl.maxAge(Duration.ofSeconds(cacheMaxAgeSeconds)).cachePrivate().immutable();
+    String etag = image.getHash() == null ? null : "\"" + image.getHash() + "\"";
+    if (etag != null && request.checkNotModified(etag)) {
+      return ResponseEntity
+          .status(HttpStatus.NOT_MODIFIED)
+          .cacheControl(cacheControl)
+          .build();
+    }
+
+    Resource content = imageService.findImageContent(image);
+    ResponseEntity.BodyBuilder response = ResponseEntity
+        .ok()
+        .contentType(MediaType.IMAGE_PNG)
+        .cacheControl(cacheControl);
+    if (etag != null) {
+      response.eTag(etag);
+    }
+    return response.body(content);
+  }
+
   /**
    * Builds the uri.
    *
@@ -2,20 +2,51 @@ package com.agrotechfields.measureshelter.controller;
 
 import com.agrotechfields.measureshelter.domain.Isle;
 import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureExportFormat;
+import com.agrotechfields.measureshelter.domain.MeasureRollup;
+import com.agrotechfields.measureshelter.domain.MeasureStats;
+import com.agrotechfields.measureshelter.domain.RollupResolution;
+import com.agrotechfields.measureshelter.domain.StatsInterval;
 import com.agrotechfields.measureshelter.dto.request.MeasureDto;
+import com.agrotechfields.measureshelter.dto.request.MeasureQueryDto;
+import com.agrotechfields.measureshelter.dto.response.MeasureBatchResponseDto;
+import com.agrotechfields.measureshelter.dto.response.MeasurePageResponseDto;
 import com.agrotechfields.measureshelter.dto.response.MeasureResponseDto;
+import com.agrotechfields.measureshelter.dto.response.MeasureStatsResponseDto;
 import com.agrotechfields.measureshelter.exception.EntityNotFoundException;
 import com.agrotechfields.measureshelter.exception.InvalidIdException;
+import com.agrotechfields.measureshelter.exception.InvalidMeasureException;
 import com.agrotechfields.measureshelter.exception.NotPermittedException;
+import com.agrotechfields.measureshelter.repository.MeasureCursor;
+import com.agrotechfields.measureshelter.repository.MeasureFilter;
 import com.agrotechfields.measureshelter.service.IdService;
 import com.agrotechfields.measureshelter.service.IsleService;
+import com.agrotechfields.measureshelter.service.MeasureBroadcaster;
+import com.agrotechfields.measureshelter.service.MeasureExporter;
+import com.agrotechfields.measureshelter.service.MeasureRollupService;
 import com.agrotechfields.measureshelter.service.MeasureService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -24,7 +55,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
@@ -37,6 +71,21 @@ public class MeasureController {
   @Value("${endpoint.measure}")
   private String endpoint;
 
+  /** The number of measures written between flushes of a streamed response. */
+  private static final int STREAM_FLUSH_SIZE = 1000;
+
+  /** The maximum number of measures in a batch. */
+  @Value("${measure.batch.max-size:1000}")
+  private int batchMaxSize;
+
+  /** The maximum number of buckets of the statistics. */
+  @Value("${measure.stats.max-buckets:10000}")
+  private long statsMaxBuckets;
+
+  /** The maximum size of a page of measures. */
+  @Value("${measure.page.max-size:1000}")
+  private int pageMaxSize;
+
   /** The isle service. */
   @Autowired
   private IsleService isleService;
@@ -45,38 +94,289 @@ public class MeasureController {
   @Autowired
   private MeasureService measureService;
 
+  /** The measure rollup service. */
+  @Autowired
+  private MeasureRollupService measureRollupService;
+
+  /** The measure exporter. */
+  @Autowired
+  private MeasureExporter measureExporter;
+
+  /** The measure broadcaster. */
+  @Autowired
+  private MeasureBroadcaster measureBroadcaster;
+
   /** The id service. */
   @Autowired
   private IdService idService;
 
+  /** The validator. */
+  @Autowired
+  private Validator validator;
+
+  /** The object mapper. */
+  @Autowired
+  private ObjectMapper objectMapper;
+
   /**
-   * Gets the all measures.
+   * Gets the all measures. With a {@code from}/{@code to} range, a {@code limit} or an
+   * {@code order} they are read by a timestamp range query.
    *
+   * @param query the query parameters
    * @return the all found measures
+   * @throws ServletException the servlet exception
    */
   @GetMapping
-  public ResponseEntity<List<MeasureResponseDto>> getAll() {
-    List<Measure> measures = measureService.findAllMeasures();
+  public ResponseEntity<List<MeasureResponseDto>> getAll(@Valid MeasureQueryDto query)
+      throws ServletException {
+    List<Measure> measures = query.isEmpty()
+        ? measureService.findAllMeasures()
+        : measureService.findMeasures(buildFilter(null, query), limitOf(query));
     return ResponseEntity.ok().body(convertToDto(measures));
   }
 
   /**
-   * Gets the all measure by isle id.
+   * Gets the all measure by isle id. With a {@code from}/{@code to} range, a {@code limit} or an
+   * {@code order} they are read by a timestamp range query.
    *
    * @param id the id
+   * @param query the query parameters
    * @return the all measure found by isle id
    * @throws EntityNotFoundException the entity not found exception
    * @throws InvalidIdException the invalid id exception
+   * @throws ServletException the servlet exception
    */
   @GetMapping("/isle/{id}")
   public ResponseEntity<List<MeasureResponseDto>> getAllMeasureByIsleId(
-      @PathVariable("id") String id) throws EntityNotFoundException, InvalidIdException {
+      @PathVariable("id") String id, @Valid MeasureQueryDto query)
+      throws EntityNotFoundException, InvalidIdException, ServletException {
     ObjectId objectId = idService.getObjectId(id);
-    Isle isle = isleService.findIsleById(objectId);
-    List<Measure> measures = measureService.findAllMeasuresByIsle(isle);
+    Isle isle = isleService.findCachedIsleById(objectId);
+    List<Measure> measures = query.isEmpty()
+        ? measureService.findAllMeasuresByIsle(isle)
+        : measureService.findMeasures(buildFilter(isle, query), limitOf(query));
+    return ResponseEntity.ok().body(convertToDto(measures));
+  }
+
+  /**
+   * Gets the latest measure of each isle, served from memory.
+   *
+   * @return the latest measures
+   */
+  @GetMapping("/latest")
+  public ResponseEntity<List<MeasureResponseDto>> getLatest() {
+    List<Measure> measures = measureService.findLatestMeasures();
     return ResponseEntity.ok().body(convertToDto(measures));
   }
 
+  /**
+   * Gets a keyset page of all measures, in timestamp order.
+   *
+   * @param size the page size
+   * @param cursor the token of the page, from the previous page
+   * @param query the query parameters, the limit is ignored
+   * @return the page of measures
+   * @throws ServletException the servlet exception
+   */
+  @GetMapping("/page")
+  public ResponseEntity<MeasurePageResponseDto> getPage(
+      @RequestParam(name = "size", defaultValue = "100") int size,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @Valid MeasureQueryDto query) throws ServletException {
+    checkPageSize(size);
+    MeasureFilter filter = buildFilter(null, query);
+    List<Measure> measures = measureService.findMeasurePage(filter, MeasureCursor.decode(cursor),
+        size);
+    return ResponseEntity.ok().body(new MeasurePageResponseDto(measures, size));
+  }
+
+  /**
+   * Gets a keyset page of the measures of an isle, in timestamp order.
+   *
+   * @param id the isle id
+   * @param size the page size
+   * @param cursor the token of the page, from the previous page
+   * @param query the query parameters, the limit is ignored
+   * @return the page of measures
+   * @throws EntityNotFoundException the entity not found exception
+   * @throws InvalidIdException the invalid id exception
+   * @throws ServletException the servlet exception
+   */
+  @GetMapping("/isle/{id}/page")
+  public ResponseEntity<MeasurePageResponseDto> getPageByIsleId(@PathVariable("id") String id,
+      @RequestParam(name = "size", defaultValue = "100") int size,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @Valid MeasureQueryDto query)
+      throws EntityNotFoundException, InvalidIdException, ServletException {
+    checkPageSize(size);
+    MeasureCursor after = MeasureCursor.decode(cursor);
+    ObjectId objectId = idService.getObjectId(id);
+    Isle isle = isleService.findCachedIsleById(objectId);
+    List<Measure> measures = measureService.findMeasurePage(buildFilter(isle, query), after,
+        size);
+    return ResponseEntity.ok().body(new MeasurePageResponseDto(measures, size));
+  }
+
+  /**
+   * Subscribes to the live stream of the created measures, as server-sent events.
+   *
+   * @param isleId the isle id, optional
+   * @return the emitter of the subscription
+   * @throws EntityNotFoundException the entity not found exception
+   * @throws InvalidIdException the invalid id exception
+   */
+  @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter subscribe(@RequestParam(required = false) String isleId)
+      throws EntityNotFoundException, InvalidIdException {
+    if (isleId == null) {
+      return measureBroadcaster.subscribe(null);
+    }
+    Isle isle = isleService.findCachedIsleById(idService.getObjectId(isleId));
+    return measureBroadcaster.subscribe(isle.getId());
+  }
+
+  /**
+   * Streams all measures, in timestamp order, as a JSON array written while they are read.
+   *
+   * @param query the query parameters, the limit is ignored
+   * @return the streamed measures
+   * @throws ServletException the servlet exception
+   */
+  @GetMapping("/streaming")
+  public ResponseEntity<StreamingResponseBody> getAllStreaming(@Valid MeasureQueryDto query)
+      throws ServletException {
+    return stream(buildFilter(null, query));
+  }
+
+  /**
+   * Streams the measures of an isle, in timestamp order, as a JSON array written while they are
+   * read.
+   *
+   * @param id the isle id
+   * @param query the query parameters, the limit is ignored
+   * @return the streamed measures
+   * @throws EntityNotFoundException the entity not found exception
+   * @throws InvalidIdException the invalid id exception
+   * @throws ServletException the servlet exception
+   */
+  @GetMapping("/isle/{id}/streaming")
+  public ResponseEntity<StreamingResponseBody> getAllStreamingByIsleId(
+      @PathVariable("id") String id, @Valid MeasureQueryDto query)
+      throws EntityNotFoundException, InvalidIdException, ServletException {
+    ObjectId objectId = idService.getObjectId(id);
+    Isle isle = isleService.findCachedIsleById(objectId);
+    return stream(buildFilter(isle, query));
+  }
+
+  /**
+   * Exports the measures, of all isles or of an isle, as a CSV, NDJSON or Arrow file written
+   * while they are read.
+   *
+   * @param format the format, csv, ndjson or arrow
+   * @param isleId the isle id, optional
+   * @param gzip the gzip flag
+   * @param query the query parameters, the limit is ignored
+   * @return the exported measures
+   * @throws EntityNotFoundException the entity not found exception
+   * @throws InvalidIdException the invalid id exception
+   * @throws ServletException the servlet exception
+   */
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> export(
+      @RequestParam(defaultValue = "csv") String format,
+      @RequestParam(required = false) String isleId,
+      @RequestParam(defaultValue = "false") boolean gzip, @Valid MeasureQueryDto query)
+      throws EntityNotFoundException, InvalidIdException, ServletException {
+    MeasureExportFormat exportFormat = MeasureExportFormat.parse(format);
+    Isle isle = isleId == null
+        ? null
+        : isleService.findCachedIsleById(idService.getObjectId(isleId));
+    MeasureFilter filter = buildFilter(isle, query);
+
+    String filename = "measures." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+    StreamingResponseBody body = outputStream ->
+        measureExporter.export(filter, exportFormat, gzip, outputStream);
+    return ResponseEntity.ok()
+        .contentType(gzip ? new MediaType("application", "gzip") : exportFormat.getMediaType())
+        .header(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(filename).build().toString())
+        .body(body);
+  }
+
+  /**
+   * Gets the statistics of the measures of an isle, bucketed by an interval over a time range,
+   * the last day by default. Computed by the database, so the raw measures are not sent.
+   *
+   * @param id the isle id
+   * @param interval the bucket interval, e.g. 15m, 1h or 1d
+   * @param query the query parameters, only the range is used
+   * @return the statistics of each bucket with measures
+   * @throws EntityNotFoundException the entity not found exception
+   * @throws InvalidIdException the invalid id exception
+   * @throws ServletException the servlet exception
+   */
+  @GetMapping("/isle/{id}/stats")
+  public ResponseEntity<List<MeasureStatsResponseDto>> getStatsByIsleId(
+      @PathVariable("id") String id,
+      @RequestParam(name = "interval", defaultValue = "1h") String interval,
+      @Valid MeasureQueryDto query)
+      throws EntityNotFoundException, InvalidIdException, ServletException {
+    StatsInterval statsInterval = StatsInterval.parse(interval);
+    LocalDateTime to = query.getTo() == null ? LocalDateTime.now() : query.getTo();
+    LocalDateTime from = query.getFrom() == null ? to.minusDays(1) : query.getFrom();
+    MeasureQueryDto range = new MeasureQueryDto(from, to, null, null);
+    long buckets = Duration.between(from, to).dividedBy(statsInterval.getDuration());
+    if (buckets > statsMaxBuckets) {
+      throw new ServletException("The range has more than " + statsMaxBuckets + " intervals");
+    }
+
+    ObjectId objectId = idService.getObjectId(id);
+    Isle isle = isleService.findCachedIsleById(objectId);
+    List<MeasureStats> stats = measureService.findMeasureStats(buildFilter(isle, range),
+        statsInterval);
+    return ResponseEntity.ok().body(stats.stream().map(MeasureStatsResponseDto::new).toList());
+  }
+
+  /**
+   * Gets the hourly or daily rollups of the measures of an isle over a time range, the last day
+   * of hours or the last 30 days by default. Read from the rollups kept as the measures are
+   * written, so long ranges do not scan the raw measures.
+   *
+   * @param id the isle id
+   * @param resolution the resolution, hour or day
+   * @param query the query parameters, only the range is used
+   * @return the statistics of each bucket with measures
+   * @throws EntityNotFoundException the entity not found exception
+   * @throws InvalidIdException the invalid id exception
+   * @throws ServletException the servlet exception
+   */
+  @GetMapping("/isle/{id}/rollups")
+  public ResponseEntity<List<MeasureStatsResponseDto>> getRollupsByIsleId(
+      @PathVariable("id") String id,
+      @RequestParam(name = "resolution", defaultValue = "hour") String resolution,
+      @Valid MeasureQueryDto query)
+      throws EntityNotFoundException, InvalidIdException, ServletException {
+    RollupResolution rollupResolution;
+    try {
+      rollupResolution = RollupResolution.valueOf(resolution.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new ServletException("Invalid resolution, expected hour or day");
+    }
+    LocalDateTime to = query.getTo() == null ? LocalDateTime.now() : query.getTo();
+    LocalDateTime from = query.getFrom() == null
+        ? to.minusDays(rollupResolution == RollupResolution.HOUR ? 1 : 30)
+        : query.getFrom();
+    MeasureFilter filter = buildFilter(null, new MeasureQueryDto(from, to, null, null));
+
+    ObjectId objectId = idService.getObjectId(id);
+    Isle isle = isleService.findCachedIsleById(objectId);
+    List<MeasureRollup> rollups = measureRollupService.findRollups(isle.getId(),
+        rollupResolution, filter.getFrom(), filter.getTo());
+    return ResponseEntity.ok().body(rollups.stream()
+        .map(rollup -> new MeasureStatsResponseDto(rollup.toMeasureStats()))
+        .toList());
+  }
+
   /**
    * Gets the measure id.
    *
@@ -97,16 +397,66 @@ public class MeasureController {
    * Creates the measure.
    *
    * @param measureDto the measure dto
-   * @return the response entity with new measure
+   * @return the response entity with new measure, accepted when in write-behind mode
    * @throws EntityNotFoundException the entity not found exception
    * @throws NotPermittedException the not permitted exception
+   * @throws InvalidMeasureException the invalid measure exception
    */
   @PostMapping()
   public ResponseEntity<MeasureResponseDto> create(@RequestBody @Valid MeasureDto measureDto)
-      throws EntityNotFoundException, NotPermittedException {
+      throws EntityNotFoundException, NotPermittedException, InvalidMeasureException {
     Isle isle = isleService.getIsleFromContext();
     Measure measure = measureService.createMeasure(isle, measureDto);
-    return ResponseEntity.created(buildUri(measure.getId())).body(convertToDto(measure));
+    URI uri = buildUri(measure.getId());
+    if (measureService.isWriteBehind()) {
+      return ResponseEntity.accepted().location(uri).body(convertToDto(measure));
+    }
+    return ResponseEntity.created(uri).body(convertToDto(measure));
+  }
+
+  /**
+   * Creates the measures of a batch. The isle is checked once, each item is validated and the
+   * valid ones are written with a single bulk insert.
+   *
+   * @param measureDtos the measure dtos
+   * @return the response entity with a result for each item of the batch
+   * @throws EntityNotFoundException the entity not found exception
+   * @throws NotPermittedException the not permitted exception
+   * @throws ServletException the servlet exception
+   */
+  @PostMapping("/batch")
+  public ResponseEntity<List<MeasureBatchResponseDto>> createBatch(
+      @RequestBody List<MeasureDto> measureDtos)
+      throws EntityNotFoundException, NotPermittedException, ServletException {
+    if (measureDtos.isEmpty() || measureDtos.size() > batchMaxSize) {
+      throw new ServletException(
+          "The batch must have between 1 and " + batchMaxSize + " measures");
+    }
+
+    Isle isle = isleService.getIsleFromContext();
+
+    MeasureBatchResponseDto[] results = new MeasureBatchResponseDto[measureDtos.size()];
+    List<Integer> validIndexes = new ArrayList<>(measureDtos.size());
+    List<MeasureDto> validDtos = new ArrayList<>(measureDtos.size());
+
+    for (int i = 0; i < measureDtos.size(); i++) {
+      String violations = validate(measureDtos.get(i));
+      if (violations == null) {
+        validIndexes.add(i);
+        validDtos.add(measureDtos.get(i));
+      } else {
+        results[i] = MeasureBatchResponseDto.invalid(i, violations);
+      }
+    }
+
+    List<Measure> measures = measureService.createMeasures(isle, validDtos);
+    for (int i = 0; i < measures.size(); i++) {
+      int index = validIndexes.get(i);
+      String id = measures.get(i).getId().toHexString();
+      results[index] = MeasureBatchResponseDto.created(index, id);
+    }
+
+    return ResponseEntity.ok().body(Arrays.asList(results));
   }
 
   /**
@@ -117,11 +467,12 @@ public class MeasureController {
    * @return the response entity with updated measure
    * @throws EntityNotFoundException the entity not found exception
    * @throws InvalidIdException the invalid id exception
+   * @throws InvalidMeasureException the invalid measure exception
    */
   @PutMapping("/{id}")
   public ResponseEntity<MeasureResponseDto> updateByMeasureId(@PathVariable("id") String id,
       @RequestBody @Valid MeasureDto measureDto)
-      throws EntityNotFoundException, InvalidIdException {
+      throws EntityNotFoundException, InvalidIdException, InvalidMeasureException {
     ObjectId objectId = idService.getObjectId(id);
     Measure measure = measureService.updateByMeasureId(objectId, measureDto);
     return ResponseEntity.ok().body(convertToDto(measure));
@@ -157,6 +508,91 @@ public class MeasureController {
         .toUri();
   }
 
+  /**
+   * Stream the measures of a filter. The cursor is opened when the response body is written and
+   * each measure is converted and written on its own, so the heap use does not depend on the
+   * number of measures.
+   *
+   * @param filter the filter
+   * @return the streamed measures
+   */
+  private ResponseEntity<StreamingResponseBody> stream(MeasureFilter filter) {
+    StreamingResponseBody body = outputStream -> {
+      try (Stream<Measure> measures = measureService.streamMeasures(filter);
+          JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+        generator.writeStartArray();
+        Iterator<Measure> iterator = measures.iterator();
+        for (int count = 1; iterator.hasNext(); count++) {
+          generator.writeObject(convertToDto(iterator.next()));
+          if (count % STREAM_FLUSH_SIZE == 0) {
+            generator.flush();
+          }
+        }
+        generator.writeEndArray();
+      }
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  /**
+   * Builds the filter of the query parameters.
+   *
+   * @param isle the isle, null for the measures of all isles
+   * @param query the query parameters
+   * @return the measure filter
+   * @throws ServletException the servlet exception
+   */
+  private MeasureFilter buildFilter(Isle isle, MeasureQueryDto query) throws ServletException {
+    if (query.getFrom() != null && query.getTo() != null
+        && !query.getFrom().isBefore(query.getTo())) {
+      throw new ServletException("The 'from' timestamp must be before the 'to' timestamp");
+    }
+    ObjectId isleId = isle == null ? null : isle.getId();
+    return new MeasureFilter(isleId, query.getFrom(), query.getTo(), query.getDirection());
+  }
+
+  /**
+   * Limit of the query parameters.
+   *
+   * @param query the query parameters
+   * @return the limit, zero for no limit
+   */
+  private int limitOf(MeasureQueryDto query) {
+    return query.getLimit() == null ? 0 : query.getLimit();
+  }
+
+  /**
+   * Check the page size.
+   *
+   * @param size the page size
+   * @throws ServletException the servlet exception
+   */
+  private void checkPageSize(int size) throws ServletException {
+    if (size < 1 || size > pageMaxSize) {
+      throw new ServletException("The page size must be between 1 and " + pageMaxSize);
+    }
+  }
+
+  /**
+   * Validate a measure dto of a batch.
+   *
+   * @param measureDto the measure dto
+   * @return the violations joined as 'field: message', or null when it is valid
+   */
+  private String validate(MeasureDto measureDto) {
+    if (measureDto == null) {
+      return "measure: must not be null";
+    }
+    Set<ConstraintViolation<MeasureDto>> violations = validator.validate(measureDto);
+    if (violations.isEmpty()) {
+      return measureService.findPrecisionViolation(measureDto);
+    }
+    return violations.stream()
+        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+        .sorted()
+        .collect(Collectors.joining("; "));
+  }
+
   /**
    * Convert to dto.
    *
@@ -3,11 +3,14 @@ package com.agrotechfields.measureshelter.domain;
 import java.time.LocalDateTime;
 import org.bson.types.Binary;
 import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.MongoId;
 
 /**
- * The Class Image.
+ * The Class Image. Metadata of a PNG image, whose content is stored in the GridFS bucket of the
+ * images under the same id. The content of the images created before GridFS is kept in
+ * {@code imageData} until the {@code images-gridfs} migration moves it.
  */
 @Document(collection = "images")
 public class Image {
@@ -17,11 +20,18 @@ public class Image {
   private ObjectId id;
 
   /** The name. */
+  @Indexed(unique = true)
   private String name;
 
-  /** The image data. */
+  /** The image data of an image not yet moved to GridFS, null otherwise. */
   private Binary imageData;
 
+  /** The content length, in bytes. */
+  private Long length;
+
+  /** The SHA-256 of the content, in hexadecimal. */
+  private String hash;
+
   /** The time stamp. */
   private LocalDateTime timestamp;
 
@@ -100,6 +110,42 @@ public class Image {
     this.imageData = imageData;
   }
 
+  /**
+   * Gets the content length.
+   *
+   * @return the length, in bytes
+   */
+  public Long getLength() {
+    return length;
+  }
+
+  /**
+   * Sets the content length.
+   *
+   * @param length the new length, in bytes
+   */
+  public void setLength(Long length) {
+    this.length = length;
+  }
+
+  /**
+   * Gets the content hash.
+   *
+   * @return the SHA-256 of the content, in hexadecimal
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  /**
+   * Sets the content hash.
+   *
+   * @param hash the new SHA-256 of the content, in hexadecimal
+   */
+  public void setHash(String hash) {
+    this.hash = hash;
+  }
+
   /**
    * Gets the timestamp.
    *
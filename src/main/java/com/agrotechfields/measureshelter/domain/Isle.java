@@ -3,6 +3,7 @@ package com.agrotechfields.measureshelter.domain;
 import java.math.BigDecimal;
 import java.util.Objects;
 import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.MongoId;
 
@@ -17,6 +18,7 @@ public class Isle {
   private ObjectId id;
 
   /** The serial number. */
+  @Indexed(unique = true)
   private String serialNumber;
 
   /** The latitude. */
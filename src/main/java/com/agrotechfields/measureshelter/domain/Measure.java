@@ -4,14 +4,20 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.MongoId;
 
 /**
  * The Class Measure. REF:
  * https://wp.ufpel.edu.br/agrometeorologia/informacoes/instrumentos-meteorologicos/
+ *
+ * <p>The sensor fields are stored under the short keys of {@link MeasureField#getKey()}.
  */
-@Document
+@Document(collection = "#{@measureCollection.name}")
+@CompoundIndex(name = "isleId_timestamp_id", def = "{'isleId': 1, 'timestamp': 1, '_id': 1}")
+@CompoundIndex(name = "timestamp_id", def = "{'timestamp': 1, '_id': 1}")
 public class Measure {
 
   /** The id. */
@@ -22,33 +28,43 @@ public class Measure {
   private ObjectId isleId;
 
   /** The air temperature (°C). */
+  @Field("at")
   private BigDecimal airTemp;
 
   /** The underground temperature (°C). */
+  @Field("gt")
   private BigDecimal gndTemp;
 
   /** The wind speed (m/s). */
+  @Field("ws")
   private BigDecimal windSpeed;
 
   /** The wind direction (°). */
+  @Field("wd")
   private BigDecimal windDirection;
 
   /** The irradiance (Wh/m¹). */
+  @Field("ir")
   private BigDecimal irradiance;
 
   /** The pressure (mPa). */
+  @Field("pr")
   private BigDecimal pressure;
 
   /** The humidity (%). */
+  @Field("ah")
   private BigDecimal airHumidity;
 
   /** The underground humidity (%). */
+  @Field("gh")
   private BigDecimal gndHumidity;
 
   /** The precipitation (mm). */
+  @Field("pc")
   private BigDecimal precipitation;
 
   /** The rain intensity (mm/h). */
+  @Field("ri")
   private BigDecimal rainIntensity;
 
   /** The timestamp. */
@@ -0,0 +1,68 @@
+package com.agrotechfields.measureshelter.domain;
+
+import jakarta.servlet.ServletException;
+import org.springframework.http.MediaType;
+
+/**
+ * The Enum MeasureExportFormat. The file formats of the measure export.
+ */
+public enum MeasureExportFormat {
+
+  /** Comma-separated values, one header line then one line for each measure. */
+  CSV("csv", new MediaType("text", "csv")),
+  /** Newline-delimited JSON, one object for each measure. */
+  NDJSON("ndjson", MediaType.APPLICATION_NDJSON),
+  /** Apache Arrow IPC stream, columnar record batches. */
+  ARROW("arrow", new MediaType("application", "vnd.apache.arrow.stream"));
+
+  /** The file extension. */
+  private final String extension;
+
+  /** The media type. */
+  private final MediaType mediaType;
+
+  /**
+   * Instantiates a new measure export format.
+   *
+   * @param extension the file extension
+   * @param mediaType the media type
+   */
+  MeasureExportFormat(String extension, MediaType mediaType) {
+    this.extension = extension;
+    this.mediaType = mediaType;
+  }
+
+  /**
+   * Parses a format by its extension.
+   *
+   * @param format the format
+   * @return the measure export format
+   * @throws ServletException the servlet exception
+   */
+  public static MeasureExportFormat parse(String format) throws ServletException {
+    for (MeasureExportFormat exportFormat : values()) {
+      if (exportFormat.extension.equalsIgnoreCase(format)) {
+        return exportFormat;
+      }
+    }
+    throw new ServletException("Invalid format, expected csv, ndjson or arrow");
+  }
+
+  /**
+   * Gets the file extension.
+   *
+   * @return the extension
+   */
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * Gets the media type.
+   *
+   * @return the media type
+   */
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+}
@@ -0,0 +1,122 @@
+package com.agrotechfields.measureshelter.domain;
+
+import java.math.BigDecimal;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The Enum MeasureField. The sensor fields of a {@link Measure}.
+ */
+public enum MeasureField {
+
+  /** The air temperature (°C). */
+  AIR_TEMP("airTemp", "at", 2, Measure::getAirTemp, Measure::setAirTemp),
+  /** The underground temperature (°C). */
+  GND_TEMP("gndTemp", "gt", 2, Measure::getGndTemp, Measure::setGndTemp),
+  /** The wind speed (m/s). */
+  WIND_SPEED("windSpeed", "ws", 2, Measure::getWindSpeed, Measure::setWindSpeed),
+  /** The wind direction (°), an angle averaged as a circular mean. */
+  WIND_DIRECTION("windDirection", "wd", 2, Measure::getWindDirection, Measure::setWindDirection),
+  /** The irradiance (Wh/m¹). */
+  IRRADIANCE("irradiance", "ir", 2, Measure::getIrradiance, Measure::setIrradiance),
+  /** The pressure (hPa). */
+  PRESSURE("pressure", "pr", 2, Measure::getPressure, Measure::setPressure),
+  /** The humidity (%). */
+  AIR_HUMIDITY("airHumidity", "ah", 2, Measure::getAirHumidity, Measure::setAirHumidity),
+  /** The underground humidity (%). */
+  GND_HUMIDITY("gndHumidity", "gh", 2, Measure::getGndHumidity, Measure::setGndHumidity),
+  /** The precipitation (mm). */
+  PRECIPITATION("precipitation", "pc", 2, Measure::getPrecipitation, Measure::setPrecipitation),
+  /** The rain intensity (mm/h). */
+  RAIN_INTENSITY("rainIntensity", "ri", 2, Measure::getRainIntensity, Measure::setRainIntensity);
+
+  /** The property name. */
+  private final String name;
+
+  /** The short key of the stored documents. */
+  private final String key;
+
+  /** The declared number of decimal places, kept by the fixed-point storage. */
+  private final int scale;
+
+  /** The getter. */
+  private final Function<Measure, BigDecimal> getter;
+
+  /** The setter. */
+  private final BiConsumer<Measure, BigDecimal> setter;
+
+  /**
+   * Instantiates a new measure field.
+   *
+   * @param name the property name
+   * @param key the short key of the stored documents
+   * @param scale the declared number of decimal places
+   * @param getter the getter
+   * @param setter the setter
+   */
+  MeasureField(String name, String key, int scale, Function<Measure, BigDecimal> getter,
+      BiConsumer<Measure, BigDecimal> setter) {
+    this.name = name;
+    this.key = key;
+    this.scale = scale;
+    this.getter = getter;
+    this.setter = setter;
+  }
+
+  /**
+   * Gets the property name.
+   *
+   * @return the property name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the short key of the stored documents. The measures written before the short keys are
+   * stored under the property name.
+   *
+   * @return the key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Gets the declared number of decimal places.
+   *
+   * @return the scale
+   */
+  public int getScale() {
+    return scale;
+  }
+
+  /**
+   * Checks if the field is an angle, averaged as a circular mean.
+   *
+   * @return true, if circular
+   */
+  public boolean isCircular() {
+    return this == WIND_DIRECTION;
+  }
+
+  /**
+   * Gets the value of the field in a measure.
+   *
+   * @param measure the measure
+   * @return the value
+   */
+  public BigDecimal valueOf(Measure measure) {
+    return getter.apply(measure);
+  }
+
+  /**
+   * Sets the value of the field in a measure.
+   *
+   * @param measure the measure
+   * @param value the value
+   */
+  public void setValue(Measure measure, BigDecimal value) {
+    setter.accept(measure, value);
+  }
+}
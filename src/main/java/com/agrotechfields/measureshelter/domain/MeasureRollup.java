@@ -0,0 +1,278 @@
+package com.agrotechfields.measureshelter.domain;
+
+import com.agrotechfields.measureshelter.domain.MeasureStats.FieldStats;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+/**
+ * The Class MeasureRollup. Aggregates of the measures of an isle in an hour or a day, kept in
+ * the collection of its {@link RollupResolution}: the count, sum, min and max of each field, and
+ * the sums of the sines and cosines of the angles for their circular mean.
+ */
+public class MeasureRollup {
+
+  /** The id. */
+  @MongoId
+  private ObjectId id;
+
+  /** The isle id. */
+  private ObjectId isleId;
+
+  /** The start of the bucket. */
+  private LocalDateTime timestamp;
+
+  /** The number of measures. */
+  private Long count;
+
+  /** The aggregates by field name. */
+  private Map<String, RollupField> fields = new LinkedHashMap<>();
+
+  /**
+   * Gets the id.
+   *
+   * @return the id
+   */
+  public ObjectId getId() {
+    return id;
+  }
+
+  /**
+   * Gets the isle id.
+   *
+   * @return the isle id
+   */
+  public ObjectId getIsleId() {
+    return isleId;
+  }
+
+  /**
+   * Sets the isle id.
+   *
+   * @param isleId the new isle id
+   */
+  public void setIsleId(ObjectId isleId) {
+    this.isleId = isleId;
+  }
+
+  /**
+   * Gets the timestamp.
+   *
+   * @return the timestamp
+   */
+  public LocalDateTime getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Sets the timestamp.
+   *
+   * @param timestamp the new timestamp
+   */
+  public void setTimestamp(LocalDateTime timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Gets the count.
+   *
+   * @return the count
+   */
+  public Long getCount() {
+    return count;
+  }
+
+  /**
+   * Sets the count.
+   *
+   * @param count the new count
+   */
+  public void setCount(Long count) {
+    this.count = count;
+  }
+
+  /**
+   * Gets the fields.
+   *
+   * @return the fields
+   */
+  public Map<String, RollupField> getFields() {
+    return fields;
+  }
+
+  /**
+   * Sets the fields.
+   *
+   * @param fields the fields
+   */
+  public void setFields(Map<String, RollupField> fields) {
+    this.fields = fields;
+  }
+
+  /**
+   * Statistics of the rollup.
+   *
+   * @return the measure stats
+   */
+  public MeasureStats toMeasureStats() {
+    Map<String, FieldStats> stats = new LinkedHashMap<>();
+    for (MeasureField field : MeasureField.values()) {
+      RollupField rollupField = fields == null ? null : fields.get(field.getName());
+      stats.put(field.getName(), rollupField == null
+          ? new FieldStats(0L, null, null, null)
+          : rollupField.toFieldStats(field.isCircular()));
+    }
+    return new MeasureStats(timestamp, count, stats);
+  }
+
+  /**
+   * The Class RollupField. Aggregates of a field.
+   */
+  public static class RollupField {
+
+    /** The number of values. */
+    private Long count;
+
+    /** The sum. */
+    private Double sum;
+
+    /** The min. */
+    private Double min;
+
+    /** The max. */
+    private Double max;
+
+    /** The sum of the sines of an angle. */
+    private Double sin;
+
+    /** The sum of the cosines of an angle. */
+    private Double cos;
+
+    /**
+     * Gets the count.
+     *
+     * @return the count
+     */
+    public Long getCount() {
+      return count;
+    }
+
+    /**
+     * Sets the count.
+     *
+     * @param count the new count
+     */
+    public void setCount(Long count) {
+      this.count = count;
+    }
+
+    /**
+     * Gets the sum.
+     *
+     * @return the sum
+     */
+    public Double getSum() {
+      return sum;
+    }
+
+    /**
+     * Sets the sum.
+     *
+     * @param sum the new sum
+     */
+    public void setSum(Double sum) {
+      this.sum = sum;
+    }
+
+    /**
+     * Gets the min.
+     *
+     * @return the min
+     */
+    public Double getMin() {
+      return min;
+    }
+
+    /**
+     * Sets the min.
+     *
+     * @param min the new min
+     */
+    public void setMin(Double min) {
+      this.min = min;
+    }
+
+    /**
+     * Gets the max.
+     *
+     * @return the max
+     */
+    public Double getMax() {
+      return max;
+    }
+
+    /**
+     * Sets the max.
+     *
+     * @param max the new max
+     */
+    public void setMax(Double max) {
+      this.max = max;
+    }
+
+    /**
+     * Gets the sum of the sines.
+     *
+     * @return the sin
+     */
+    public Double getSin() {
+      return sin;
+    }
+
+    /**
+     * Sets the sum of the sines.
+     *
+     * @param sin the new sin
+     */
+    public void setSin(Double sin) {
+      this.sin = sin;
+    }
+
+    /**
+     * Gets the sum of the cosines.
+     *
+     * @return the cos
+     */
+    public Double getCos() {
+      return cos;
+    }
+
+    /**
+     * Sets the sum of the cosines.
+     *
+     * @param cos the new cos
+     */
+    public void setCos(Double cos) {
+      this.cos = cos;
+    }
+
+    /**
+     * Statistics of the field.
+     *
+     * @param circular the circular flag
+     * @return the field stats
+     */
+    public FieldStats toFieldStats(boolean circular) {
+      long values = count == null ? 0 : count;
+      Double avg = null;
+      if (values > 0 && circular) {
+        avg = MeasureStats.circularMean(sin, cos, values);
+      } else if (values > 0 && sum != null) {
+        avg = sum / values;
+      }
+      return new FieldStats(values, min, max, avg);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package com.agrotechfields.measureshelter.domain;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * The Class MeasureStats. Statistics of the measures of an isle in a time bucket.
+ */
+public class MeasureStats {
+
+  /** The mean vector length below which the angles are taken as cancelling out. */
+  private static final double CIRCULAR_EPSILON = 1e-9;
+
+  /** The start of the bucket. */
+  private LocalDateTime timestamp;
+
+  /** The number of measures. */
+  private Long count;
+
+  /** The statistics by field name. */
+  private Map<String, FieldStats> fields;
+
+  /**
+   * Instantiates a new measure stats.
+   *
+   * @param timestamp the start of the bucket
+   * @param count the number of measures
+   * @param fields the statistics by field name
+   */
+  public MeasureStats(LocalDateTime timestamp, Long count, Map<String, FieldStats> fields) {
+    this.timestamp = timestamp;
+    this.count = count;
+    this.fields = fields;
+  }
+
+  /**
+   * Gets the timestamp.
+   *
+   * @return the timestamp
+   */
+  public LocalDateTime getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Gets the count.
+   *
+   * @return the count
+   */
+  public Long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the fields.
+   *
+   * @return the fields
+   */
+  public Map<String, FieldStats> getFields() {
+    return fields;
+  }
+
+  /**
+   * Circular mean of angles in degrees, from the sums of their sines and cosines.
+   *
+   * @param sin the sum of the sines
+   * @param cos the sum of the cosines
+   * @param count the number of angles
+   * @return the mean in [0, 360), null when there are no angles or they cancel out
+   */
+  public static Double circularMean(Double sin, Double cos, long count) {
+    if (count == 0 || sin == null || cos == null
+        || Math.hypot(sin, cos) < CIRCULAR_EPSILON * count) {
+      return null;
+    }
+    double degrees = Math.toDegrees(Math.atan2(sin, cos));
+    return degrees < 0 ? degrees + 360 : degrees;
+  }
+
+  /**
+   * The Class FieldStats. Statistics of a field in a bucket, over the measures that have it.
+   */
+  public static class FieldStats implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The number of values. */
+    private Long count;
+
+    /** The min. */
+    private Double min;
+
+    /** The max. */
+    private Double max;
+
+    /** The average, a circular mean for the angles. */
+    private Double avg;
+
+    /**
+     * Instantiates a new field stats.
+     *
+     * @param count the number of values
+     * @param min the min
+     * @param max the max
+     * @param avg the average
+     */
+    public FieldStats(Long count, Double min, Double max, Double avg) {
+      this.count = count;
+      this.min = min;
+      this.max = max;
+      this.avg = avg;
+    }
+
+    /**
+     * Gets the count.
+     *
+     * @return the count
+     */
+    public Long getCount() {
+      return count;
+    }
+
+    /**
+     * Gets the min.
+     *
+     * @return the min
+     */
+    public Double getMin() {
+      return min;
+    }
+
+    /**
+     * Gets the max.
+     *
+     * @return the max
+     */
+    public Double getMax() {
+      return max;
+    }
+
+    /**
+     * Gets the avg.
+     *
+     * @return the avg
+     */
+    public Double getAvg() {
+      return avg;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.agrotechfields.measureshelter.domain;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The Enum RollupResolution. The buckets of the measure rollups, truncated in the zone of the
+ * application like the stored timestamps.
+ */
+public enum RollupResolution {
+
+  /** Hourly rollups. */
+  HOUR("measure_rollup_hourly", ChronoUnit.HOURS),
+  /** Daily rollups. */
+  DAY("measure_rollup_daily", ChronoUnit.DAYS);
+
+  /** The collection. */
+  private final String collection;
+
+  /** The unit. */
+  private final ChronoUnit unit;
+
+  /**
+   * Instantiates a new rollup resolution.
+   *
+   * @param collection the collection
+   * @param unit the unit
+   */
+  RollupResolution(String collection, ChronoUnit unit) {
+    this.collection = collection;
+    this.unit = unit;
+  }
+
+  /**
+   * Gets the collection.
+   *
+   * @return the collection
+   */
+  public String getCollection() {
+    return collection;
+  }
+
+  /**
+   * Start of the bucket of a timestamp.
+   *
+   * @param timestamp the timestamp
+   * @return the start of the bucket
+   */
+  public LocalDateTime truncate(LocalDateTime timestamp) {
+    return timestamp.truncatedTo(unit);
+  }
+
+  /**
+   * Start of the next bucket.
+   *
+   * @param bucket the start of a bucket
+   * @return the start of the next bucket
+   */
+  public LocalDateTime next(LocalDateTime bucket) {
+    return bucket.plus(1, unit);
+  }
+}
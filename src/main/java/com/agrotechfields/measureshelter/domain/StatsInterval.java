@@ -0,0 +1,86 @@
+package com.agrotechfields.measureshelter.domain;
+
+import jakarta.servlet.ServletException;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The Class StatsInterval. Size of the buckets of the measure statistics, written as a number
+ * followed by {@code m} (minutes), {@code h} (hours) or {@code d} (days), e.g. {@code 15m},
+ * {@code 1h} or {@code 1d}.
+ */
+public final class StatsInterval {
+
+  /** The interval pattern. */
+  private static final Pattern PATTERN = Pattern.compile("([1-9]\\d{0,3})([mhd])");
+
+  /** The $dateTrunc unit. */
+  private final String unit;
+
+  /** The number of units of a bucket. */
+  private final int binSize;
+
+  /** The duration. */
+  private final Duration duration;
+
+  /**
+   * Instantiates a new stats interval.
+   *
+   * @param unit the $dateTrunc unit
+   * @param binSize the number of units of a bucket
+   * @param duration the duration
+   */
+  private StatsInterval(String unit, int binSize, Duration duration) {
+    this.unit = unit;
+    this.binSize = binSize;
+    this.duration = duration;
+  }
+
+  /**
+   * Parses an interval.
+   *
+   * @param interval the interval
+   * @return the stats interval
+   * @throws ServletException the servlet exception
+   */
+  public static StatsInterval parse(String interval) throws ServletException {
+    Matcher matcher = interval == null ? null : PATTERN.matcher(interval.trim());
+    if (matcher == null || !matcher.matches()) {
+      throw new ServletException("Invalid interval, expected e.g. 15m, 1h or 1d");
+    }
+    int binSize = Integer.parseInt(matcher.group(1));
+    return switch (matcher.group(2)) {
+      case "m" -> new StatsInterval("minute", binSize, Duration.ofMinutes(binSize));
+      case "h" -> new StatsInterval("hour", binSize, Duration.ofHours(binSize));
+      default -> new StatsInterval("day", binSize, Duration.ofDays(binSize));
+    };
+  }
+
+  /**
+   * Gets the $dateTrunc unit.
+   *
+   * @return the unit
+   */
+  public String getUnit() {
+    return unit;
+  }
+
+  /**
+   * Gets the number of units of a bucket.
+   *
+   * @return the bin size
+   */
+  public int getBinSize() {
+    return binSize;
+  }
+
+  /**
+   * Gets the duration.
+   *
+   * @return the duration
+   */
+  public Duration getDuration() {
+    return duration;
+  }
+}
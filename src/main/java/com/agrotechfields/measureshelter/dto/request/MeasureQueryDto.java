@@ -0,0 +1,140 @@
+package com.agrotechfields.measureshelter.dto.request;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import java.time.LocalDateTime;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+
+/**
+ * The Class MeasureQueryDto. Query parameters of the measure listings.
+ */
+public class MeasureQueryDto {
+
+  /** The inclusive start of the timestamp range. */
+  @DateTimeFormat(iso = ISO.DATE_TIME)
+  private LocalDateTime from;
+
+  /** The exclusive end of the timestamp range. */
+  @DateTimeFormat(iso = ISO.DATE_TIME)
+  private LocalDateTime to;
+
+  /** The maximum number of measures. */
+  @Positive
+  private Integer limit;
+
+  /** The timestamp order, asc or desc. */
+  @Pattern(regexp = "(?i)asc|desc", message = "must be asc or desc")
+  private String order;
+
+  /**
+   * Instantiates a new measure query dto.
+   */
+  public MeasureQueryDto() {}
+
+  /**
+   * Instantiates a new measure query dto.
+   *
+   * @param from the inclusive start of the timestamp range
+   * @param to the exclusive end of the timestamp range
+   * @param limit the maximum number of measures
+   * @param order the timestamp order
+   */
+  public MeasureQueryDto(LocalDateTime from, LocalDateTime to, Integer limit, String order) {
+    this.from = from;
+    this.to = to;
+    this.limit = limit;
+    this.order = order;
+  }
+
+  /**
+   * Checks if no parameter was given.
+   *
+   * @return true, if empty
+   */
+  public boolean isEmpty() {
+    return from == null && to == null && limit == null && order == null;
+  }
+
+  /**
+   * Gets the direction of the order.
+   *
+   * @return the direction, ascending by default
+   */
+  public Direction getDirection() {
+    return Direction.fromOptionalString(order).orElse(Direction.ASC);
+  }
+
+  /**
+   * Gets the from.
+   *
+   * @return the from
+   */
+  public LocalDateTime getFrom() {
+    return from;
+  }
+
+  /**
+   * Sets the from.
+   *
+   * @param from the new from
+   */
+  public void setFrom(LocalDateTime from) {
+    this.from = from;
+  }
+
+  /**
+   * Gets the to.
+   *
+   * @return the to
+   */
+  public LocalDateTime getTo() {
+    return to;
+  }
+
+  /**
+   * Sets the to.
+   *
+   * @param to the new to
+   */
+  public void setTo(LocalDateTime to) {
+    this.to = to;
+  }
+
+  /**
+   * Gets the limit.
+   *
+   * @return the limit
+   */
+  public Integer getLimit() {
+    return limit;
+  }
+
+  /**
+   * Sets the limit.
+   *
+   * @param limit the new limit
+   */
+  public void setLimit(Integer limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Gets the order.
+   *
+   * @return the order
+   */
+  public String getOrder() {
+    return order;
+  }
+
+  /**
+   * Sets the order.
+   *
+   * @param order the new order
+   */
+  public void setOrder(String order) {
+    this.order = order;
+  }
+}
@@ -17,6 +17,12 @@ public class ImageResponseDto {
   /** The timestamp. */
   private LocalDateTime timestamp;
 
+  /** The content length, in bytes. */
+  private Long size;
+
+  /** The SHA-256 of the content, in hexadecimal. */
+  private String hash;
+
   /**
    * Instantiates a new image response dto.
    *
@@ -26,6 +32,8 @@ public class ImageResponseDto {
     this.id = image.getId().toHexString();
     this.name = image.getName();
     this.timestamp = image.getTimestamp();
+    this.size = image.getLength();
+    this.hash = image.getHash();
   }
 
   /**
@@ -54,4 +62,22 @@ public class ImageResponseDto {
   public LocalDateTime getTimestamp() {
     return timestamp;
   }
+
+  /**
+   * Gets the size.
+   *
+   * @return the size, in bytes
+   */
+  public Long getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the hash.
+   *
+   * @return the SHA-256 of the content, in hexadecimal
+   */
+  public String getHash() {
+    return hash;
+  }
 }
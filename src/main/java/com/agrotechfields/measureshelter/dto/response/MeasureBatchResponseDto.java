@@ -0,0 +1,99 @@
+package com.agrotechfields.measureshelter.dto.response;
+
+import java.io.Serializable;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The Class MeasureBatchResponseDto. One result for each item of a measure batch.
+ */
+public class MeasureBatchResponseDto implements Serializable {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** The index of the item in the batch. */
+  private Integer index;
+
+  /** The status. */
+  private Integer status;
+
+  /** The created measure id. */
+  private String id;
+
+  /** The validation message. */
+  private String message;
+
+  /**
+   * Instantiates a new measure batch response dto.
+   *
+   * @param index the index of the item in the batch
+   * @param httpStatus the http status of the item
+   * @param id the created measure id
+   * @param message the validation message
+   */
+  public MeasureBatchResponseDto(Integer index, HttpStatus httpStatus, String id,
+      String message) {
+    this.index = index;
+    this.status = httpStatus.value();
+    this.id = id;
+    this.message = message;
+  }
+
+  /**
+   * Created item.
+   *
+   * @param index the index of the item in the batch
+   * @param id the created measure id
+   * @return the measure batch response dto
+   */
+  public static MeasureBatchResponseDto created(Integer index, String id) {
+    return new MeasureBatchResponseDto(index, HttpStatus.CREATED, id, null);
+  }
+
+  /**
+   * Invalid item.
+   *
+   * @param index the index of the item in the batch
+   * @param message the validation message
+   * @return the measure batch response dto
+   */
+  public static MeasureBatchResponseDto invalid(Integer index, String message) {
+    return new MeasureBatchResponseDto(index, HttpStatus.UNPROCESSABLE_ENTITY, null, message);
+  }
+
+  /**
+   * Gets the index.
+   *
+   * @return the index
+   */
+  public Integer getIndex() {
+    return index;
+  }
+
+  /**
+   * Gets the status.
+   *
+   * @return the status
+   */
+  public Integer getStatus() {
+    return status;
+  }
+
+  /**
+   * Gets the id.
+   *
+   * @return the id
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Gets the message.
+   *
+   * @return the message
+   */
+  public String getMessage() {
+    return message;
+  }
+}
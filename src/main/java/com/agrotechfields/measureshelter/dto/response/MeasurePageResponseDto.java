@@ -0,0 +1,66 @@
+package com.agrotechfields.measureshelter.dto.response;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.repository.MeasureCursor;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The Class MeasurePageResponseDto. A keyset page of measures and the token of the next page.
+ */
+public class MeasurePageResponseDto implements Serializable {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** The measures. */
+  private List<MeasureResponseDto> content;
+
+  /** The number of measures in the page. */
+  private Integer size;
+
+  /** The token of the next page, null on the last page. */
+  private String next;
+
+  /**
+   * Instantiates a new measure page response dto.
+   *
+   * @param measures the measures, one more than the page size when there is a next page
+   * @param pageSize the page size
+   */
+  public MeasurePageResponseDto(List<Measure> measures, int pageSize) {
+    List<Measure> page = measures.size() > pageSize ? measures.subList(0, pageSize) : measures;
+    this.content = page.stream().map(MeasureResponseDto::new).toList();
+    this.size = page.size();
+    this.next = measures.size() > pageSize
+        ? MeasureCursor.after(page.get(page.size() - 1)).encode()
+        : null;
+  }
+
+  /**
+   * Gets the content.
+   *
+   * @return the content
+   */
+  public List<MeasureResponseDto> getContent() {
+    return content;
+  }
+
+  /**
+   * Gets the size.
+   *
+   * @return the size
+   */
+  public Integer getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the next.
+   *
+   * @return the next
+   */
+  public String getNext() {
+    return next;
+  }
+}
@@ -0,0 +1,63 @@
+package com.agrotechfields.measureshelter.dto.response;
+
+import com.agrotechfields.measureshelter.domain.MeasureStats;
+import com.agrotechfields.measureshelter.domain.MeasureStats.FieldStats;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * The Class MeasureStatsResponseDto.
+ */
+public class MeasureStatsResponseDto implements Serializable {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** The start of the bucket. */
+  private LocalDateTime timestamp;
+
+  /** The number of measures. */
+  private Long count;
+
+  /** The statistics by field name. */
+  private Map<String, FieldStats> fields;
+
+  /**
+   * Instantiates a new measure stats response dto.
+   *
+   * @param measureStats the measure stats
+   */
+  public MeasureStatsResponseDto(MeasureStats measureStats) {
+    this.timestamp = measureStats.getTimestamp();
+    this.count = measureStats.getCount();
+    this.fields = measureStats.getFields();
+  }
+
+  /**
+   * Gets the timestamp.
+   *
+   * @return the timestamp
+   */
+  public LocalDateTime getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Gets the count.
+   *
+   * @return the count
+   */
+  public Long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the fields.
+   *
+   * @return the fields
+   */
+  public Map<String, FieldStats> getFields() {
+    return fields;
+  }
+}
@@ -0,0 +1,105 @@
+package com.agrotechfields.measureshelter.event;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import java.util.List;
+
+/**
+ * The Class MeasureEvent. Published by the measure service once measures are written, so the
+ * derived views of the measures are kept up to date without querying them back. In write-behind
+ * mode the created measures are published after their group commit.
+ */
+public class MeasureEvent {
+
+  /**
+   * The Enum Type.
+   */
+  public enum Type {
+
+    /** Measures inserted. */
+    CREATED,
+    /** A measure replaced. */
+    UPDATED,
+    /** A measure deleted. */
+    DELETED;
+  }
+
+  /** The type. */
+  private final Type type;
+
+  /** The created, updated or deleted measures. */
+  private final List<Measure> measures;
+
+  /** The measure before the update. */
+  private final Measure previous;
+
+  /**
+   * Instantiates a new measure event.
+   *
+   * @param type the type
+   * @param measures the measures
+   * @param previous the measure before the update
+   */
+  private MeasureEvent(Type type, List<Measure> measures, Measure previous) {
+    this.type = type;
+    this.measures = measures;
+    this.previous = previous;
+  }
+
+  /**
+   * Created measures.
+   *
+   * @param measures the created measures
+   * @return the measure event
+   */
+  public static MeasureEvent created(List<Measure> measures) {
+    return new MeasureEvent(Type.CREATED, List.copyOf(measures), null);
+  }
+
+  /**
+   * Updated measure.
+   *
+   * @param previous the measure before the update
+   * @param measure the updated measure
+   * @return the measure event
+   */
+  public static MeasureEvent updated(Measure previous, Measure measure) {
+    return new MeasureEvent(Type.UPDATED, List.of(measure), previous);
+  }
+
+  /**
+   * Deleted measure.
+   *
+   * @param measure the deleted measure
+   * @return the measure event
+   */
+  public static MeasureEvent deleted(Measure measure) {
+    return new MeasureEvent(Type.DELETED, List.of(measure), null);
+  }
+
+  /**
+   * Gets the type.
+   *
+   * @return the type
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Gets the measures.
+   *
+   * @return the measures
+   */
+  public List<Measure> getMeasures() {
+    return measures;
+  }
+
+  /**
+   * Gets the measure before the update.
+   *
+   * @return the previous measure, null unless updated
+   */
+  public Measure getPrevious() {
+    return previous;
+  }
+}
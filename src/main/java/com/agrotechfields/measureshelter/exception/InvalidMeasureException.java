@@ -0,0 +1,19 @@
+package com.agrotechfields.measureshelter.exception;
+
+/**
+ * The Class InvalidMeasureException.
+ */
+public class InvalidMeasureException extends Exception {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Instantiates a new invalid measure exception.
+   *
+   * @param msg the msg, as 'field: message'
+   */
+  public InvalidMeasureException(String msg) {
+    super(msg);
+  }
+}
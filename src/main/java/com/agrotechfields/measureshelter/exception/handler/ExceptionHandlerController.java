@@ -3,6 +3,7 @@ package com.agrotechfields.measureshelter.exception.handler;
 import com.agrotechfields.measureshelter.exception.EntityAlreadyExistsException;
 import com.agrotechfields.measureshelter.exception.EntityNotFoundException;
 import com.agrotechfields.measureshelter.exception.InvalidIdException;
+import com.agrotechfields.measureshelter.exception.InvalidMeasureException;
 import com.agrotechfields.measureshelter.exception.NotPermittedException;
 import com.agrotechfields.measureshelter.exception.payload.ErrorPayload;
 import com.auth0.jwt.exceptions.IncorrectClaimException;
@@ -11,11 +12,14 @@ import com.auth0.jwt.exceptions.SignatureVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
 import jakarta.servlet.ServletException;
 import org.bson.BsonMaximumSizeExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.FieldError;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -30,6 +34,10 @@ import org.springframework.web.multipart.MultipartException;
 @ControllerAdvice
 public class ExceptionHandlerController {
 
+  /** The maximum size of an uploaded file. */
+  @Value("${spring.servlet.multipart.max-file-size:16MB}")
+  private DataSize maxFileSize;
+
   /**
    * Handle entity already exists.
    *
@@ -43,6 +51,20 @@ public class ExceptionHandlerController {
     return buildResponse(msg, httpStatus);
   }
 
+  /**
+   * Handle duplicate key, raised by a unique index when two requests create the same entity at
+   * the same time.
+   *
+   * @param e the e
+   * @return the response entity
+   */
+  @ExceptionHandler(DuplicateKeyException.class)
+  public ResponseEntity<ErrorPayload> handleDuplicateKey(DuplicateKeyException e) {
+    HttpStatus httpStatus = HttpStatus.CONFLICT;
+    String msg = "Entity already exists";
+    return buildResponse(msg, httpStatus);
+  }
+
   /**
    * Handle entity not found.
    *
@@ -71,6 +93,18 @@ public class ExceptionHandlerController {
     return buildResponse(msg, httpStatus);
   }
 
+  /**
+   * Handle invalid measure.
+   *
+   * @param e the e
+   * @return the response entity
+   */
+  @ExceptionHandler(InvalidMeasureException.class)
+  public ResponseEntity<ErrorPayload> handleInvalidMeasure(InvalidMeasureException e) {
+    HttpStatus httpStatus = HttpStatus.UNPROCESSABLE_ENTITY;
+    return buildResponse(e.getMessage(), httpStatus);
+  }
+
   /**
    * Handle invalid id.
    *
@@ -214,7 +248,7 @@ public class ExceptionHandlerController {
   public ResponseEntity<ErrorPayload> handleMaxUploadSizeExceeded(
       Exception e) {
     HttpStatus httpStatus = HttpStatus.PAYLOAD_TOO_LARGE;
-    String msg = "Payload document size is larger than maximum of 16777216.";
+    String msg = "Payload document size is larger than maximum of " + maxFileSize.toBytes() + ".";
     return buildResponse(msg, httpStatus);
   }
 
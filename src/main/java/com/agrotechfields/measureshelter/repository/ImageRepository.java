@@ -1,9 +1,12 @@
 package com.agrotechfields.measureshelter.repository;
 
 import com.agrotechfields.measureshelter.domain.Image;
+import java.util.List;
 import java.util.Optional;
 import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 /**
  * The Interface ImageRepository.
@@ -17,4 +20,32 @@ public interface ImageRepository extends MongoRepository<Image, ObjectId> {
    * @return the optional
    */
   public Optional<Image> findByName(String name);
+
+  /**
+   * Find a page of images without their content, with a projection that leaves out the
+   * {@code imageData} of the images not yet moved to GridFS.
+   *
+   * @param pageable the page
+   * @return the images, without their image data
+   */
+  @Query(value = "{}", fields = "{ 'imageData': 0 }")
+  public List<Image> findAllMetadata(Pageable pageable);
+
+  /**
+   * Find an image by id without its image data.
+   *
+   * @param id the id
+   * @return the optional image, without its image data
+   */
+  @Query(value = "{ '_id': ?0 }", fields = "{ 'imageData': 0 }")
+  public Optional<Image> findMetadataById(ObjectId id);
+
+  /**
+   * Find an image by name without its image data.
+   *
+   * @param name the name
+   * @return the optional image, without its image data
+   */
+  @Query(value = "{ 'name': ?0 }", fields = "{ 'imageData': 0 }")
+  public Optional<Image> findMetadataByName(String name);
 }
@@ -0,0 +1,329 @@
+package com.agrotechfields.measureshelter.repository;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.ExampleMatcher.NullHandler;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.NullHandling;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+import org.springframework.data.support.PageableExecutionUtils;
+
+/**
+ * The Class MeasureBucketQuery. Query of the measures of the bucket storage on any property or by
+ * example, which the buckets do not index: the measures are read in the {@code (timestamp, _id)}
+ * order of {@link MeasureFilter}, matched, sorted and paged in memory. Measures with equal sort
+ * properties keep that order. The properties are {@code id}, {@code isleId}, {@code timestamp}
+ * and the sensor fields, by name or short key; a null sorts first in ascending order, as in the
+ * measure collection.
+ *
+ * @param <T> the result type
+ */
+final class MeasureBucketQuery<T> implements FetchableFluentQuery<T> {
+
+  /** The properties compared by an example. */
+  private static final List<String> PROPERTIES = Stream.concat(
+      Stream.of("id", "isleId", "timestamp"),
+      Stream.of(MeasureField.values()).map(MeasureField::getName)).toList();
+
+  /** The projection factory of the interface result types. */
+  private static final SpelAwareProxyProjectionFactory PROJECTIONS =
+      new SpelAwareProxyProjectionFactory();
+
+  /** The measures, in {@code (timestamp, _id)} order. */
+  private final Supplier<Stream<Measure>> measures;
+
+  /** The predicate of the example. */
+  private final Predicate<Measure> predicate;
+
+  /** The sort. */
+  private final Sort sort;
+
+  /** The mapping to the result type. */
+  private final Function<Measure, T> mapping;
+
+  /**
+   * Instantiates a new measure bucket query.
+   *
+   * @param measures the measures, in {@code (timestamp, _id)} order
+   * @param predicate the predicate of the example
+   * @param sort the sort
+   * @param mapping the mapping to the result type
+   */
+  private MeasureBucketQuery(Supplier<Stream<Measure>> measures, Predicate<Measure> predicate,
+      Sort sort, Function<Measure, T> mapping) {
+    this.measures = measures;
+    this.predicate = predicate;
+    this.sort = sort;
+    this.mapping = mapping;
+  }
+
+  /**
+   * Query all the measures.
+   *
+   * @param measures the measures, in {@code (timestamp, _id)} order
+   * @return the query
+   */
+  static MeasureBucketQuery<Measure> of(Supplier<Stream<Measure>> measures) {
+    return new MeasureBucketQuery<>(measures, measure -> true, Sort.unsorted(),
+        Function.identity());
+  }
+
+  /**
+   * Query the measures matched by an example.
+   *
+   * @param <S> the measure type
+   * @param measures the measures, in {@code (timestamp, _id)} order
+   * @param example the example
+   * @return the query
+   */
+  @SuppressWarnings("unchecked")
+  static <S extends Measure> MeasureBucketQuery<S> of(Supplier<Stream<Measure>> measures,
+      Example<S> example) {
+    return new MeasureBucketQuery<>(measures, measure -> matches(example, measure),
+        Sort.unsorted(), measure -> (S) measure);
+  }
+
+  /**
+   * Sort by.
+   *
+   * @param sort the sort, added to the current one
+   * @return the query
+   */
+  @Override
+  public FetchableFluentQuery<T> sortBy(Sort sort) {
+    return new MeasureBucketQuery<>(measures, predicate, this.sort.and(sort), mapping);
+  }
+
+  /**
+   * Map the results to a type, a supertype of the measure or an interface projection.
+   *
+   * @param <R> the result type
+   * @param resultType the result type
+   * @return the query
+   */
+  @Override
+  public <R> FetchableFluentQuery<R> as(Class<R> resultType) {
+    Function<Measure, R> cast = resultType.isInterface()
+        && !resultType.isAssignableFrom(Measure.class)
+        ? measure -> PROJECTIONS.createProjection(resultType, measure)
+        : resultType::cast;
+    return new MeasureBucketQuery<>(measures, predicate, sort, cast);
+  }
+
+  /**
+   * Project the properties. The buckets are decoded whole, so every property is read anyway.
+   *
+   * @param properties the properties
+   * @return the query
+   */
+  @Override
+  public FetchableFluentQuery<T> project(Collection<String> properties) {
+    return this;
+  }
+
+  /**
+   * Get the single result.
+   *
+   * @return the result, null if none
+   * @throws IncorrectResultSizeDataAccessException if more than one measure matches
+   */
+  @Override
+  public T oneValue() {
+    List<T> results;
+    try (Stream<T> stream = stream()) {
+      results = stream.limit(2).toList();
+    }
+    if (results.size() > 1) {
+      throw new IncorrectResultSizeDataAccessException(1);
+    }
+    return results.isEmpty() ? null : results.get(0);
+  }
+
+  /**
+   * Get the first result.
+   *
+   * @return the result, null if none
+   */
+  @Override
+  public T firstValue() {
+    try (Stream<T> stream = stream()) {
+      return stream.findFirst().orElse(null);
+    }
+  }
+
+  /**
+   * Get all the results.
+   *
+   * @return the results
+   */
+  @Override
+  public List<T> all() {
+    try (Stream<T> stream = stream()) {
+      return stream.toList();
+    }
+  }
+
+  /**
+   * Get a page of the results, sorted by the sort of the page after the current one.
+   *
+   * @param pageable the page
+   * @return the page
+   */
+  @Override
+  public Page<T> page(Pageable pageable) {
+    if (pageable.isUnpaged()) {
+      List<T> results = all();
+      return PageableExecutionUtils.getPage(results, pageable, results::size);
+    }
+    List<T> results;
+    try (Stream<T> stream = ((MeasureBucketQuery<T>) sortBy(pageable.getSort())).stream()) {
+      results = stream.skip(pageable.getOffset()).limit(pageable.getPageSize()).toList();
+    }
+    return PageableExecutionUtils.getPage(results, pageable, this::count);
+  }
+
+  /**
+   * Stream the results; it must be closed.
+   *
+   * @return the results
+   */
+  @Override
+  public Stream<T> stream() {
+    Stream<Measure> matched = measures.get().filter(predicate);
+    if (sort.isSorted()) {
+      matched = matched.sorted(comparator(sort));
+    }
+    return matched.map(mapping);
+  }
+
+  /**
+   * Count the results.
+   *
+   * @return the count
+   */
+  @Override
+  public long count() {
+    try (Stream<Measure> stream = measures.get()) {
+      return stream.filter(predicate).count();
+    }
+  }
+
+  /**
+   * Checks if there is any result.
+   *
+   * @return true, if it exists
+   */
+  @Override
+  public boolean exists() {
+    try (Stream<Measure> stream = measures.get()) {
+      return stream.anyMatch(predicate);
+    }
+  }
+
+  /**
+   * Checks if a measure is matched by an example, the way the measure collection is queried by
+   * one: by equal values, the null ones of the probe included only when the matcher says so, on
+   * all or any of the properties not ignored.
+   *
+   * @param example the example
+   * @param measure the measure
+   * @return true, if matched
+   */
+  static boolean matches(Example<? extends Measure> example, Measure measure) {
+    ExampleMatcher matcher = example.getMatcher();
+    boolean compared = false;
+    for (String property : PROPERTIES) {
+      if (matcher.isIgnoredPath(property)) {
+        continue;
+      }
+      Object expected = valueOf(example.getProbe(), property);
+      if (expected == null && matcher.getNullHandler() == NullHandler.IGNORE) {
+        continue;
+      }
+      compared = true;
+      boolean equal = isEqual(expected, valueOf(measure, property));
+      if (equal && matcher.isAnyMatching()) {
+        return true;
+      }
+      if (!equal && matcher.isAllMatching()) {
+        return false;
+      }
+    }
+    return !compared || matcher.isAllMatching();
+  }
+
+  /**
+   * Gets the comparator of a sort.
+   *
+   * @param sort the sort
+   * @return the comparator
+   * @throws IllegalArgumentException if a property is not one of the measure
+   */
+  static Comparator<Measure> comparator(Sort sort) {
+    Comparator<Measure> comparator = (first, second) -> 0;
+    for (Order order : sort) {
+      Comparator<Comparable<Object>> values = order.isAscending()
+          ? Comparator.naturalOrder() : Comparator.reverseOrder();
+      boolean nullsFirst = order.getNullHandling() == NullHandling.NATIVE
+          ? order.isAscending() : order.getNullHandling() == NullHandling.NULLS_FIRST;
+      values = nullsFirst ? Comparator.nullsFirst(values) : Comparator.nullsLast(values);
+      String property = order.getProperty();
+      comparator = comparator.thenComparing(measure -> valueOf(measure, property), values);
+    }
+    return comparator;
+  }
+
+  /**
+   * Gets the value of a property of a measure.
+   *
+   * @param measure the measure
+   * @param property the property, a sensor field by name or by short key
+   * @return the value, null if missing
+   * @throws IllegalArgumentException if the property is not one of the measure
+   */
+  @SuppressWarnings("unchecked")
+  private static Comparable<Object> valueOf(Measure measure, String property) {
+    Comparable<?> value = switch (property) {
+      case "id", "_id" -> measure.getId();
+      case "isleId" -> measure.getIsleId();
+      case "timestamp" -> measure.getTimestamp();
+      default -> Stream.of(MeasureField.values())
+          .filter(field -> field.getName().equals(property) || field.getKey().equals(property))
+          .findFirst()
+          .orElseThrow(() -> new IllegalArgumentException("No property " + property
+              + " found for the measure"))
+          .valueOf(measure);
+    };
+    return (Comparable<Object>) value;
+  }
+
+  /**
+   * Checks if two values are equal, the decimals by their numeric value.
+   *
+   * @param expected the expected value
+   * @param actual the actual value
+   * @return true, if equal
+   */
+  private static boolean isEqual(Object expected, Object actual) {
+    if (expected instanceof BigDecimal decimal && actual instanceof BigDecimal other) {
+      return decimal.compareTo(other) == 0;
+    }
+    return Objects.equals(expected, actual);
+  }
+}
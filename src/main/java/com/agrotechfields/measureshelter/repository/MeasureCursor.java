@@ -0,0 +1,96 @@
+package com.agrotechfields.measureshelter.repository;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import jakarta.servlet.ServletException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import org.bson.types.ObjectId;
+
+/**
+ * The Class MeasureCursor. Position of a keyset page of measures: the {@code (timestamp, _id)} of
+ * the last measure of the previous page, exchanged with the clients as an opaque token.
+ */
+public final class MeasureCursor {
+
+  /** The separator of the token fields. */
+  private static final String SEPARATOR = ",";
+
+  /** The timestamp. */
+  private final LocalDateTime timestamp;
+
+  /** The id. */
+  private final ObjectId id;
+
+  /**
+   * Instantiates a new measure cursor.
+   *
+   * @param timestamp the timestamp
+   * @param id the id
+   */
+  public MeasureCursor(LocalDateTime timestamp, ObjectId id) {
+    this.timestamp = timestamp;
+    this.id = id;
+  }
+
+  /**
+   * Cursor after a measure.
+   *
+   * @param measure the measure
+   * @return the measure cursor
+   */
+  public static MeasureCursor after(Measure measure) {
+    return new MeasureCursor(measure.getTimestamp(), measure.getId());
+  }
+
+  /**
+   * Decode a token.
+   *
+   * @param token the token, may be null or blank for the first page
+   * @return the measure cursor, or null for the first page
+   * @throws ServletException the servlet exception
+   */
+  public static MeasureCursor decode(String token) throws ServletException {
+    if (token == null || token.isBlank()) {
+      return null;
+    }
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] fields = decoded.split(SEPARATOR, 2);
+      return new MeasureCursor(LocalDateTime.parse(fields[0]), new ObjectId(fields[1]));
+    } catch (IllegalArgumentException | DateTimeParseException
+        | ArrayIndexOutOfBoundsException e) {
+      throw new ServletException("Invalid cursor");
+    }
+  }
+
+  /**
+   * Encode the cursor as a token.
+   *
+   * @return the token
+   */
+  public String encode() {
+    String decoded = timestamp + SEPARATOR + id.toHexString();
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Gets the timestamp.
+   *
+   * @return the timestamp
+   */
+  public LocalDateTime getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Gets the id.
+   *
+   * @return the id
+   */
+  public ObjectId getId() {
+    return id;
+  }
+}
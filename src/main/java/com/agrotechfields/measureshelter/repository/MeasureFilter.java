@@ -0,0 +1,123 @@
+package com.agrotechfields.measureshelter.repository;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * The Class MeasureFilter. Selection of the measure queries: an optional isle, an optional
+ * {@code [from, to)} timestamp range and the timestamp order, served by the
+ * {@code (isleId, timestamp, _id)} and {@code (timestamp, _id)} indexes.
+ */
+public final class MeasureFilter {
+
+  /** The ascending {@code (timestamp, _id)} order of the measures. */
+  private static final Comparator<Measure> ORDER =
+      Comparator.comparing(Measure::getTimestamp).thenComparing(Measure::getId);
+
+  /** The isle id, null for all isles. */
+  private final ObjectId isleId;
+
+  /** The inclusive start of the range, null for unbounded. */
+  private final LocalDateTime from;
+
+  /** The exclusive end of the range, null for unbounded. */
+  private final LocalDateTime to;
+
+  /** The timestamp order. */
+  private final Direction direction;
+
+  /**
+   * Instantiates a new measure filter.
+   *
+   * @param isleId the isle id, null for all isles
+   * @param from the inclusive start of the range, null for unbounded
+   * @param to the exclusive end of the range, null for unbounded
+   * @param direction the timestamp order, ascending when null
+   */
+  public MeasureFilter(ObjectId isleId, LocalDateTime from, LocalDateTime to,
+      Direction direction) {
+    this.isleId = isleId;
+    this.from = from;
+    this.to = to;
+    this.direction = direction == null ? Direction.ASC : direction;
+  }
+
+  /**
+   * Gets the isle id.
+   *
+   * @return the isle id
+   */
+  public ObjectId getIsleId() {
+    return isleId;
+  }
+
+  /**
+   * Gets the from.
+   *
+   * @return the from
+   */
+  public LocalDateTime getFrom() {
+    return from;
+  }
+
+  /**
+   * Gets the to.
+   *
+   * @return the to
+   */
+  public LocalDateTime getTo() {
+    return to;
+  }
+
+  /**
+   * Gets the direction.
+   *
+   * @return the direction
+   */
+  public Direction getDirection() {
+    return direction;
+  }
+
+  /**
+   * Gets the {@code (timestamp, _id)} order of the measures in the direction of the filter.
+   *
+   * @return the order
+   */
+  public Comparator<Measure> getOrder() {
+    return direction.isAscending() ? ORDER : ORDER.reversed();
+  }
+
+  /**
+   * Checks if a measure is selected by the filter and, when there is one, past the cursor of a
+   * page, the way the measure documents are queried: the cursor replaces the bound of the range
+   * on its side of the order.
+   *
+   * @param measure the measure
+   * @param after the cursor of the previous page, null for the first page
+   * @return true, if selected
+   */
+  public boolean matches(Measure measure, MeasureCursor after) {
+    if (isleId != null && !isleId.equals(measure.getIsleId())) {
+      return false;
+    }
+    boolean ascending = direction.isAscending();
+    LocalDateTime timestamp = measure.getTimestamp();
+    if (from != null && (after == null || !ascending) && timestamp.isBefore(from)) {
+      return false;
+    }
+    if (to != null && (after == null || ascending) && !timestamp.isBefore(to)) {
+      return false;
+    }
+    if (after == null) {
+      return true;
+    }
+    int compare = timestamp.compareTo(after.getTimestamp());
+    if (compare == 0) {
+      compare = measure.getId().compareTo(after.getId());
+    }
+    return ascending ? compare > 0 : compare < 0;
+  }
+}
@@ -1,20 +1,36 @@
 package com.agrotechfields.measureshelter.repository;
 
 import com.agrotechfields.measureshelter.domain.Measure;
-import java.util.List;
+import java.util.Optional;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 /**
- * The Interface MeasureRepository.
+ * The Interface MeasureRepository. The reads of the measures are implemented in
+ * {@link MeasureRepositoryImpl}, decoded by the measure codec. Its CRUD operations take
+ * precedence over the inherited ones, so they are served by the bucket storage when it is
+ * enabled. The implementation is only matched to an inherited operation whose single parameter
+ * is a type variable, the id or the measure, once it is declared again here with the types of the
+ * measure.
  */
-public interface MeasureRepository extends MongoRepository<Measure, ObjectId> {
-
-  /**
-   * Find by isle.
-   *
-   * @param isleId the isle object id
-   * @return the list
-   */
-  public List<Measure> findByIsleId(ObjectId isleId);
+public interface MeasureRepository
+    extends MongoRepository<Measure, ObjectId>, MeasureRepositoryCustom {
+
+  @Override
+  public <S extends Measure> S insert(S measure);
+
+  @Override
+  public <S extends Measure> S save(S measure);
+
+  @Override
+  public Optional<Measure> findById(ObjectId id);
+
+  @Override
+  public boolean existsById(ObjectId id);
+
+  @Override
+  public void delete(Measure measure);
+
+  @Override
+  public void deleteById(ObjectId id);
 }
@@ -0,0 +1,123 @@
+package com.agrotechfields.measureshelter.repository;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureRollup;
+import com.agrotechfields.measureshelter.domain.MeasureStats;
+import com.agrotechfields.measureshelter.domain.StatsInterval;
+import java.util.List;
+import java.util.stream.Stream;
+import org.bson.types.ObjectId;
+
+/**
+ * The Interface MeasureRepositoryCustom. Operations on measures that are not covered by the
+ * derived queries of {@link MeasureRepository}.
+ */
+public interface MeasureRepositoryCustom {
+
+  /**
+   * Insert the measures with an unordered bulk write. Measures whose id already exists are
+   * ignored, so a partially applied bulk can be safely retried.
+   *
+   * @param measures the measures with their ids already assigned
+   * @return the number of inserted measures
+   */
+  public int insertUnordered(List<Measure> measures);
+
+  /**
+   * Insert the measures not stored yet, for the retries of a write that may have partly
+   * succeeded.
+   *
+   * @param measures the measures with their ids already assigned
+   * @return the number of inserted measures
+   */
+  public int insertMissing(List<Measure> measures);
+
+  /**
+   * Delete measures by id with a single query.
+   *
+   * @param ids the measure ids
+   * @return the number of deleted measures
+   */
+  public long deleteMeasures(List<ObjectId> ids);
+
+  /**
+   * Find by isle.
+   *
+   * @param isleId the isle object id
+   * @return the list
+   */
+  public List<Measure> findByIsleId(ObjectId isleId);
+
+  /**
+   * Find the measures of a filter, in {@code (timestamp, _id)} order.
+   *
+   * @param filter the filter
+   * @param limit the maximum number of measures, zero for no limit
+   * @return the measures
+   */
+  public List<Measure> find(MeasureFilter filter, int limit);
+
+  /**
+   * Find a keyset page of the measures of a filter in {@code (timestamp, _id)} order, seeking
+   * past the cursor instead of skipping the previous pages.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @param limit the maximum number of measures
+   * @return the measures
+   */
+  public List<Measure> findPage(MeasureFilter filter, MeasureCursor after, int limit);
+
+  /**
+   * Stream the measures of a filter in {@code (timestamp, _id)} order from a cursor, fetching
+   * them in batches as the stream is consumed. The stream must be closed to release the cursor.
+   *
+   * @param filter the filter
+   * @return the stream of measures
+   */
+  public Stream<Measure> stream(MeasureFilter filter);
+
+  /**
+   * Find the distinct isle ids of the measures of a filter.
+   *
+   * @param filter the filter
+   * @return the isle ids
+   */
+  public List<ObjectId> findIsleIds(MeasureFilter filter);
+
+  /**
+   * Aggregate the count, min, max and average of each field of the measures of a filter by time
+   * bucket, with a {@code $group} pipeline.
+   *
+   * @param filter the filter
+   * @param interval the bucket interval
+   * @return the statistics of each bucket with measures, in timestamp order
+   */
+  public List<MeasureStats> aggregateStats(MeasureFilter filter, StatsInterval interval);
+
+  /**
+   * Aggregate the count, sum, min and max of each field of the measures of a filter by isle and
+   * time bucket. The stream must be closed to release the cursor.
+   *
+   * @param filter the filter
+   * @param unit the $dateTrunc unit of the buckets: minute, hour or day
+   * @param binSize the number of units of a bucket
+   * @return the stream of rollups, without ids, in timestamp order
+   */
+  public Stream<MeasureRollup> aggregateRollups(MeasureFilter filter, String unit, int binSize);
+
+  /**
+   * Find the latest measure of each isle with a single aggregation.
+   *
+   * @return the latest measure of each isle with measures
+   */
+  public List<Measure> findLatestOfEachIsle();
+
+  /**
+   * Find the latest measure of an isle.
+   *
+   * @param isleId the isle object id
+   * @return the latest measure, null if the isle has no measures
+   */
+  public Measure findLatestOfIsle(ObjectId isleId);
+}
@@ -0,0 +1,842 @@
+package com.agrotechfields.measureshelter.repository;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.agrotechfields.measureshelter.domain.MeasureRollup;
+import com.agrotechfields.measureshelter.domain.MeasureStats;
+import com.agrotechfields.measureshelter.domain.StatsInterval;
+import com.agrotechfields.measureshelter.storage.FixedPointConverter;
+import com.agrotechfields.measureshelter.storage.MeasureBucketStore;
+import com.agrotechfields.measureshelter.storage.MeasureCollection;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import jakarta.annotation.PostConstruct;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.mongodb.repository.support.SimpleMongoRepository;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+import org.springframework.data.util.Streamable;
+
+/**
+ * The Class MeasureRepositoryImpl. Implementation of {@link MeasureRepositoryCustom}, on the
+ * measure documents or, when it is enabled, on the {@link MeasureBucketStore}. The measure
+ * documents are written and read with the measure codec of the client, not the mapping
+ * converter. As the custom implementation of {@link MeasureRepository}, its CRUD operations
+ * take precedence over the ones inherited from {@code MongoRepository}, so they are also served
+ * by the bucket storage.
+ */
+public class MeasureRepositoryImpl implements MeasureRepositoryCustom {
+
+  /** The duplicate key error code. */
+  private static final int DUPLICATE_KEY = 11000;
+
+  /** The number of measures fetched by each round trip of a stream cursor. */
+  private static final int STREAM_BATCH_SIZE = 1000;
+
+  /** The suffix of the value count of a field in the statistics aggregation. */
+  private static final String COUNT = "_count";
+
+  /** The suffix of the min of a field in the statistics aggregation. */
+  private static final String MIN = "_min";
+
+  /** The suffix of the max of a field in the statistics aggregation. */
+  private static final String MAX = "_max";
+
+  /** The suffix of the sum of a field in the statistics aggregation. */
+  private static final String SUM = "_sum";
+
+  /** The suffix of the sum of the sines of an angle in the statistics aggregation. */
+  private static final String SIN = "_sin";
+
+  /** The suffix of the sum of the cosines of an angle in the statistics aggregation. */
+  private static final String COS = "_cos";
+
+  /** The mongo template. */
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /** The bucket store. */
+  @Autowired
+  private MeasureBucketStore bucketStore;
+
+  /** The measure collection. */
+  @Autowired
+  private MeasureCollection measureCollection;
+
+  /** The query mapper. */
+  private QueryMapper queryMapper;
+
+  /** The measure entity. */
+  private MongoPersistentEntity<?> entity;
+
+  /** The repository on the mapping converter, for the pages and the queries by example. */
+  private SimpleMongoRepository<Measure, ObjectId> repository;
+
+  /**
+   * Init the query mapper of the reads decoded by the measure codec.
+   */
+  @PostConstruct
+  public void init() {
+    queryMapper = new QueryMapper(mongoTemplate.getConverter());
+    entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(
+        Measure.class);
+    MongoEntityInformation<Measure, ObjectId> information =
+        new MongoRepositoryFactory(mongoTemplate).getEntityInformation(Measure.class);
+    repository = new SimpleMongoRepository<>(information, mongoTemplate);
+  }
+
+  /**
+   * Insert a measure.
+   *
+   * @param <S> the measure type
+   * @param measure the measure
+   * @return the inserted measure
+   */
+  public <S extends Measure> S insert(S measure) {
+    if (!bucketStore.isEnabled()) {
+      try {
+        collection().insertOne(measure);
+      } catch (MongoException e) {
+        throw translate(e);
+      }
+      return measure;
+    }
+    if (bucketStore.insert(List.of(measure)) == 0) {
+      throw new DuplicateKeyException("The measure " + measure.getId() + " already exists");
+    }
+    return measure;
+  }
+
+  /**
+   * Insert measures.
+   *
+   * @param <S> the measure type
+   * @param measures the measures
+   * @return the inserted measures
+   */
+  public <S extends Measure> List<S> insert(Iterable<S> measures) {
+    List<S> list = Streamable.of(measures).toList();
+    if (!bucketStore.isEnabled()) {
+      if (!list.isEmpty()) {
+        try {
+          collection().insertMany(list);
+        } catch (MongoException e) {
+          throw translate(e);
+        }
+      }
+      return list;
+    }
+    if (bucketStore.insert(new ArrayList<>(list)) < list.size()) {
+      throw new DuplicateKeyException("Some of the measures already exist");
+    }
+    return list;
+  }
+
+  /**
+   * Save a measure, inserting it when it has no id.
+   *
+   * @param <S> the measure type
+   * @param measure the measure
+   * @return the saved measure
+   */
+  public <S extends Measure> S save(S measure) {
+    if (bucketStore.isEnabled()) {
+      bucketStore.save(measure);
+      return measure;
+    }
+    if (measure.getId() == null) {
+      return insert(measure);
+    }
+    try {
+      collection().replaceOne(Filters.eq("_id", measure.getId()), measure,
+          new ReplaceOptions().upsert(true));
+    } catch (MongoException e) {
+      throw translate(e);
+    }
+    return measure;
+  }
+
+  /**
+   * Find a measure by id.
+   *
+   * @param id the id
+   * @return the measure
+   */
+  public Optional<Measure> findById(ObjectId id) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.findById(id);
+    }
+    return Optional.ofNullable(findDecoded(new Query(Criteria.where("_id").is(id))).first());
+  }
+
+  /**
+   * Find all measures.
+   *
+   * @return the measures
+   */
+  public List<Measure> findAll() {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.find(new MeasureFilter(null, null, null, Direction.ASC), null, 0);
+    }
+    return findDecoded(new Query()).into(new ArrayList<>());
+  }
+
+  /**
+   * Find all measures sorted.
+   *
+   * @param sort the sort
+   * @return the measures
+   */
+  public List<Measure> findAll(Sort sort) {
+    if (bucketStore.isEnabled()) {
+      return queryBuckets().sortBy(sort).all();
+    }
+    return findDecoded(new Query().with(sort)).into(new ArrayList<>());
+  }
+
+  /**
+   * Find a page of all measures.
+   *
+   * @param pageable the page
+   * @return the page of measures
+   */
+  public Page<Measure> findAll(Pageable pageable) {
+    if (bucketStore.isEnabled()) {
+      return queryBuckets().page(pageable);
+    }
+    return repository.findAll(pageable);
+  }
+
+  /**
+   * Find measures by example.
+   *
+   * @param <S> the measure type
+   * @param example the example
+   * @return the measures
+   */
+  public <S extends Measure> List<S> findAll(Example<S> example) {
+    if (bucketStore.isEnabled()) {
+      return queryBuckets(example).all();
+    }
+    return repository.findAll(example);
+  }
+
+  /**
+   * Find measures by example, sorted.
+   *
+   * @param <S> the measure type
+   * @param example the example
+   * @param sort the sort
+   * @return the measures
+   */
+  public <S extends Measure> List<S> findAll(Example<S> example, Sort sort) {
+    if (bucketStore.isEnabled()) {
+      return queryBuckets(example).sortBy(sort).all();
+    }
+    return repository.findAll(example, sort);
+  }
+
+  /**
+   * Find a page of measures by example.
+   *
+   * @param <S> the measure type
+   * @param example the example
+   * @param pageable the page
+   * @return the page of measures
+   */
+  public <S extends Measure> Page<S> findAll(Example<S> example, Pageable pageable) {
+    if (bucketStore.isEnabled()) {
+      return queryBuckets(example).page(pageable);
+    }
+    return repository.findAll(example, pageable);
+  }
+
+  /**
+   * Delete a measure.
+   *
+   * @param measure the measure
+   */
+  public void delete(Measure measure) {
+    if (bucketStore.isEnabled()) {
+      bucketStore.delete(List.of(measure.getId()));
+    } else {
+      mongoTemplate.remove(measure);
+    }
+  }
+
+  /**
+   * Save measures, one at a time.
+   *
+   * @param <S> the measure type
+   * @param measures the measures
+   * @return the saved measures
+   */
+  public <S extends Measure> List<S> saveAll(Iterable<S> measures) {
+    return Streamable.of(measures).map(this::save).toList();
+  }
+
+  /**
+   * Find measures by id.
+   *
+   * @param ids the ids
+   * @return the measures found
+   */
+  public List<Measure> findAllById(Iterable<ObjectId> ids) {
+    Set<ObjectId> set = new HashSet<>(Streamable.of(ids).toList());
+    if (bucketStore.isEnabled()) {
+      return bucketStore.findAllById(set);
+    }
+    return findDecoded(new Query(Criteria.where("_id").in(set))).into(new ArrayList<>());
+  }
+
+  /**
+   * Count the measures.
+   *
+   * @return the number of measures
+   */
+  public long count() {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.count();
+    }
+    return collection().countDocuments();
+  }
+
+  /**
+   * Count measures by example.
+   *
+   * @param <S> the measure type
+   * @param example the example
+   * @return the number of measures
+   */
+  public <S extends Measure> long count(Example<S> example) {
+    if (bucketStore.isEnabled()) {
+      return queryBuckets(example).count();
+    }
+    return repository.count(example);
+  }
+
+  /**
+   * Checks if a measure exists.
+   *
+   * @param id the id
+   * @return true, if it exists
+   */
+  public boolean existsById(ObjectId id) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.findById(id).isPresent();
+    }
+    return mongoTemplate.exists(new Query(Criteria.where("_id").is(id)), Measure.class);
+  }
+
+  /**
+   * Delete a measure by id.
+   *
+   * @param id the id
+   */
+  public void deleteById(ObjectId id) {
+    deleteMeasures(List.of(id));
+  }
+
+  /**
+   * Delete measures by id.
+   *
+   * @param ids the ids
+   */
+  public void deleteAllById(Iterable<? extends ObjectId> ids) {
+    List<ObjectId> list = new ArrayList<>();
+    ids.forEach(list::add);
+    deleteMeasures(list);
+  }
+
+  /**
+   * Delete measures.
+   *
+   * @param measures the measures
+   */
+  public void deleteAll(Iterable<? extends Measure> measures) {
+    List<ObjectId> ids = new ArrayList<>();
+    measures.forEach(measure -> ids.add(measure.getId()));
+    deleteMeasures(ids);
+  }
+
+  /**
+   * Delete all the measures.
+   */
+  public void deleteAll() {
+    if (bucketStore.isEnabled()) {
+      bucketStore.deleteAll();
+    } else {
+      collection().deleteMany(new Document());
+    }
+  }
+
+  /**
+   * Find a measure by example.
+   *
+   * @param <S> the measure type
+   * @param example the example
+   * @return the measure
+   */
+  public <S extends Measure> Optional<S> findOne(Example<S> example) {
+    if (bucketStore.isEnabled()) {
+      return Optional.ofNullable(queryBuckets(example).firstValue());
+    }
+    return repository.findOne(example);
+  }
+
+  /**
+   * Checks if a measure exists by example.
+   *
+   * @param <S> the measure type
+   * @param example the example
+   * @return true, if it exists
+   */
+  public <S extends Measure> boolean exists(Example<S> example) {
+    if (bucketStore.isEnabled()) {
+      return queryBuckets(example).exists();
+    }
+    return repository.exists(example);
+  }
+
+  /**
+   * Run a fluent query by example.
+   *
+   * @param <S> the measure type
+   * @param <R> the result type
+   * @param example the example
+   * @param queryFunction the query function
+   * @return the result
+   */
+  public <S extends Measure, R> R findBy(Example<S> example,
+      Function<FetchableFluentQuery<S>, R> queryFunction) {
+    if (bucketStore.isEnabled()) {
+      return queryFunction.apply(queryBuckets(example));
+    }
+    return repository.findBy(example, queryFunction);
+  }
+
+  /**
+   * Insert the measures with an unordered bulk write.
+   *
+   * @param measures the measures with their ids already assigned
+   * @return the number of inserted measures
+   */
+  @Override
+  public int insertUnordered(List<Measure> measures) {
+    if (measures.isEmpty()) {
+      return 0;
+    }
+    if (bucketStore.isEnabled()) {
+      return bucketStore.insert(measures);
+    }
+    try {
+      return collection().insertMany(measures, new InsertManyOptions().ordered(false))
+          .getInsertedIds().size();
+    } catch (MongoBulkWriteException e) {
+      if (!e.getWriteErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY)) {
+        throw e;
+      }
+      return e.getWriteResult().getInsertedCount();
+    }
+  }
+
+  /**
+   * Insert the measures not stored yet. A time-series collection has no unique index on the
+   * {@code _id}, so the measures already stored are looked up first, within the isles and the
+   * time range of the measures for the bucket pruning; elsewhere the duplicates are rejected by
+   * the {@code _id} index and skipped.
+   *
+   * @param measures the measures with their ids already assigned
+   * @return the number of inserted measures
+   */
+  @Override
+  public int insertMissing(List<Measure> measures) {
+    if (measures.isEmpty() || bucketStore.isEnabled() || !measureCollection.isTimeSeries()) {
+      return insertUnordered(measures);
+    }
+    Comparator<Measure> byTimestamp = Comparator.comparing(Measure::getTimestamp);
+    Query query = new Query(Criteria.where("isleId")
+        .in(measures.stream().map(Measure::getIsleId).distinct().toList())
+        .and("timestamp")
+        .gte(measures.stream().min(byTimestamp).orElseThrow().getTimestamp())
+        .lte(measures.stream().max(byTimestamp).orElseThrow().getTimestamp())
+        .and("_id").in(measures.stream().map(Measure::getId).toList()));
+    query.fields().include("_id");
+    Set<ObjectId> stored = new HashSet<>();
+    mongoTemplate.getCollection(measureCollection.getName())
+        .find(queryMapper.getMappedObject(query.getQueryObject(), entity))
+        .projection(query.getFieldsObject())
+        .forEach(document -> stored.add(document.getObjectId("_id")));
+    return insertUnordered(measures.stream()
+        .filter(measure -> !stored.contains(measure.getId()))
+        .toList());
+  }
+
+  /**
+   * Delete measures by id.
+   *
+   * @param ids the measure ids
+   * @return the number of deleted measures
+   */
+  @Override
+  public long deleteMeasures(List<ObjectId> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    if (bucketStore.isEnabled()) {
+      return bucketStore.delete(ids);
+    }
+    return mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), Measure.class)
+        .getDeletedCount();
+  }
+
+  /**
+   * Find by isle.
+   *
+   * @param isleId the isle object id
+   * @return the list
+   */
+  @Override
+  public List<Measure> findByIsleId(ObjectId isleId) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.find(new MeasureFilter(isleId, null, null, Direction.ASC), null, 0);
+    }
+    Query query = new Query(Criteria.where("isleId").is(isleId));
+    return findDecoded(query).into(new ArrayList<>());
+  }
+
+  /**
+   * Find the measures of a filter.
+   *
+   * @param filter the filter
+   * @param limit the maximum number of measures, zero for no limit
+   * @return the measures
+   */
+  @Override
+  public List<Measure> find(MeasureFilter filter, int limit) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.find(filter, null, limit);
+    }
+    Query query = query(filter, null).limit(limit);
+    return findDecoded(query).into(new ArrayList<>());
+  }
+
+  /**
+   * Find a keyset page of measures.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @param limit the maximum number of measures
+   * @return the measures
+   */
+  @Override
+  public List<Measure> findPage(MeasureFilter filter, MeasureCursor after, int limit) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.find(filter, after, limit);
+    }
+    Query query = query(filter, after).limit(limit);
+    return findDecoded(query).into(new ArrayList<>());
+  }
+
+  /**
+   * Stream the measures of a filter from a cursor.
+   *
+   * @param filter the filter
+   * @return the stream of measures
+   */
+  @Override
+  public Stream<Measure> stream(MeasureFilter filter) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.stream(filter, null);
+    }
+    MongoCursor<Measure> cursor =
+        findDecoded(query(filter, null)).batchSize(STREAM_BATCH_SIZE).cursor();
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED),
+        false).onClose(cursor::close);
+  }
+
+  /**
+   * Find the distinct isle ids of the measures of a filter.
+   *
+   * @param filter the filter
+   * @return the isle ids
+   */
+  @Override
+  public List<ObjectId> findIsleIds(MeasureFilter filter) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.findIsleIds(filter);
+    }
+    return mongoTemplate.findDistinct(new Query(criteria(filter, null)), "isleId", Measure.class,
+        ObjectId.class);
+  }
+
+  /**
+   * The measure collection, decoding and encoding the measures with the measure codec of the
+   * client instead of the mapping converter.
+   *
+   * @return the collection
+   */
+  private MongoCollection<Measure> collection() {
+    return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Measure.class))
+        .withDocumentClass(Measure.class);
+  }
+
+  /**
+   * Query all the measures of the bucket storage in memory.
+   *
+   * @return the query
+   */
+  private MeasureBucketQuery<Measure> queryBuckets() {
+    return MeasureBucketQuery.of(this::streamBuckets);
+  }
+
+  /**
+   * Query the measures of the bucket storage matched by an example in memory.
+   *
+   * @param <S> the measure type
+   * @param example the example
+   * @return the query
+   */
+  private <S extends Measure> MeasureBucketQuery<S> queryBuckets(Example<S> example) {
+    return MeasureBucketQuery.of(this::streamBuckets, example);
+  }
+
+  /**
+   * Stream all the measures of the bucket storage, in {@code (timestamp, _id)} order.
+   *
+   * @return the measures
+   */
+  private Stream<Measure> streamBuckets() {
+    return bucketStore.stream(new MeasureFilter(null, null, null, Direction.ASC), null);
+  }
+
+  /**
+   * Translate an exception of a write with the measure codec as the template translates it, so a
+   * duplicate id is still a {@link DuplicateKeyException}.
+   *
+   * @param e the exception
+   * @return the translated exception, or the exception itself
+   */
+  private RuntimeException translate(MongoException e) {
+    DataAccessException translated = mongoTemplate.getExceptionTranslator()
+        .translateExceptionIfPossible(e);
+    return translated == null ? e : translated;
+  }
+
+  /**
+   * Find the measures of a query with the measure codec. The criteria and the sort are mapped as
+   * the template maps them.
+   *
+   * @param query the query
+   * @return the find iterable
+   */
+  private FindIterable<Measure> findDecoded(Query query) {
+    FindIterable<Measure> iterable = collection()
+        .find(queryMapper.getMappedObject(query.getQueryObject(), entity))
+        .sort(queryMapper.getMappedSort(query.getSortObject(), entity));
+    return query.getLimit() > 0 ? iterable.limit(query.getLimit()) : iterable;
+  }
+
+  /**
+   * Query of a filter in {@code (timestamp, _id)} order. The cursor of a page narrows the
+   * timestamp range from its side of the order, so the seek stays on the index, and the
+   * {@code _id} only breaks the ties of the cursor timestamp.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @return the query
+   */
+  private Query query(MeasureFilter filter, MeasureCursor after) {
+    Criteria criteria = criteria(filter, after);
+    return new Query(criteria).with(Sort.by(filter.getDirection(), "timestamp", "_id"));
+  }
+
+  /**
+   * Criteria of a filter and of the cursor of a page.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @return the criteria
+   */
+  private Criteria criteria(MeasureFilter filter, MeasureCursor after) {
+    boolean ascending = filter.getDirection().isAscending();
+    Criteria criteria = new Criteria();
+    if (filter.getIsleId() != null) {
+      criteria.and("isleId").is(filter.getIsleId());
+    }
+
+    if (filter.getFrom() != null || filter.getTo() != null || after != null) {
+      Criteria timestamp = criteria.and("timestamp");
+      if (after != null && ascending) {
+        timestamp.gte(after.getTimestamp());
+      } else if (filter.getFrom() != null) {
+        timestamp.gte(filter.getFrom());
+      }
+      if (after != null && !ascending) {
+        timestamp.lte(after.getTimestamp());
+      } else if (filter.getTo() != null) {
+        timestamp.lt(filter.getTo());
+      }
+    }
+
+    if (after != null) {
+      criteria.orOperator(ascending
+          ? Criteria.where("timestamp").gt(after.getTimestamp())
+          : Criteria.where("timestamp").lt(after.getTimestamp()),
+          ascending
+          ? Criteria.where("_id").gt(after.getId())
+          : Criteria.where("_id").lt(after.getId()));
+    }
+    return criteria;
+  }
+
+  /**
+   * Find the latest measure of each isle. Sorted backwards on the
+   * {@code (isleId, timestamp, _id)} index, the first measure of each isle group is its latest.
+   *
+   * @return the latest measure of each isle with measures
+   */
+  @Override
+  public List<Measure> findLatestOfEachIsle() {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.findLatestOfEachIsle();
+    }
+    Aggregation aggregation = Aggregation.newAggregation(
+        Aggregation.sort(Sort.by(Direction.DESC, "isleId", "timestamp", "_id")),
+        context -> new Document("$group",
+            new Document("_id", "$isleId").append("latest", new Document("$first", "$$ROOT"))),
+        context -> new Document("$replaceRoot", new Document("newRoot", "$latest")))
+        .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    return mongoTemplate.aggregate(aggregation, Measure.class, Measure.class).getMappedResults();
+  }
+
+  /**
+   * Find the latest measure of an isle.
+   *
+   * @param isleId the isle object id
+   * @return the latest measure, null if the isle has no measures
+   */
+  @Override
+  public Measure findLatestOfIsle(ObjectId isleId) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.findLatestOfIsle(isleId);
+    }
+    Query query = new Query(Criteria.where("isleId").is(isleId))
+        .with(Sort.by(Direction.DESC, "timestamp", "_id"))
+        .limit(1);
+    return findDecoded(query).first();
+  }
+
+  /**
+   * Aggregate the statistics of the measures of a filter by time bucket, from the rollups of the
+   * buckets.
+   *
+   * @param filter the filter
+   * @param interval the bucket interval
+   * @return the statistics of each bucket with measures, in timestamp order
+   */
+  @Override
+  public List<MeasureStats> aggregateStats(MeasureFilter filter, StatsInterval interval) {
+    try (Stream<MeasureRollup> rollups =
+        aggregateRollups(filter, interval.getUnit(), interval.getBinSize())) {
+      return rollups.map(MeasureRollup::toMeasureStats).toList();
+    }
+  }
+
+  /**
+   * Aggregate the rollups of the measures of a filter by isle and time bucket, with a
+   * {@code $group} pipeline over the stored values converted to doubles, see
+   * {@link FixedPointConverter#toDouble(MeasureField)}. The buckets
+   * are truncated in the zone of the application, the one of the stored timestamps, and the
+   * angles are summed as sines and cosines for their circular mean.
+   *
+   * @param filter the filter
+   * @param unit the $dateTrunc unit of the buckets
+   * @param binSize the number of units of a bucket
+   * @return the stream of rollups, without ids, in timestamp order
+   */
+  @Override
+  public Stream<MeasureRollup> aggregateRollups(MeasureFilter filter, String unit, int binSize) {
+    if (bucketStore.isEnabled()) {
+      return bucketStore.aggregateRollups(filter, unit, binSize);
+    }
+    Document bucket = new Document("date", "$timestamp")
+        .append("unit", unit)
+        .append("binSize", binSize)
+        .append("timezone", ZoneId.systemDefault().getId());
+    Document key = new Document("isleId", "$isleId")
+        .append("timestamp", new Document("$dateTrunc", bucket));
+    Document group = new Document("_id", key)
+        .append("count", new Document("$sum", 1));
+    Document fields = new Document();
+    for (MeasureField field : MeasureField.values()) {
+      String name = field.getName();
+      Document value = FixedPointConverter.toDouble(field);
+      Document isNull = new Document("$eq", Arrays.asList(value, null));
+      group.append(name + COUNT, new Document("$sum", new Document("$cond", List.of(isNull, 0, 1))))
+          .append(name + SUM, new Document("$sum", value))
+          .append(name + MIN, new Document("$min", value))
+          .append(name + MAX, new Document("$max", value));
+      Document rollupField = new Document("count", "$" + name + COUNT)
+          .append("sum", "$" + name + SUM)
+          .append("min", "$" + name + MIN)
+          .append("max", "$" + name + MAX);
+      if (field.isCircular()) {
+        Document radians = new Document("$degreesToRadians", value);
+        group.append(name + SIN, new Document("$sum", new Document("$sin", radians)))
+            .append(name + COS, new Document("$sum", new Document("$cos", radians)));
+        rollupField.append("sin", "$" + name + SIN).append("cos", "$" + name + COS);
+      }
+      fields.append(name, rollupField);
+    }
+    Document project = new Document("_id", 0)
+        .append("isleId", "$_id.isleId")
+        .append("timestamp", "$_id.timestamp")
+        .append("count", 1)
+        .append("fields", fields);
+
+    Aggregation aggregation = Aggregation.newAggregation(
+        Aggregation.match(criteria(filter, null)),
+        context -> new Document("$group", group),
+        context -> new Document("$sort", new Document("_id.timestamp", 1).append("_id.isleId", 1)),
+        context -> new Document("$project", project))
+        .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    return mongoTemplate.aggregateStream(aggregation, Measure.class, MeasureRollup.class);
+  }
+}
@@ -7,6 +7,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,7 +16,8 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
 /**
- * The Class JwtSecurityFilter.
+ * The Class JwtSecurityFilter. A token of a user disabled after its login is rejected on the
+ * next request.
  */
 @Component
 public class JwtSecurityFilter extends OncePerRequestFilter {
@@ -28,6 +30,10 @@ public class JwtSecurityFilter extends OncePerRequestFilter {
   @Autowired
   private UserService userService;
 
+  /** The principal cache. */
+  @Autowired
+  private PrincipalCache principalCache;
+
   /** The handler exception resolver. */
   @Autowired
   private HandlerExceptionResolver handlerExceptionResolver;
@@ -50,7 +56,10 @@ public class JwtSecurityFilter extends OncePerRequestFilter {
 
       if (token != null) {
         String username = tokenService.decodeToken(token);
-        UserDetails user = userService.loadUserByUsername(username);
+        UserDetails user = principalCache.get(username, userService::loadUserByUsername);
+        if (!user.isEnabled()) {
+          throw new DisabledException("User is disabled");
+        }
         UsernamePasswordAuthenticationToken auth =
             new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
         SecurityContextHolder.getContext().setAuthentication(auth);
@@ -0,0 +1,97 @@
+package com.agrotechfields.measureshelter.security;
+
+import com.agrotechfields.measureshelter.domain.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class PrincipalCache. Short-lived, size-bounded cache of the authenticated principals keyed
+ * by the JWT subject, so the security filter does not query the users collection on every
+ * request.
+ *
+ * <p>Any save or delete of a user (toggleIsEnable, toggleRoleById, updateContextUser,
+ * updateIsleUser, deleteUserById, the isle user renames...) clears the cache as soon as it is
+ * written, so changes such as disabling a user take effect on the next request. Users change
+ * rarely, and a delete event only carries the id, so the whole cache is cleared.
+ */
+@Component
+public class PrincipalCache extends AbstractMongoEventListener<User> {
+
+  /** The meter registry. */
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  /** The maximum number of principals. */
+  @Value("${cache.principal.max-size:10000}")
+  private long maxSize;
+
+  /** The time to live of a principal. */
+  @Value("${cache.principal.ttl-seconds:30}")
+  private long ttlSeconds;
+
+  /** The principals by username. */
+  private Cache<String, UserDetails> principals;
+
+  /**
+   * Builds the cache and binds its metrics.
+   */
+  @PostConstruct
+  public void init() {
+    principals = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, principals, "principals");
+  }
+
+  /**
+   * Gets the principal of an username, loading it on a miss.
+   *
+   * @param username the username (JWT subject)
+   * @param loader the loader, which may throw to signal an unknown username
+   * @return the user details
+   */
+  public UserDetails get(String username, Function<String, UserDetails> loader) {
+    return principals.get(username, loader);
+  }
+
+  /**
+   * Invalidate all principals.
+   */
+  public void invalidateAll() {
+    principals.invalidateAll();
+  }
+
+  /**
+   * On after save of an user.
+   *
+   * @param event the event
+   */
+  @Override
+  public void onAfterSave(AfterSaveEvent<User> event) {
+    invalidateAll();
+  }
+
+  /**
+   * On after delete of an user.
+   *
+   * @param event the event
+   */
+  @Override
+  public void onAfterDelete(AfterDeleteEvent<User> event) {
+    invalidateAll();
+  }
+}
@@ -2,6 +2,7 @@ package com.agrotechfields.measureshelter.security;
 
 import com.agrotechfields.measureshelter.domain.Role;
 import com.agrotechfields.measureshelter.service.UserService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -91,6 +92,11 @@ public class SecurityConfiguration {
           req.requestMatchers(HttpMethod.GET, HEALTH).permitAll();
           req.requestMatchers(HttpMethod.POST, login).permitAll();
 
+          // Async dispatches of the streamed responses (/measure/streaming, /measure/export,
+          // /measure/stream), already authorized on their request, which have no security
+          // context as the sessions are stateless:
+          req.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
+
           // Security authority for ACTUATOR endpoints:
           req.requestMatchers(ACTUATOR).hasAuthority(ROLE_ADMIN);
 
@@ -2,12 +2,22 @@ package com.agrotechfields.measureshelter.security;
 
 import com.agrotechfields.measureshelter.domain.User;
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTDecodeException;
 import com.auth0.jwt.exceptions.SignatureVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.Base64;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -24,9 +34,37 @@ public class TokenService {
   @Value("${security.token.validity.hours:24}")
   private String validity;
 
+  /** The maximum number of verified tokens kept, zero disables the cache. */
+  @Value("${security.token.cache.max-size:10000}")
+  private long cacheMaxSize;
+
   /** The issuer. */
   private static final String ISSUER = "Agro_Techfields";
 
+  /** The algorithm. */
+  private Algorithm algorithm;
+
+  /** The verifier. */
+  private JWTVerifier verifier;
+
+  /** The verified tokens by digest, each one evicted at the token expiration. */
+  private Cache<String, VerifiedToken> verifiedTokens;
+
+  /**
+   * Builds the algorithm, the verifier and the verified token cache once.
+   */
+  @PostConstruct
+  public void init() {
+    algorithm = Algorithm.HMAC256(secret);
+    verifier = JWT.require(algorithm).withIssuer(ISSUER).build();
+    if (cacheMaxSize > 0) {
+      verifiedTokens = Caffeine.newBuilder()
+          .maximumSize(cacheMaxSize)
+          .expireAfter(new VerifiedTokenExpiry())
+          .build();
+    }
+  }
+
   /**
    * Encode token.
    *
@@ -35,7 +73,6 @@ public class TokenService {
    * @throws JWTCreationException the JWT creation exception
    */
   public String encodeToken(User user) throws JWTCreationException {
-    Algorithm algorithm = Algorithm.HMAC256(secret);
     return JWT
         .create()
         .withIssuer(ISSUER)
@@ -46,7 +83,8 @@ public class TokenService {
   }
 
   /**
-   * Decode token.
+   * Decode token. A token already verified is found by its digest and skips the signature check
+   * until it expires.
    *
    * @param token the token
    * @return the string
@@ -56,13 +94,38 @@ public class TokenService {
    */
   public String decodeToken(String token)
       throws JWTDecodeException, TokenExpiredException, SignatureVerificationException {
-    Algorithm algorithm = Algorithm.HMAC256(secret);
-    return JWT
-        .require(algorithm)
-        .withIssuer(ISSUER)
-        .build()
-        .verify(token)
-        .getSubject();
+    if (verifiedTokens == null) {
+      return verifier.verify(token).getSubject();
+    }
+
+    String digest = digest(token);
+    VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+    if (verifiedToken != null) {
+      return verifiedToken.subject();
+    }
+
+    DecodedJWT decodedJwt = verifier.verify(token);
+    if (decodedJwt.getExpiresAtAsInstant() != null) {
+      verifiedTokens.put(digest,
+          new VerifiedToken(decodedJwt.getSubject(), decodedJwt.getExpiresAtAsInstant()));
+    }
+    return decodedJwt.getSubject();
+  }
+
+  /**
+   * Digest of a token, used as the cache key so raw tokens are not kept in memory.
+   *
+   * @param token the token
+   * @return the base64 SHA-256 digest
+   */
+  private String digest(String token) {
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
   }
 
   /**
@@ -82,4 +145,62 @@ public class TokenService {
   private Instant defineIssuedAt() {
     return Instant.now();
   }
+
+  /**
+   * The Record VerifiedToken.
+   *
+   * @param subject the subject
+   * @param expiresAt the expiration
+   */
+  private record VerifiedToken(String subject, Instant expiresAt) {}
+
+  /**
+   * The Class VerifiedTokenExpiry. Expires each entry at its token expiration.
+   */
+  private static class VerifiedTokenExpiry implements Expiry<String, VerifiedToken> {
+
+    /**
+     * Expire after create.
+     *
+     * @param key the key
+     * @param value the value
+     * @param currentTime the current time
+     * @return the nanoseconds until the token expiration
+     */
+    @Override
+    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+      long millis = value.expiresAt().toEpochMilli() - System.currentTimeMillis();
+      return Math.max(0, millis) * 1_000_000L;
+    }
+
+    /**
+     * Expire after update.
+     *
+     * @param key the key
+     * @param value the value
+     * @param currentTime the current time
+     * @param currentDuration the current duration
+     * @return the nanoseconds until the token expiration
+     */
+    @Override
+    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+        long currentDuration) {
+      return expireAfterCreate(key, value, currentTime);
+    }
+
+    /**
+     * Expire after read.
+     *
+     * @param key the key
+     * @param value the value
+     * @param currentTime the current time
+     * @param currentDuration the current duration
+     * @return the current duration
+     */
+    @Override
+    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+        long currentDuration) {
+      return currentDuration;
+    }
+  }
 }
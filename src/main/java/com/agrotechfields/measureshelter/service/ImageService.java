@@ -4,19 +4,38 @@ import com.agrotechfields.measureshelter.domain.Image;
 import com.agrotechfields.measureshelter.exception.EntityAlreadyExistsException;
 import com.agrotechfields.measureshelter.exception.EntityNotFoundException;
 import com.agrotechfields.measureshelter.repository.ImageRepository;
+import com.mongodb.client.gridfs.model.GridFSFile;
 import jakarta.servlet.ServletException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
-import org.bson.BsonBinarySubType;
-import org.bson.types.Binary;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
- * The Class ImageService.
+ * The Class ImageService. The image metadata is kept in the image repository and the content in
+ * the GridFS bucket of the images, under the same id, written and read as streams of chunks.
  */
 @Service
 public class ImageService {
@@ -25,8 +44,19 @@ public class ImageService {
   @Autowired
   private ImageRepository imageRepository;
 
+  /** The GridFS operations of the image bucket. */
+  @Autowired
+  private GridFsOperations gridFsOperations;
+
+  /** The maximum size of an image. */
+  @Value("${spring.servlet.multipart.max-file-size:16MB}")
+  private DataSize maxFileSize;
+
+  /** The algorithm of the content hash. */
+  private static final String HASH_ALGORITHM = "SHA-256";
+
   /**
-   * Creates the image.
+   * Creates the image, streaming the uploaded file into GridFS and hashing it on the way.
    *
    * @param file the MultipartFile
    * @return the image
@@ -45,26 +75,86 @@ public class ImageService {
           + " digits, hyphens, underscores and must have a 'png' extension");
     }
 
-    Optional<Image> foundImage = imageRepository.findByName(name);
+    if (file.getSize() > maxFileSize.toBytes()) {
+      throw new MaxUploadSizeExceededException(maxFileSize.toBytes());
+    }
+
+    Optional<Image> foundImage = imageRepository.findMetadataByName(name);
     if (foundImage.isPresent()) {
       throw new EntityAlreadyExistsException("Image with name' " + name + "'");
     }
 
     Image image = new Image();
+    image.setId(new ObjectId());
     image.setName(name);
-    image.setImageData(new Binary(BsonBinarySubType.BINARY, file.getBytes()));
-    return imageRepository.save(image);
+    image.setLength(file.getSize());
+    try (DigestInputStream content = digest(file.getInputStream())) {
+      gridFsOperations.store(GridFsUpload.fromStream(content)
+          .id(image.getId())
+          .filename(name)
+          .contentType(MediaType.IMAGE_PNG_VALUE)
+          .build());
+      image.setHash(hash(content));
+    }
+    try {
+      return imageRepository.insert(image);
+    } catch (DuplicateKeyException e) {
+      gridFsOperations.delete(byId(image.getId()));
+      throw e;
+    }
+  }
+
+  /**
+   * Find the content of an image, streamed from GridFS chunk by chunk as it is read. Each read
+   * of the content opens a new download stream, so a range request may read several parts of it.
+   * The content of an image not yet moved to GridFS is read from its document.
+   *
+   * @param image the image
+   * @return the content
+   * @throws EntityNotFoundException the entity not found exception
+   */
+  public Resource findImageContent(Image image) throws EntityNotFoundException {
+    GridFSFile file = gridFsOperations.findOne(byId(image.getId()));
+    if (file != null) {
+      return new AbstractResource() {
+
+        @Override
+        public String getDescription() {
+          return "GridFS image [" + file.getFilename() + "]";
+        }
+
+        @Override
+        public String getFilename() {
+          return file.getFilename();
+        }
+
+        @Override
+        public long contentLength() {
+          return file.getLength();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+          return gridFsOperations.getResource(file).getInputStream();
+        }
+      };
+    }
+    Optional<Image> legacyImage = imageRepository.findById(image.getId());
+    if (legacyImage.isEmpty() || legacyImage.get().getImageData() == null) {
+      throw new EntityNotFoundException("Image");
+    }
+    return new ByteArrayResource(legacyImage.get().getImageData().getData());
   }
 
   /**
-   * Find image by name.
+   * Find image by name, without reading its content.
    *
    * @param name the name
    * @return the image
    * @throws EntityNotFoundException the entity not found exception
    */
   public Image findImageByName(String name) throws EntityNotFoundException {
-    Optional<Image> foundImage = imageRepository.findByName(name);
+    Optional<Image> foundImage = imageRepository.findMetadataByName(name);
     if (foundImage.isEmpty()) {
       throw new EntityNotFoundException("Image");
     }
@@ -72,14 +162,14 @@ public class ImageService {
   }
 
   /**
-   * Find image by id.
+   * Find image by id, without reading its content.
    *
    * @param id the id
    * @return the image
    * @throws EntityNotFoundException the entity not found exception
    */
   public Image findImageById(ObjectId id) throws EntityNotFoundException {
-    Optional<Image> foundImage = imageRepository.findById(id);
+    Optional<Image> foundImage = imageRepository.findMetadataById(id);
     if (foundImage.isEmpty()) {
       throw new EntityNotFoundException("Image");
     }
@@ -87,12 +177,14 @@ public class ImageService {
   }
 
   /**
-   * Find all images.
+   * Find a page of images, in creation order, without reading their content.
    *
+   * @param page the page number, from zero
+   * @param size the page size
    * @return the list
    */
-  public List<Image> findAllImages() {
-    return imageRepository.findAll();
+  public List<Image> findImages(int page, int size) {
+    return imageRepository.findAllMetadata(PageRequest.of(page, size, Sort.by("id")));
   }
 
   /**
@@ -104,5 +196,40 @@ public class ImageService {
   public void deleteImageById(ObjectId objectId) throws EntityNotFoundException {
     Image image = findImageById(objectId);
     imageRepository.delete(image);
+    gridFsOperations.delete(byId(objectId));
+  }
+
+  /**
+   * Wrap a content stream to compute its hash as it is read.
+   *
+   * @param content the content
+   * @return the digest stream
+   */
+  public static DigestInputStream digest(InputStream content) {
+    try {
+      return new DigestInputStream(content, MessageDigest.getInstance(HASH_ALGORITHM));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Gets the hash of the content read from a digest stream.
+   *
+   * @param content the digest stream, fully read
+   * @return the hash, in hexadecimal
+   */
+  public static String hash(DigestInputStream content) {
+    return HexFormat.of().formatHex(content.getMessageDigest().digest());
+  }
+
+  /**
+   * Query of a GridFS file by id.
+   *
+   * @param id the id
+   * @return the query
+   */
+  private static Query byId(ObjectId id) {
+    return Query.query(Criteria.where("_id").is(id));
   }
 }
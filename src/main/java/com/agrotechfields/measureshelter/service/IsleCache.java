@@ -0,0 +1,105 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Isle;
+import com.agrotechfields.measureshelter.repository.IsleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Optional;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class IsleCache. Bounded in-process cache of isles keyed by serial number and by id, used
+ * on the read-only paths (mainly the measure ingest) so isle lookups skip the database. Entries
+ * are evicted by size and expire after a TTL, which bounds staleness across instances; local
+ * changes invalidate them right away through {@link #invalidate(Isle)}.
+ */
+@Component
+public class IsleCache {
+
+  /** The isle repository. */
+  @Autowired
+  private IsleRepository isleRepository;
+
+  /** The meter registry. */
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  /** The maximum number of isles in each cache. */
+  @Value("${cache.isle.max-size:10000}")
+  private long maxSize;
+
+  /** The time to live of an entry. */
+  @Value("${cache.isle.ttl-seconds:300}")
+  private long ttlSeconds;
+
+  /** The isles by serial number. */
+  private Cache<String, Isle> bySerialNumber;
+
+  /** The isles by id. */
+  private Cache<ObjectId, Isle> byId;
+
+  /**
+   * Builds the caches and binds their metrics.
+   */
+  @PostConstruct
+  public void init() {
+    bySerialNumber = build();
+    byId = build();
+    CaffeineCacheMetrics.monitor(meterRegistry, bySerialNumber, "isles.bySerialNumber");
+    CaffeineCacheMetrics.monitor(meterRegistry, byId, "isles.byId");
+  }
+
+  /**
+   * Find isle by serial number, loading it from the database on a miss.
+   *
+   * @param serialNumber the serial number
+   * @return the optional isle
+   */
+  public Optional<Isle> findBySerialNumber(String serialNumber) {
+    Isle isle = bySerialNumber.get(serialNumber,
+        key -> isleRepository.findBySerialNumber(key).orElse(null));
+    return Optional.ofNullable(isle);
+  }
+
+  /**
+   * Find isle by id, loading it from the database on a miss.
+   *
+   * @param objectId the ObjectId
+   * @return the optional isle
+   */
+  public Optional<Isle> findById(ObjectId objectId) {
+    Isle isle = byId.get(objectId, key -> isleRepository.findById(key).orElse(null));
+    return Optional.ofNullable(isle);
+  }
+
+  /**
+   * Invalidate the entries of an isle, by its id and by its serial number.
+   *
+   * @param isle the isle as it was before the change
+   */
+  public void invalidate(Isle isle) {
+    byId.invalidate(isle.getId());
+    bySerialNumber.invalidate(isle.getSerialNumber());
+  }
+
+  /**
+   * Builds a cache.
+   *
+   * @param <K> the key type
+   * @return the cache
+   */
+  private <K> Cache<K, Isle> build() {
+    return Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .recordStats()
+        .build();
+  }
+}
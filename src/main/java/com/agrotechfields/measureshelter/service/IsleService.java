@@ -27,6 +27,10 @@ public class IsleService {
   @Autowired
   private UserRepository userRepository;
 
+  /** The isle cache. */
+  @Autowired
+  private IsleCache isleCache;
+
   /**
    * Find all isles.
    *
@@ -52,14 +56,31 @@ public class IsleService {
   }
 
   /**
-   * Find isle by serial number.
+   * Find isle by id through the isle cache. The returned isle is shared, so it must not be
+   * changed.
+   *
+   * @param objectId the ObjectId
+   * @return the isle
+   * @throws EntityNotFoundException the entity not found exception
+   */
+  public Isle findCachedIsleById(ObjectId objectId) throws EntityNotFoundException {
+    Optional<Isle> foundIsle = isleCache.findById(objectId);
+    if (foundIsle.isEmpty()) {
+      throw new EntityNotFoundException("Isle");
+    }
+    return foundIsle.get();
+  }
+
+  /**
+   * Find isle by serial number through the isle cache. The returned isle is shared, so it must
+   * not be changed.
    *
    * @param serialNumber the serial number
    * @return the isle
    * @throws EntityNotFoundException the entity not found exception
    */
   public Isle findIsleBySerialNumber(String serialNumber) throws EntityNotFoundException {
-    Optional<Isle> isle = isleRepository.findBySerialNumber(serialNumber);
+    Optional<Isle> isle = isleCache.findBySerialNumber(serialNumber);
     if (isle.isEmpty()) {
       throw new EntityNotFoundException("Isle");
     }
@@ -113,7 +134,9 @@ public class IsleService {
     Isle isleUptaded = isleDto.isleFromDto();
     isleUptaded.setId(objectId);
 
-    return isleRepository.save(isleUptaded);
+    Isle savedIsle = isleRepository.save(isleUptaded);
+    isleCache.invalidate(isle);
+    return savedIsle;
   }
 
   /**
@@ -127,6 +150,7 @@ public class IsleService {
     Isle isle = findIsleById(objectId);
     isle.setIsItWorking(!isle.getIsItWorking());
     isleRepository.save(isle);
+    isleCache.invalidate(isle);
     return isle.getIsItWorking();
   }
 
@@ -139,6 +163,7 @@ public class IsleService {
   public void deleteIsleById(ObjectId objectId) throws EntityNotFoundException {
     Isle isle = findIsleById(objectId);
     isleRepository.delete(isle);
+    isleCache.invalidate(isle);
 
     Optional<User> foundUser = userRepository.findByUsername(isle.getSerialNumber());
     if (foundUser.isPresent()) {
@@ -0,0 +1,136 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.event.MeasureEvent;
+import com.agrotechfields.measureshelter.repository.MeasureRepository;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class LatestMeasureView. In-memory map of the latest measure of each isle, loaded on
+ * startup with one aggregation and kept up to date with the measure events of this instance, so
+ * the current reading of every isle is served without querying the database.
+ *
+ * <p>The events are local, so the view misses the measures written by other instances. It is
+ * disabled by default, the latest measures are then aggregated on each request, and should only
+ * be enabled ({@code measure.latest.enabled}) when a single instance writes the measures.
+ */
+@Component
+public class LatestMeasureView {
+
+  /** The logger. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(LatestMeasureView.class);
+
+  /** The order of the measures of an isle, the latest last. */
+  private static final Comparator<Measure> ORDER = Comparator
+      .comparing(Measure::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Measure::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+  /** The measure repository. */
+  @Autowired
+  private MeasureRepository measureRepository;
+
+  /** The view flag. */
+  @Value("${measure.latest.enabled:false}")
+  private boolean enabled;
+
+  /** The latest measure by isle id. */
+  private final Map<ObjectId, Measure> latest = new ConcurrentHashMap<>();
+
+  /**
+   * Load the latest measure of each isle.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    if (!enabled) {
+      return;
+    }
+    LOGGER.warn("The latest measure view only sees the measures written by this instance, "
+        + "it is stale if other instances write measures");
+    List<Measure> measures = measureRepository.findLatestOfEachIsle();
+    measures.forEach(this::offer);
+    LOGGER.info("Loaded the latest measure of {} isles", measures.size());
+  }
+
+  /**
+   * Checks if the view is enabled.
+   *
+   * @return true, if enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets the latest measure of each isle.
+   *
+   * @return the latest measures
+   */
+  public Collection<Measure> getAll() {
+    return latest.values();
+  }
+
+  /**
+   * Update the view with written measures. A created measure replaces the latest of its isle if
+   * it is newer; an updated or deleted latest measure reloads its isle from the database.
+   *
+   * @param event the measure event
+   */
+  @EventListener
+  public void onMeasureEvent(MeasureEvent event) {
+    if (!enabled) {
+      return;
+    }
+    switch (event.getType()) {
+      case CREATED -> event.getMeasures().forEach(this::offer);
+      case UPDATED -> {
+        Measure previous = event.getPrevious();
+        if (previous != null && previous.equals(latest.get(previous.getIsleId()))) {
+          reload(previous.getIsleId());
+        }
+        event.getMeasures().forEach(this::offer);
+      }
+      default -> event.getMeasures().stream()
+          .filter(measure -> measure.equals(latest.get(measure.getIsleId())))
+          .forEach(measure -> reload(measure.getIsleId()));
+    }
+  }
+
+  /**
+   * Offer a measure, kept if it is the latest of its isle.
+   *
+   * @param measure the measure
+   */
+  private void offer(Measure measure) {
+    if (measure.getIsleId() == null) {
+      return;
+    }
+    latest.merge(measure.getIsleId(), measure,
+        (current, offered) -> ORDER.compare(offered, current) >= 0 ? offered : current);
+  }
+
+  /**
+   * Reload the latest measure of an isle.
+   *
+   * @param isleId the isle id
+   */
+  private void reload(ObjectId isleId) {
+    Measure measure = measureRepository.findLatestOfIsle(isleId);
+    if (measure == null) {
+      latest.remove(isleId);
+    } else {
+      latest.put(isleId, measure);
+    }
+  }
+}
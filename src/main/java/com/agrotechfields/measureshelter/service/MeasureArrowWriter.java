@@ -0,0 +1,199 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMilliVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class MeasureArrowWriter. Writes measures as an Apache Arrow IPC stream of record batches:
+ * a {@code timestamp} column (milliseconds, without time zone, as stored), the {@code isleId}
+ * column dictionary-encoded and one double column for each sensor field.
+ */
+@Component
+public class MeasureArrowWriter {
+
+  /** The timestamp column. */
+  private static final String TIMESTAMP = "timestamp";
+
+  /** The isle id column. */
+  private static final String ISLE_ID = "isleId";
+
+  /** The id of the isle id dictionary. */
+  private static final long ISLE_ID_DICTIONARY = 1L;
+
+  /** The fields. */
+  private static final MeasureField[] FIELDS = MeasureField.values();
+
+  /** The number of measures of a record batch. */
+  @Value("${measure.export.arrow.batch-size:8192}")
+  private int batchSize;
+
+  /** The maximum memory of the Arrow buffers of all exports. */
+  @Value("${measure.export.arrow.max-memory:268435456}")
+  private long maxMemory;
+
+  /** The allocator. */
+  private BufferAllocator allocator;
+
+  /**
+   * Create the allocator.
+   */
+  @PostConstruct
+  public void init() {
+    allocator = new RootAllocator(maxMemory);
+  }
+
+  /**
+   * Close the allocator.
+   */
+  @PreDestroy
+  public void close() {
+    allocator.close();
+  }
+
+  /**
+   * Write measures as an Arrow IPC stream.
+   *
+   * @param measures the measures
+   * @param isleIds the isle ids of the measures, the dictionary of the isle id column
+   * @param outputStream the output stream, not closed
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void write(Iterator<Measure> measures, List<ObjectId> isleIds,
+      OutputStream outputStream) throws IOException {
+    DictionaryEncoding encoding =
+        new DictionaryEncoding(ISLE_ID_DICTIONARY, false, new ArrowType.Int(32, true));
+    List<Field> fields = new ArrayList<>();
+    fields.add(Field.nullable(TIMESTAMP, new ArrowType.Timestamp(TimeUnit.MILLISECOND, null)));
+    fields.add(new Field(ISLE_ID,
+        new FieldType(true, new ArrowType.Int(32, true), encoding), null));
+    for (MeasureField field : FIELDS) {
+      fields.add(Field.nullable(field.getName(),
+          new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)));
+    }
+
+    try (BufferAllocator exportAllocator = allocator.newChildAllocator("measure-export", 0,
+            maxMemory);
+        VarCharVector dictionaryVector = new VarCharVector(ISLE_ID, exportAllocator);
+        VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields), exportAllocator)) {
+      Map<ObjectId, Integer> isleIndexes = new HashMap<>();
+      dictionaryVector.allocateNew(isleIds.size());
+      for (ObjectId isleId : isleIds) {
+        dictionaryVector.setSafe(isleIndexes.size(),
+            isleId.toHexString().getBytes(StandardCharsets.US_ASCII));
+        isleIndexes.put(isleId, isleIndexes.size());
+      }
+      dictionaryVector.setValueCount(isleIds.size());
+      DictionaryProvider.MapDictionaryProvider provider =
+          new DictionaryProvider.MapDictionaryProvider();
+      provider.put(new Dictionary(dictionaryVector, encoding));
+
+      TimeStampMilliVector timestamps = (TimeStampMilliVector) root.getVector(TIMESTAMP);
+      IntVector isles = (IntVector) root.getVector(ISLE_ID);
+      Float8Vector[] values = new Float8Vector[FIELDS.length];
+      for (int f = 0; f < FIELDS.length; f++) {
+        values[f] = (Float8Vector) root.getVector(FIELDS[f].getName());
+      }
+
+      ArrowStreamWriter writer =
+          new ArrowStreamWriter(root, provider, Channels.newChannel(outputStream));
+      writer.start();
+      while (measures.hasNext()) {
+        root.allocateNew();
+        int count = 0;
+        while (count < batchSize && measures.hasNext()) {
+          Measure measure = measures.next();
+          setTimestamp(timestamps, count, measure);
+          setIsleId(isles, count, measure, isleIndexes);
+          for (int f = 0; f < FIELDS.length; f++) {
+            setValue(values[f], count, FIELDS[f].valueOf(measure));
+          }
+          count++;
+        }
+        root.setRowCount(count);
+        writer.writeBatch();
+      }
+      writer.end();
+    }
+  }
+
+  /**
+   * Set the timestamp of a row.
+   *
+   * @param vector the timestamp vector
+   * @param row the row
+   * @param measure the measure
+   */
+  private void setTimestamp(TimeStampMilliVector vector, int row, Measure measure) {
+    if (measure.getTimestamp() == null) {
+      vector.setNull(row);
+    } else {
+      vector.setSafe(row, measure.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+  }
+
+  /**
+   * Set the isle id dictionary index of a row.
+   *
+   * @param vector the isle id vector
+   * @param row the row
+   * @param measure the measure
+   * @param isleIndexes the dictionary indexes of the isle ids
+   */
+  private void setIsleId(IntVector vector, int row, Measure measure,
+      Map<ObjectId, Integer> isleIndexes) {
+    Integer index = isleIndexes.get(measure.getIsleId());
+    if (index == null) {
+      vector.setNull(row);
+    } else {
+      vector.setSafe(row, index);
+    }
+  }
+
+  /**
+   * Set the value of a sensor field of a row.
+   *
+   * @param vector the field vector
+   * @param row the row
+   * @param value the value
+   */
+  private void setValue(Float8Vector vector, int row, BigDecimal value) {
+    if (value == null) {
+      vector.setNull(row);
+    } else {
+      vector.setSafe(row, value.doubleValue());
+    }
+  }
+}
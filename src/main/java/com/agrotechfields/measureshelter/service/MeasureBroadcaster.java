@@ -0,0 +1,297 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.dto.response.MeasureResponseDto;
+import com.agrotechfields.measureshelter.event.MeasureEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * The Class MeasureBroadcaster. Pushes the created measures to the subscribers of the live
+ * measure stream. The fan-out never blocks the writer: each subscriber has a bounded buffer
+ * drained by a pool of sender threads. When a buffer is full the oldest measure is dropped,
+ * and a subscriber that keeps dropping measures is disconnected as a slow consumer.
+ *
+ * <p>A send blocks while the client does not read, until the write timeout of the container. So
+ * a stalled client does not starve the others, the pool grows past its core threads, with at most
+ * one sender for each subscriber, and a watchdog disconnects a subscriber whose send outlasts
+ * {@code measure.stream.send-timeout-ms}: it gets no more measures, and its emitter is completed
+ * as soon as the blocked send returns.
+ */
+@Component
+public class MeasureBroadcaster {
+
+  /** The event name of a measure. */
+  private static final String EVENT_NAME = "measure";
+
+  /** The meter registry. */
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  /** The buffer size of each subscriber. */
+  @Value("${measure.stream.buffer-size:256}")
+  private int bufferSize;
+
+  /** The measures dropped in a row before a subscriber is disconnected. */
+  @Value("${measure.stream.max-dropped:1024}")
+  private int maxDropped;
+
+  /** The subscription timeout, after which the client reconnects. */
+  @Value("${measure.stream.timeout-ms:3600000}")
+  private long timeoutMs;
+
+  /** The number of core sender threads. */
+  @Value("${measure.stream.sender-threads:2}")
+  private int senderThreads;
+
+  /** The maximum time of a send before its subscriber is disconnected. */
+  @Value("${measure.stream.send-timeout-ms:10000}")
+  private long sendTimeoutMs;
+
+  /** The subscribers. */
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+  /** The senders. */
+  private ExecutorService senders;
+
+  /** The watchdog of the sends. */
+  private ScheduledExecutorService watchdog;
+
+  /** The dropped measures counter. */
+  private Counter droppedCounter;
+
+  /** The disconnected slow consumers counter. */
+  private Counter slowConsumerCounter;
+
+  /**
+   * Start the senders and register the meters.
+   */
+  @PostConstruct
+  public void start() {
+    AtomicInteger threads = new AtomicInteger();
+    senders = new ThreadPoolExecutor(senderThreads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "measure-stream-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "measure-stream-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long period = Math.max(1, sendTimeoutMs / 2);
+    watchdog.scheduleWithFixedDelay(this::expireSends, period, period, TimeUnit.MILLISECONDS);
+
+    Gauge.builder("measure.stream.subscribers", subscribers, List::size)
+        .description("Subscribers of the live measure stream")
+        .register(meterRegistry);
+    droppedCounter = Counter.builder("measure.stream.dropped")
+        .description("Measures dropped because a subscriber buffer was full")
+        .register(meterRegistry);
+    slowConsumerCounter = Counter.builder("measure.stream.slow-consumers")
+        .description("Subscribers disconnected for dropping too many measures or a slow send")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Complete the subscriptions and stop the senders.
+   */
+  @PreDestroy
+  public void stop() {
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    subscribers.clear();
+    watchdog.shutdownNow();
+    senders.shutdownNow();
+  }
+
+  /**
+   * Subscribe to the created measures.
+   *
+   * @param isleId the isle id, or null for the measures of every isle
+   * @return the emitter of the subscription
+   */
+  public SseEmitter subscribe(ObjectId isleId) {
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    Subscriber subscriber = new Subscriber(emitter, isleId, bufferSize);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    return emitter;
+  }
+
+  /**
+   * Offer the created measures to the buffers of their subscribers, without blocking.
+   *
+   * @param event the measure event
+   */
+  @EventListener
+  public void onMeasureEvent(MeasureEvent event) {
+    if (event.getType() != MeasureEvent.Type.CREATED || subscribers.isEmpty()) {
+      return;
+    }
+    for (Subscriber subscriber : subscribers) {
+      boolean offered = false;
+      for (Measure measure : event.getMeasures()) {
+        if (subscriber.accepts(measure)) {
+          offer(subscriber, measure);
+          offered = true;
+        }
+      }
+      if (offered && subscriber.scheduled.compareAndSet(false, true)) {
+        senders.execute(() -> drain(subscriber));
+      }
+    }
+  }
+
+  /**
+   * Offer a measure to a subscriber, dropping its oldest buffered measure when the buffer is full
+   * and disconnecting it when it has dropped too many in a row. The emitter may be locked by a
+   * blocked send, so the sender completes it rather than the writer.
+   *
+   * @param subscriber the subscriber
+   * @param measure the measure
+   */
+  private void offer(Subscriber subscriber, Measure measure) {
+    synchronized (subscriber.buffer) {
+      if (subscriber.buffer.offer(measure)) {
+        return;
+      }
+      subscriber.buffer.poll();
+      subscriber.buffer.offer(measure);
+    }
+    droppedCounter.increment();
+    if (subscriber.dropped.incrementAndGet() > maxDropped && subscribers.remove(subscriber)) {
+      subscriber.expired = true;
+      slowConsumerCounter.increment();
+    }
+  }
+
+  /**
+   * Send the buffered measures of a subscriber. Only one sender drains a subscriber at a time;
+   * a failed send ends the subscription, and a disconnected subscriber is completed.
+   *
+   * @param subscriber the subscriber
+   */
+  private void drain(Subscriber subscriber) {
+    while (true) {
+      if (subscriber.expired) {
+        subscriber.emitter.complete();
+        subscriber.scheduled.set(false);
+        return;
+      }
+      Measure measure;
+      synchronized (subscriber.buffer) {
+        measure = subscriber.buffer.poll();
+        if (measure == null) {
+          subscriber.scheduled.set(false);
+          return;
+        }
+      }
+      try {
+        subscriber.sendStarted = System.nanoTime();
+        subscriber.emitter.send(SseEmitter.event()
+            .name(EVENT_NAME)
+            .id(measure.getId().toHexString())
+            .data(new MeasureResponseDto(measure)));
+        subscriber.dropped.set(0);
+      } catch (IOException | IllegalStateException e) {
+        subscribers.remove(subscriber);
+        subscriber.emitter.completeWithError(e);
+        subscriber.scheduled.set(false);
+        return;
+      } finally {
+        subscriber.sendStarted = 0;
+      }
+    }
+  }
+
+  /**
+   * Disconnect the subscribers whose send outlasts the send timeout. The emitter is locked by
+   * the blocked send, so the sender completes it once the send returns.
+   */
+  private void expireSends() {
+    long now = System.nanoTime();
+    long timeout = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+    for (Subscriber subscriber : subscribers) {
+      long started = subscriber.sendStarted;
+      if (started != 0 && now - started > timeout && subscribers.remove(subscriber)) {
+        subscriber.expired = true;
+        slowConsumerCounter.increment();
+      }
+    }
+  }
+
+  /**
+   * The Class Subscriber.
+   */
+  private static class Subscriber {
+
+    /** The emitter. */
+    private final SseEmitter emitter;
+
+    /** The isle id, or null for every isle. */
+    private final ObjectId isleId;
+
+    /** The buffer. */
+    private final Queue<Measure> buffer;
+
+    /** The measures dropped since the last one sent. */
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    /** The flag of a sender draining the buffer. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** The start of the send in progress, in nanoseconds, zero when none. */
+    private volatile long sendStarted;
+
+    /** The flag of a subscriber disconnected as a slow consumer. */
+    private volatile boolean expired;
+
+    /**
+     * Instantiates a new subscriber.
+     *
+     * @param emitter the emitter
+     * @param isleId the isle id
+     * @param bufferSize the buffer size
+     */
+    private Subscriber(SseEmitter emitter, ObjectId isleId, int bufferSize) {
+      this.emitter = emitter;
+      this.isleId = isleId;
+      this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    /**
+     * Checks if the subscriber accepts a measure.
+     *
+     * @param measure the measure
+     * @return true, if accepted
+     */
+    private boolean accepts(Measure measure) {
+      return isleId == null || isleId.equals(measure.getIsleId());
+    }
+  }
+}
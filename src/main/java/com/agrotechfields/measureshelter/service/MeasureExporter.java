@@ -0,0 +1,153 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureExportFormat;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.agrotechfields.measureshelter.dto.response.MeasureResponseDto;
+import com.agrotechfields.measureshelter.repository.MeasureFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class MeasureExporter. Writes the measures of a filter as a CSV, NDJSON or Arrow file while
+ * they are read from a database cursor, optionally gzipped, so the heap use does not depend on the
+ * number of measures.
+ */
+@Component
+public class MeasureExporter {
+
+  /** The number of measures written between flushes. */
+  private static final int FLUSH_SIZE = 1000;
+
+  /** The buffer size of the output. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The fields. */
+  private static final MeasureField[] FIELDS = MeasureField.values();
+
+  /** The measure service, merging the archived measures. */
+  @Autowired
+  private MeasureService measureService;
+
+  /** The object mapper. */
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /** The measure arrow writer. */
+  @Autowired
+  private MeasureArrowWriter measureArrowWriter;
+
+  /**
+   * Export the measures of a filter.
+   *
+   * @param filter the filter
+   * @param format the format
+   * @param gzip the gzip flag
+   * @param outputStream the output stream, not closed
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void export(MeasureFilter filter, MeasureExportFormat format, boolean gzip,
+      OutputStream outputStream) throws IOException {
+    GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : null;
+    OutputStream output = gzip ? gzipStream : outputStream;
+    List<ObjectId> isleIds = null;
+    if (format == MeasureExportFormat.ARROW) {
+      isleIds = filter.getIsleId() != null
+          ? List.of(filter.getIsleId())
+          : measureService.findIsleIds(filter);
+    }
+    try (Stream<Measure> measures = measureService.streamMeasures(filter)) {
+      switch (format) {
+        case CSV -> writeCsv(measures.iterator(), output);
+        case NDJSON -> writeNdjson(measures.iterator(), output);
+        default -> measureArrowWriter.write(measures.iterator(), isleIds, output);
+      }
+    }
+    if (gzipStream != null) {
+      gzipStream.finish();
+    }
+    outputStream.flush();
+  }
+
+  /**
+   * Write the measures as CSV.
+   *
+   * @param measures the measures
+   * @param output the output
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void writeCsv(Iterator<Measure> measures, OutputStream output) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8),
+        BUFFER_SIZE);
+    writer.write("id,isleId,timestamp");
+    for (MeasureField field : FIELDS) {
+      writer.write(',');
+      writer.write(field.getName());
+    }
+    writer.write('\n');
+
+    for (int count = 1; measures.hasNext(); count++) {
+      Measure measure = measures.next();
+      writer.write(measure.getId().toHexString());
+      writer.write(',');
+      if (measure.getIsleId() != null) {
+        writer.write(measure.getIsleId().toHexString());
+      }
+      writer.write(',');
+      if (measure.getTimestamp() != null) {
+        writer.write(measure.getTimestamp().toString());
+      }
+      for (MeasureField field : FIELDS) {
+        writer.write(',');
+        BigDecimal value = field.valueOf(measure);
+        if (value != null) {
+          writer.write(value.toPlainString());
+        }
+      }
+      writer.write('\n');
+      if (count % FLUSH_SIZE == 0) {
+        writer.flush();
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * Write the measures as NDJSON.
+   *
+   * @param measures the measures
+   * @param output the output
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void writeNdjson(Iterator<Measure> measures, OutputStream output) throws IOException {
+    JsonGenerator generator = objectMapper.createGenerator(output);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    generator.setRootValueSeparator(new SerializedString("\n"));
+    int count = 0;
+    while (measures.hasNext()) {
+      generator.writeObject(new MeasureResponseDto(measures.next()));
+      if (++count % FLUSH_SIZE == 0) {
+        generator.flush();
+      }
+    }
+    if (count > 0) {
+      generator.writeRaw('\n');
+    }
+    generator.close();
+  }
+}
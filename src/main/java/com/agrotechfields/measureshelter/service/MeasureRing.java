@@ -0,0 +1,337 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * The Class MeasureRing. Fixed-capacity ring of the recent measures of one isle, kept in
+ * {@code (timestamp, id)} order in primitive columns: the timestamps in epoch milliseconds and
+ * each sensor field as an unscaled value and a scale, so the values come back exactly as stored.
+ * The columns start small and double as measures are added, up to the capacity. When the ring is
+ * full, adding a measure evicts the oldest one and the ring no longer covers its timestamp.
+ */
+public class MeasureRing {
+
+  /** The scale of a missing value. */
+  private static final byte NULL_SCALE = Byte.MIN_VALUE;
+
+  /** The fields. */
+  private static final MeasureField[] FIELDS = MeasureField.values();
+
+  /** The initial length of the columns. */
+  private static final int INITIAL_LENGTH = 16;
+
+  /** The capacity. */
+  private final int capacity;
+
+  /** The timestamps, in epoch milliseconds of the local date time. */
+  private long[] timestamps;
+
+  /** The ids. */
+  private ObjectId[] ids;
+
+  /** The unscaled values by field. */
+  private long[][] values;
+
+  /** The scales by field. */
+  private byte[][] scales;
+
+  /** The physical index of the oldest measure. */
+  private int head;
+
+  /** The number of measures. */
+  private int size;
+
+  /** The first timestamp from which every measure of the isle is in the ring. */
+  private long coveredFrom = Long.MIN_VALUE;
+
+  /**
+   * Instantiates a new measure ring.
+   *
+   * @param capacity the capacity
+   */
+  public MeasureRing(int capacity) {
+    int length = Math.min(capacity, INITIAL_LENGTH);
+    this.capacity = capacity;
+    this.timestamps = new long[length];
+    this.ids = new ObjectId[length];
+    this.values = new long[FIELDS.length][length];
+    this.scales = new byte[FIELDS.length][length];
+  }
+
+  /**
+   * Add a measure in its position. A measure already in the ring is replaced; a measure older
+   * than the covered range is ignored; a value that does not fit the columns stops covering the
+   * ring up to the measure. A measure after the newest one is appended without looking for its
+   * id, as a changed timestamp is removed by its update event.
+   *
+   * @param measure the measure
+   */
+  public synchronized void add(Measure measure) {
+    if (measure.getId() == null || measure.getTimestamp() == null) {
+      return;
+    }
+    long timestamp = toMillis(measure.getTimestamp());
+    if (timestamp < coveredFrom) {
+      return;
+    }
+    if (size > 0 && timestamp <= timestamps[index(size - 1)]) {
+      remove(measure.getId());
+    }
+    if (!fits(measure)) {
+      evictBefore(timestamp + 1);
+      return;
+    }
+    if (size == timestamps.length && size < capacity) {
+      grow();
+    }
+    if (size == capacity) {
+      evictOldest();
+      if (timestamp < coveredFrom) {
+        return;
+      }
+    }
+
+    int position = lowerBound(timestamp, measure.getId());
+    for (int i = size; i > position; i--) {
+      copy(index(i - 1), index(i));
+    }
+    size++;
+    write(index(position), timestamp, measure);
+  }
+
+  /**
+   * Remove a measure by id.
+   *
+   * @param id the measure id
+   * @return true, if the measure was in the ring
+   */
+  public synchronized boolean remove(ObjectId id) {
+    for (int i = 0; i < size; i++) {
+      if (ids[index(i)].equals(id)) {
+        for (int j = i; j < size - 1; j++) {
+          copy(index(j + 1), index(j));
+        }
+        size--;
+        ids[index(size)] = null;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Evict the measures older than a timestamp.
+   *
+   * @param timestamp the timestamp, in epoch milliseconds
+   */
+  public synchronized void evictBefore(long timestamp) {
+    while (size > 0 && timestamps[head] < timestamp) {
+      evictOldest();
+    }
+    coveredFrom = Math.max(coveredFrom, timestamp);
+  }
+
+  /**
+   * Checks if every measure of the isle from a timestamp is in the ring.
+   *
+   * @param from the timestamp
+   * @return true, if covered
+   */
+  public synchronized boolean covers(LocalDateTime from) {
+    return from != null && toMillis(from) >= coveredFrom;
+  }
+
+  /**
+   * Gets the number of measures.
+   *
+   * @return the size
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Find the measures of a timestamp range, in the order of a direction.
+   *
+   * @param isleId the isle id, set in the measures
+   * @param from the first timestamp, inclusive
+   * @param to the last timestamp, exclusive, or null
+   * @param direction the direction
+   * @param limit the maximum number of measures, zero for no limit
+   * @return the measures
+   */
+  public synchronized List<Measure> find(ObjectId isleId, LocalDateTime from, LocalDateTime to,
+      Direction direction, int limit) {
+    int first = lowerBound(toMillis(from), null);
+    int last = to == null ? size : lowerBound(toMillis(to), null);
+    int count = Math.max(0, last - first);
+    if (limit > 0) {
+      count = Math.min(count, limit);
+    }
+
+    List<Measure> measures = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int logical = direction.isAscending() ? first + i : last - 1 - i;
+      measures.add(read(index(logical), isleId));
+    }
+    return measures;
+  }
+
+  /**
+   * Convert a local date time to the epoch milliseconds of the columns, truncated as stored by
+   * the database.
+   *
+   * @param timestamp the timestamp
+   * @return the epoch milliseconds
+   */
+  public static long toMillis(LocalDateTime timestamp) {
+    return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  /**
+   * Evict the oldest measure.
+   */
+  private void evictOldest() {
+    coveredFrom = Math.max(coveredFrom, timestamps[head] + 1);
+    ids[head] = null;
+    head = (head + 1) % timestamps.length;
+    size--;
+  }
+
+  /**
+   * Double the length of the columns, up to the capacity, moving the oldest measure first.
+   */
+  private void grow() {
+    int length = (int) Math.min(capacity, 2L * timestamps.length);
+    long[] grownTimestamps = new long[length];
+    ObjectId[] grownIds = new ObjectId[length];
+    long[][] grownValues = new long[FIELDS.length][length];
+    byte[][] grownScales = new byte[FIELDS.length][length];
+    for (int position = 0; position < size; position++) {
+      int i = index(position);
+      grownTimestamps[position] = timestamps[i];
+      grownIds[position] = ids[i];
+      for (int f = 0; f < FIELDS.length; f++) {
+        grownValues[f][position] = values[f][i];
+        grownScales[f][position] = scales[f][i];
+      }
+    }
+    timestamps = grownTimestamps;
+    ids = grownIds;
+    values = grownValues;
+    scales = grownScales;
+    head = 0;
+  }
+
+  /**
+   * Position of the first measure not before a timestamp and id.
+   *
+   * @param timestamp the timestamp
+   * @param id the id, or null for the first measure of the timestamp
+   * @return the logical position
+   */
+  private int lowerBound(long timestamp, ObjectId id) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int i = index(middle);
+      boolean before = timestamps[i] < timestamp
+          || timestamps[i] == timestamp && id != null && ids[i].compareTo(id) < 0;
+      if (before) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Checks if the values of a measure fit the columns.
+   *
+   * @param measure the measure
+   * @return true, if they fit
+   */
+  private boolean fits(Measure measure) {
+    for (MeasureField field : FIELDS) {
+      BigDecimal value = field.valueOf(measure);
+      if (value != null && (value.unscaledValue().bitLength() > 63
+          || value.scale() <= NULL_SCALE || value.scale() > Byte.MAX_VALUE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Write a measure to a physical index.
+   *
+   * @param i the physical index
+   * @param timestamp the timestamp, in epoch milliseconds
+   * @param measure the measure
+   */
+  private void write(int i, long timestamp, Measure measure) {
+    timestamps[i] = timestamp;
+    ids[i] = measure.getId();
+    for (int f = 0; f < FIELDS.length; f++) {
+      BigDecimal value = FIELDS[f].valueOf(measure);
+      values[f][i] = value == null ? 0 : value.unscaledValue().longValue();
+      scales[f][i] = value == null ? NULL_SCALE : (byte) value.scale();
+    }
+  }
+
+  /**
+   * Read the measure of a physical index.
+   *
+   * @param i the physical index
+   * @param isleId the isle id
+   * @return the measure
+   */
+  private Measure read(int i, ObjectId isleId) {
+    Measure measure = new Measure();
+    measure.setId(ids[i]);
+    measure.setIsleId(isleId);
+    measure.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(timestamps[i], 1000L),
+        (int) Math.floorMod(timestamps[i], 1000L) * 1_000_000, ZoneOffset.UTC));
+    for (int f = 0; f < FIELDS.length; f++) {
+      if (scales[f][i] != NULL_SCALE) {
+        FIELDS[f].setValue(measure, BigDecimal.valueOf(values[f][i], scales[f][i]));
+      }
+    }
+    return measure;
+  }
+
+  /**
+   * Copy a measure between physical indexes.
+   *
+   * @param from the source index
+   * @param to the target index
+   */
+  private void copy(int from, int to) {
+    timestamps[to] = timestamps[from];
+    ids[to] = ids[from];
+    for (int f = 0; f < FIELDS.length; f++) {
+      values[f][to] = values[f][from];
+      scales[f][to] = scales[f][from];
+    }
+  }
+
+  /**
+   * Physical index of a logical position.
+   *
+   * @param position the logical position
+   * @return the physical index
+   */
+  private int index(int position) {
+    return (head + position) % timestamps.length;
+  }
+}
@@ -0,0 +1,330 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.agrotechfields.measureshelter.domain.MeasureRollup;
+import com.agrotechfields.measureshelter.domain.RollupResolution;
+import com.agrotechfields.measureshelter.event.MeasureEvent;
+import com.agrotechfields.measureshelter.repository.MeasureFilter;
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+/**
+ * The Class MeasureRollupService. Keeps the hourly and daily rollups of the measures of each
+ * isle. Created measures are added with {@code $inc}/{@code $min}/{@code $max} upserts; an
+ * updated or deleted measure rebuilds its buckets from the raw measures, since a min or a max
+ * cannot be taken back. The rollups can also be rebuilt on demand.
+ */
+@Service
+public class MeasureRollupService {
+
+  /** The logger. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(MeasureRollupService.class);
+
+  /** The number of rollups replaced at once by a rebuild. */
+  private static final int REBUILD_BATCH_SIZE = 1000;
+
+  /** The field of the rebuild run that last replaced a rollup. */
+  private static final String REBUILD = "rebuild";
+
+  /** The mongo template. */
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /** The measure service, merging the archived measures. */
+  @Autowired
+  private MeasureService measureService;
+
+  /**
+   * Ensure the unique (isleId, timestamp) index of the rollup collections.
+   */
+  @PostConstruct
+  public void init() {
+    for (RollupResolution resolution : RollupResolution.values()) {
+      mongoTemplate.indexOps(resolution.getCollection()).ensureIndex(new Index()
+          .on("isleId", Direction.ASC)
+          .on("timestamp", Direction.ASC)
+          .unique()
+          .named("isleId_timestamp"));
+    }
+  }
+
+  /**
+   * Update the rollups of written measures. A failure is logged and does not fail the write,
+   * the rollups can be rebuilt.
+   *
+   * @param event the measure event
+   */
+  @EventListener
+  public void onMeasureEvent(MeasureEvent event) {
+    try {
+      switch (event.getType()) {
+        case CREATED -> add(event.getMeasures());
+        case UPDATED -> rebuildBuckets(List.of(event.getPrevious(), event.getMeasures().get(0)));
+        default -> rebuildBuckets(event.getMeasures());
+      }
+    } catch (RuntimeException e) {
+      LOGGER.error("Could not update the rollups of {} {} measures", event.getMeasures().size(),
+          event.getType(), e);
+    }
+  }
+
+  /**
+   * Find the rollups of an isle in a range.
+   *
+   * @param isleId the isle id
+   * @param resolution the resolution
+   * @param from the inclusive start of the range
+   * @param to the exclusive end of the range
+   * @return the rollups, in timestamp order
+   */
+  public List<MeasureRollup> findRollups(ObjectId isleId, RollupResolution resolution,
+      LocalDateTime from, LocalDateTime to) {
+    Query query = new Query(Criteria.where("isleId").is(isleId).and("timestamp").gte(from).lt(to))
+        .with(Sort.by(Direction.ASC, "timestamp"));
+    return mongoTemplate.find(query, MeasureRollup.class, resolution.getCollection());
+  }
+
+  /**
+   * Rebuild the rollups from the raw measures.
+   *
+   * @param isleId the isle id, null for all isles
+   * @param from the start of the range, null for unbounded
+   * @param to the end of the range, null for unbounded
+   * @return the number of rebuilt rollups by resolution
+   */
+  public Map<RollupResolution, Long> rebuild(ObjectId isleId, LocalDateTime from,
+      LocalDateTime to) {
+    Map<RollupResolution, Long> rebuilt = new LinkedHashMap<>();
+    for (RollupResolution resolution : RollupResolution.values()) {
+      LocalDateTime start = from == null ? null : resolution.truncate(from);
+      LocalDateTime end = to == null || to.equals(resolution.truncate(to))
+          ? to
+          : resolution.next(resolution.truncate(to));
+      rebuilt.put(resolution, rebuildRange(isleId, resolution, start, end));
+    }
+    return rebuilt;
+  }
+
+  /**
+   * Add created measures to their rollups, one upsert for each isle and bucket.
+   *
+   * @param measures the measures
+   */
+  private void add(List<Measure> measures) {
+    for (RollupResolution resolution : RollupResolution.values()) {
+      Map<BucketKey, List<Measure>> buckets = new LinkedHashMap<>();
+      for (Measure measure : measures) {
+        if (measure.getIsleId() != null && measure.getTimestamp() != null) {
+          BucketKey key = new BucketKey(measure.getIsleId(),
+              resolution.truncate(measure.getTimestamp()));
+          buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(measure);
+        }
+      }
+      if (buckets.isEmpty()) {
+        continue;
+      }
+
+      BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED,
+          MeasureRollup.class, resolution.getCollection());
+      buckets.forEach((key, bucket) -> bulkOperations.upsert(
+          new Query(Criteria.where("isleId").is(key.isleId()).and("timestamp").is(key.timestamp())),
+          buildUpdate(bucket)));
+      bulkOperations.execute();
+    }
+  }
+
+  /**
+   * Builds the update that adds measures to a rollup.
+   *
+   * @param measures the measures of the bucket
+   * @return the update
+   */
+  private Update buildUpdate(List<Measure> measures) {
+    Update update = new Update().inc("count", measures.size());
+    for (MeasureField field : MeasureField.values()) {
+      long count = 0;
+      double sum = 0;
+      double sin = 0;
+      double cos = 0;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (Measure measure : measures) {
+        BigDecimal value = field.valueOf(measure);
+        if (value != null) {
+          double doubleValue = value.doubleValue();
+          count++;
+          sum += doubleValue;
+          min = Math.min(min, doubleValue);
+          max = Math.max(max, doubleValue);
+          sin += Math.sin(Math.toRadians(doubleValue));
+          cos += Math.cos(Math.toRadians(doubleValue));
+        }
+      }
+      if (count == 0) {
+        continue;
+      }
+      String prefix = "fields." + field.getName() + ".";
+      update.inc(prefix + "count", count)
+          .inc(prefix + "sum", sum)
+          .min(prefix + "min", min)
+          .max(prefix + "max", max);
+      if (field.isCircular()) {
+        update.inc(prefix + "sin", sin).inc(prefix + "cos", cos);
+      }
+    }
+    return update;
+  }
+
+  /**
+   * Rebuild the buckets of the measures, in both resolutions.
+   *
+   * @param measures the measures
+   */
+  private void rebuildBuckets(List<Measure> measures) {
+    for (RollupResolution resolution : RollupResolution.values()) {
+      Set<BucketKey> buckets = new LinkedHashSet<>();
+      for (Measure measure : measures) {
+        if (measure.getIsleId() != null && measure.getTimestamp() != null) {
+          buckets.add(new BucketKey(measure.getIsleId(),
+              resolution.truncate(measure.getTimestamp())));
+        }
+      }
+      for (BucketKey bucket : buckets) {
+        rebuildRange(bucket.isleId(), resolution, bucket.timestamp(),
+            resolution.next(bucket.timestamp()));
+      }
+    }
+  }
+
+  /**
+   * Rebuild the rollups of a resolution in a range aligned to its buckets. The rollups aggregated
+   * from the raw measures, the archived ones included, replace the stored ones, an upsert for
+   * each bucket marked with the rebuild run, so a concurrent {@code $inc} upsert of a created
+   * measure never meets a missing or duplicate bucket. Then the unmarked rollups of the range
+   * are removed, only if their bucket has no raw measures in either tier.
+   *
+   * @param isleId the isle id, null for all isles
+   * @param resolution the resolution
+   * @param from the inclusive start of the range, null for unbounded
+   * @param to the exclusive end of the range, null for unbounded
+   * @return the number of rebuilt rollups
+   */
+  private long rebuildRange(ObjectId isleId, RollupResolution resolution, LocalDateTime from,
+      LocalDateTime to) {
+    ObjectId run = new ObjectId();
+    MeasureFilter filter = new MeasureFilter(isleId, from, to, Direction.ASC);
+    String unit = resolution.name().toLowerCase();
+    long rebuilt = 0;
+    try (Stream<MeasureRollup> rollups = measureService.aggregateRollups(filter, unit, 1)) {
+      List<MeasureRollup> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+      for (MeasureRollup rollup : (Iterable<MeasureRollup>) rollups::iterator) {
+        batch.add(rollup);
+        if (batch.size() == REBUILD_BATCH_SIZE) {
+          rebuilt += replace(batch, resolution, run);
+        }
+      }
+      rebuilt += replace(batch, resolution, run);
+    }
+
+    Query stale = new Query(range(isleId, from, to).and(REBUILD).ne(run));
+    stale.fields().include("isleId").include("timestamp");
+    try (Stream<MeasureRollup> rollups =
+        mongoTemplate.stream(stale, MeasureRollup.class, resolution.getCollection())) {
+      rollups.filter(rollup -> measureService.findMeasures(new MeasureFilter(rollup.getIsleId(),
+          rollup.getTimestamp(), resolution.next(rollup.getTimestamp()), Direction.ASC), 1)
+          .isEmpty())
+          .forEach(rollup -> mongoTemplate.remove(new Query(
+              Criteria.where("isleId").is(rollup.getIsleId())
+                  .and("timestamp").is(rollup.getTimestamp())
+                  .and(REBUILD).ne(run)),
+              MeasureRollup.class, resolution.getCollection()));
+    }
+    return rebuilt;
+  }
+
+  /**
+   * Criteria of the rollups of an isle in a range.
+   *
+   * @param isleId the isle id, null for all isles
+   * @param from the inclusive start of the range, null for unbounded
+   * @param to the exclusive end of the range, null for unbounded
+   * @return the criteria
+   */
+  private Criteria range(ObjectId isleId, LocalDateTime from, LocalDateTime to) {
+    Criteria criteria = new Criteria();
+    if (isleId != null) {
+      criteria.and("isleId").is(isleId);
+    }
+    if (from != null || to != null) {
+      Criteria timestamp = criteria.and("timestamp");
+      if (from != null) {
+        timestamp.gte(from);
+      }
+      if (to != null) {
+        timestamp.lt(to);
+      }
+    }
+    return criteria;
+  }
+
+  /**
+   * Replace, or insert, and clear a batch of rollups, marked with the rebuild run.
+   *
+   * @param batch the batch
+   * @param resolution the resolution
+   * @param run the rebuild run
+   * @return the number of replaced rollups
+   */
+  private int replace(List<MeasureRollup> batch, RollupResolution resolution, ObjectId run) {
+    int size = batch.size();
+    if (size > 0) {
+      BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED,
+          MeasureRollup.class, resolution.getCollection());
+      for (MeasureRollup rollup : batch) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(rollup, document);
+        bulkOperations.replaceOne(
+            new Query(Criteria.where("isleId").is(rollup.getIsleId())
+                .and("timestamp").is(rollup.getTimestamp())),
+            document.append(REBUILD, run), FindAndReplaceOptions.options().upsert());
+      }
+      bulkOperations.execute();
+      batch.clear();
+    }
+    return size;
+  }
+
+  /**
+   * The Record BucketKey.
+   *
+   * @param isleId the isle id
+   * @param timestamp the start of the bucket
+   */
+  private record BucketKey(ObjectId isleId, LocalDateTime timestamp) {}
+}
@@ -2,14 +2,34 @@ package com.agrotechfields.measureshelter.service;
 
 import com.agrotechfields.measureshelter.domain.Isle;
 import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.agrotechfields.measureshelter.domain.MeasureRollup;
+import com.agrotechfields.measureshelter.domain.MeasureStats;
+import com.agrotechfields.measureshelter.domain.StatsInterval;
 import com.agrotechfields.measureshelter.dto.request.MeasureDto;
+import com.agrotechfields.measureshelter.event.MeasureEvent;
 import com.agrotechfields.measureshelter.exception.EntityNotFoundException;
+import com.agrotechfields.measureshelter.exception.InvalidMeasureException;
 import com.agrotechfields.measureshelter.exception.NotPermittedException;
+import com.agrotechfields.measureshelter.repository.MeasureCursor;
+import com.agrotechfields.measureshelter.repository.MeasureFilter;
 import com.agrotechfields.measureshelter.repository.MeasureRepository;
+import com.agrotechfields.measureshelter.storage.FixedPointConverter;
+import com.agrotechfields.measureshelter.storage.MeasureArchive;
+import com.agrotechfields.measureshelter.storage.MeasureBucketStore;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 /**
@@ -22,25 +42,96 @@ public class MeasureService {
   @Autowired
   private MeasureRepository measureRepository;
 
+  /** The write-behind buffer. */
+  @Autowired
+  private MeasureWriteBehindBuffer writeBehindBuffer;
+
+  /** The recent measure window. */
+  @Autowired
+  private RecentMeasureWindow recentMeasureWindow;
+
+  /** The latest measure view. */
+  @Autowired
+  private LatestMeasureView latestMeasureView;
+
+  /** The archive of the cold measures. */
+  @Autowired
+  private MeasureArchive measureArchive;
+
+  /** The event publisher. */
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  /** If the measure values are stored as fixed-point integers, at the scale of each field. */
+  @Value("${measure.storage.fixed-point.enabled:false}")
+  private boolean fixedPoint;
+
   /**
-   * Creates the measure.
+   * Creates the measure. In write-behind mode the measure gets its id here and is queued to be
+   * written by the buffer, which publishes its event; it is inserted right away only when the
+   * queue is full.
    *
    * @param isle the isle
    * @param measureDto the measure dto
    * @return the measure
    * @throws NotPermittedException the not permitted exception
+   * @throws InvalidMeasureException the invalid measure exception
    */
-  public Measure createMeasure(Isle isle, MeasureDto measureDto) throws NotPermittedException {
-    if (Boolean.FALSE.equals(isle.getIsItWorking())) {
-      throw new NotPermittedException("This Isle doesn't working. It");
-    }
+  public Measure createMeasure(Isle isle, MeasureDto measureDto)
+      throws NotPermittedException, InvalidMeasureException {
+    checkIsleIsWorking(isle);
+    checkPrecision(measureDto);
     Measure measure = measureDto.measureFromDto();
     measure.setIsleId(isle.getId());
-    return measureRepository.insert(measure);
+
+    if (writeBehindBuffer.isEnabled()) {
+      measure.setId(new ObjectId());
+      if (writeBehindBuffer.offer(measure)) {
+        return measure;
+      }
+    }
+    Measure createdMeasure = measureRepository.insert(measure);
+    eventPublisher.publishEvent(MeasureEvent.created(List.of(createdMeasure)));
+    return createdMeasure;
+  }
+
+  /**
+   * Checks if the write-behind ingest mode is enabled.
+   *
+   * @return true, if measures are accepted before being written
+   */
+  public boolean isWriteBehind() {
+    return writeBehindBuffer.isEnabled();
   }
 
   /**
-   * Find all measures.
+   * Creates the measures with a single bulk insert.
+   *
+   * @param isle the isle
+   * @param measureDtos the already validated measure dtos
+   * @return the created measures, in the same order of the dtos
+   * @throws NotPermittedException the not permitted exception
+   */
+  public List<Measure> createMeasures(Isle isle, List<MeasureDto> measureDtos)
+      throws NotPermittedException {
+    checkIsleIsWorking(isle);
+    if (measureDtos.isEmpty()) {
+      return List.of();
+    }
+    List<Measure> measures = new ArrayList<>(measureDtos.size());
+    for (MeasureDto measureDto : measureDtos) {
+      Measure measure = measureDto.measureFromDto();
+      measure.setIsleId(isle.getId());
+      measures.add(measure);
+    }
+    List<Measure> createdMeasures = measureRepository.insert(measures);
+    eventPublisher.publishEvent(MeasureEvent.created(createdMeasures));
+    return createdMeasures;
+  }
+
+  /**
+   * Find all measures of the database. The archived measures are only read by the range
+   * queries, so the whole archive is never loaded at once.
    *
    * @return the list
    */
@@ -49,7 +140,20 @@ public class MeasureService {
   }
 
   /**
-   * Find all measures by isle.
+   * Find the latest measure of each isle, from memory when the latest measure view is enabled.
+   *
+   * @return the latest measures
+   */
+  public List<Measure> findLatestMeasures() {
+    if (!latestMeasureView.isEnabled()) {
+      return measureRepository.findLatestOfEachIsle();
+    }
+    return List.copyOf(latestMeasureView.getAll());
+  }
+
+  /**
+   * Find all measures of the database by isle. The archived measures are only read by the range
+   * queries.
    *
    * @param isle the isle
    * @return the list
@@ -59,7 +163,108 @@ public class MeasureService {
   }
 
   /**
-   * Find measure by id.
+   * Find the measures of a filter with a timestamp range query, answered from the recent measure
+   * window when the range of an isle is inside it, and merged with the archived measures when
+   * the range reaches the archived months.
+   *
+   * @param filter the filter
+   * @param limit the maximum number of measures, zero for no limit
+   * @return the list
+   */
+  public List<Measure> findMeasures(MeasureFilter filter, int limit) {
+    if (recentMeasureWindow.covers(filter)) {
+      return recentMeasureWindow.find(filter, limit);
+    }
+    List<Measure> measures = measureRepository.find(filter, limit);
+    if (measureArchive.covers(filter)) {
+      return measureArchive.merge(measures, filter, null, limit);
+    }
+    return measures;
+  }
+
+  /**
+   * Find a keyset page of measures, one more than the page size to tell whether there is a next
+   * page.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @param size the page size
+   * @return the measures
+   */
+  public List<Measure> findMeasurePage(MeasureFilter filter, MeasureCursor after, int size) {
+    List<Measure> measures = measureRepository.findPage(filter, after, size + 1);
+    if (measureArchive.covers(filter)) {
+      return measureArchive.merge(measures, filter, after, size + 1);
+    }
+    return measures;
+  }
+
+  /**
+   * Stream measures from a cursor, without loading them all in memory, merged with the archived
+   * measures when the range reaches the archived months. The stream must be closed.
+   *
+   * @param filter the filter
+   * @return the stream of measures
+   */
+  public Stream<Measure> streamMeasures(MeasureFilter filter) {
+    Stream<Measure> measures = measureRepository.stream(filter);
+    if (measureArchive.covers(filter)) {
+      return measureArchive.merge(measures, filter);
+    }
+    return measures;
+  }
+
+  /**
+   * Find the statistics of the measures of a filter by time bucket, computed by the database,
+   * or in memory with the archived measures when the range reaches the archived months.
+   *
+   * @param filter the filter
+   * @param interval the bucket interval
+   * @return the statistics of each bucket with measures
+   */
+  public List<MeasureStats> findMeasureStats(MeasureFilter filter, StatsInterval interval) {
+    if (!measureArchive.covers(filter)) {
+      return measureRepository.aggregateStats(filter, interval);
+    }
+    try (Stream<MeasureRollup> rollups =
+        aggregateRollups(filter, interval.getUnit(), interval.getBinSize())) {
+      return rollups.map(MeasureRollup::toMeasureStats).toList();
+    }
+  }
+
+  /**
+   * Aggregate the rollups of the measures of a filter by isle and time bucket, computed by the
+   * database or, when the range reaches the archived months, in memory from the measures of
+   * both tiers. The stream must be closed.
+   *
+   * @param filter the filter
+   * @param unit the $dateTrunc unit of the buckets: minute, hour or day
+   * @param binSize the number of units of a bucket
+   * @return the stream of rollups, without ids, in timestamp order
+   */
+  public Stream<MeasureRollup> aggregateRollups(MeasureFilter filter, String unit, int binSize) {
+    if (!measureArchive.covers(filter)) {
+      return measureRepository.aggregateRollups(filter, unit, binSize);
+    }
+    try (Stream<Measure> measures = streamMeasures(filter)) {
+      return MeasureBucketStore.aggregateRollups(measures, unit, binSize).stream();
+    }
+  }
+
+  /**
+   * Find the distinct isle ids of the measures of a filter, in the database and the archive.
+   *
+   * @param filter the filter
+   * @return the isle ids
+   */
+  public List<ObjectId> findIsleIds(MeasureFilter filter) {
+    Set<ObjectId> isleIds = new LinkedHashSet<>(measureRepository.findIsleIds(filter));
+    isleIds.addAll(measureArchive.findIsleIds(filter));
+    return new ArrayList<>(isleIds);
+  }
+
+  /**
+   * Find measure by id, in the database and then in the archive.
    *
    * @param objectId the ObjectId
    * @return the measure
@@ -67,6 +272,9 @@ public class MeasureService {
    */
   public Measure findMeasureById(ObjectId objectId) throws EntityNotFoundException {
     Optional<Measure> foundMeasure = measureRepository.findById(objectId);
+    if (foundMeasure.isEmpty()) {
+      foundMeasure = measureArchive.findById(objectId);
+    }
     if (foundMeasure.isEmpty()) {
       throw new EntityNotFoundException("Measure");
     }
@@ -80,14 +288,19 @@ public class MeasureService {
    * @param measureDto the measure dto
    * @return the measure
    * @throws EntityNotFoundException the entity not found exception
+   * @throws InvalidMeasureException the invalid measure exception
    */
   public Measure updateByMeasureId(ObjectId objectId, MeasureDto measureDto)
-      throws EntityNotFoundException {
+      throws EntityNotFoundException, InvalidMeasureException {
+    checkPrecision(measureDto);
     Measure foundMeasure = findMeasureById(objectId);
     Measure measure = measureDto.measureFromDto();
     measure.setId(foundMeasure.getId());
     measure.setIsleId(foundMeasure.getIsleId());
-    return measureRepository.save(measure);
+    Measure updatedMeasure = measureRepository.save(measure);
+    removeArchived(foundMeasure);
+    eventPublisher.publishEvent(MeasureEvent.updated(foundMeasure, updatedMeasure));
+    return updatedMeasure;
   }
 
   /**
@@ -98,6 +311,68 @@ public class MeasureService {
    */
   public void deleteMeasureById(ObjectId objectId) throws EntityNotFoundException {
     Measure foundMeasure = findMeasureById(objectId);
+    removeArchived(foundMeasure);
     measureRepository.delete(foundMeasure);
+    eventPublisher.publishEvent(MeasureEvent.deleted(foundMeasure));
+  }
+
+  /**
+   * Remove the archived copy of a measure updated or deleted, so it is not read again.
+   *
+   * @param measure the measure, as it was stored
+   */
+  private void removeArchived(Measure measure) {
+    try {
+      measureArchive.remove(measure);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Find the precision violation of a measure dto. Only the fixed-point storage limits the
+   * decimal places, to the scale of each field; the string storage keeps any value as sent.
+   *
+   * @param measureDto the measure dto
+   * @return the violation, as 'field: message', or null when the values can be stored
+   */
+  public String findPrecisionViolation(MeasureDto measureDto) {
+    if (!fixedPoint) {
+      return null;
+    }
+    Measure measure = measureDto.measureFromDto();
+    for (MeasureField field : MeasureField.values()) {
+      BigDecimal value = field.valueOf(measure);
+      if (value != null && !FixedPointConverter.isExact(field, value)) {
+        return field.getName() + ": must have at most " + field.getScale()
+            + " decimal places with the fixed-point storage";
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check precision.
+   *
+   * @param measureDto the measure dto
+   * @throws InvalidMeasureException the invalid measure exception
+   */
+  private void checkPrecision(MeasureDto measureDto) throws InvalidMeasureException {
+    String violation = findPrecisionViolation(measureDto);
+    if (violation != null) {
+      throw new InvalidMeasureException(violation);
+    }
+  }
+
+  /**
+   * Check isle is working.
+   *
+   * @param isle the isle
+   * @throws NotPermittedException the not permitted exception
+   */
+  private void checkIsleIsWorking(Isle isle) throws NotPermittedException {
+    if (Boolean.FALSE.equals(isle.getIsItWorking())) {
+      throw new NotPermittedException("This Isle doesn't working. It");
+    }
   }
 }
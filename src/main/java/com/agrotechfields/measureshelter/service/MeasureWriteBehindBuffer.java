@@ -0,0 +1,342 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.event.MeasureEvent;
+import com.agrotechfields.measureshelter.repository.MeasureRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class MeasureWriteBehindBuffer. When the write-behind ingest mode is enabled, measures are
+ * queued in a bounded in-memory queue and a single writer thread group commits them with
+ * unordered bulk inserts, flushing when a group reaches the flush size or the flush interval
+ * elapses, whichever comes first.
+ *
+ * <p>The measures were already acknowledged to the clients, so a group whose write fails is not
+ * dropped: it is parked in a bounded dead-letter store and retried with an exponential backoff
+ * until it is written, so the writer never retries a failing database back to back. Only when
+ * the store is full, or the application stops with the database still failing, are the oldest
+ * parked measures lost, counted by {@code measure.ingest.lost}. The retries only insert the
+ * measures not stored yet, so a group partly written by a failed attempt is not duplicated, even
+ * without a unique {@code _id}.
+ */
+@Component
+public class MeasureWriteBehindBuffer {
+
+  /** The logger. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(MeasureWriteBehindBuffer.class);
+
+  /** The measure repository. */
+  @Autowired
+  private MeasureRepository measureRepository;
+
+  /** The event publisher. */
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  /** The meter registry. */
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  /** The write-behind mode flag. */
+  @Value("${measure.ingest.write-behind.enabled:false}")
+  private boolean enabled;
+
+  /** The queue capacity. */
+  @Value("${measure.ingest.write-behind.queue-size:10000}")
+  private int queueSize;
+
+  /** The maximum number of measures in a group commit. */
+  @Value("${measure.ingest.write-behind.flush-size:500}")
+  private int flushSize;
+
+  /** The maximum time a measure waits in the queue before being flushed. */
+  @Value("${measure.ingest.write-behind.flush-interval-ms:1000}")
+  private long flushIntervalMs;
+
+  /** The maximum time to wait for the queue to drain on shutdown. */
+  @Value("${measure.ingest.write-behind.shutdown-timeout-ms:30000}")
+  private long shutdownTimeoutMs;
+
+  /** The maximum number of measures parked in the dead-letter store. */
+  @Value("${measure.ingest.write-behind.dead-letter-size:100000}")
+  private int deadLetterSize;
+
+  /** The first delay before retrying the parked groups, doubled after each failed retry. */
+  @Value("${measure.ingest.write-behind.retry-backoff-ms:1000}")
+  private long retryBackoffMs;
+
+  /** The maximum delay before retrying the parked groups. */
+  @Value("${measure.ingest.write-behind.max-retry-backoff-ms:60000}")
+  private long maxRetryBackoffMs;
+
+  /** The queue. */
+  private BlockingQueue<Measure> queue;
+
+  /** The writer thread. */
+  private Thread writer;
+
+  /** The accepting flag, cleared on shutdown. */
+  private volatile boolean accepting;
+
+  /** The flush latency timer. */
+  private Timer flushTimer;
+
+  /** The rejected measures counter. */
+  private Counter rejectedCounter;
+
+  /** The failed measures counter. */
+  private Counter failedCounter;
+
+  /** The lost measures counter. */
+  private Counter lostCounter;
+
+  /** The groups that failed every attempt, oldest first, only used by the writer thread. */
+  private final Deque<List<Measure>> deadLetters = new ArrayDeque<>();
+
+  /** The number of parked measures. */
+  private final AtomicInteger deadLetterCount = new AtomicInteger();
+
+  /** The current delay before retrying the parked groups. */
+  private long backoffMs;
+
+  /** The time of the next retry of the parked groups, in nanoseconds. */
+  private long nextRetry;
+
+  /**
+   * Start the writer thread when the write-behind mode is enabled.
+   */
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    queue = new ArrayBlockingQueue<>(queueSize);
+
+    Gauge.builder("measure.ingest.queue.depth", queue, BlockingQueue::size)
+        .description("Measures waiting to be written")
+        .register(meterRegistry);
+    Gauge.builder("measure.ingest.queue.capacity", queue, q -> queueSize)
+        .description("Capacity of the write-behind queue")
+        .register(meterRegistry);
+    flushTimer = Timer.builder("measure.ingest.flush")
+        .description("Latency of the write-behind group commits")
+        .register(meterRegistry);
+    rejectedCounter = Counter.builder("measure.ingest.rejected")
+        .description("Measures written directly because the queue was full")
+        .register(meterRegistry);
+    failedCounter = Counter.builder("measure.ingest.failed")
+        .description("Measures parked in the dead-letter store after a failed write")
+        .register(meterRegistry);
+    lostCounter = Counter.builder("measure.ingest.lost")
+        .description("Acknowledged measures dropped without being written")
+        .register(meterRegistry);
+    Gauge.builder("measure.ingest.dead-letter.size", deadLetterCount, AtomicInteger::get)
+        .description("Measures parked in the dead-letter store, waiting for a retry")
+        .register(meterRegistry);
+    backoffMs = retryBackoffMs;
+
+    accepting = true;
+    writer = new Thread(this::run, "measure-write-behind");
+    writer.start();
+  }
+
+  /**
+   * Checks if the write-behind mode is enabled.
+   *
+   * @return true, if enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Offer a measure to the queue without blocking.
+   *
+   * @param measure the measure with its id already assigned
+   * @return true, if the measure was queued; false if the queue is full or shutting down
+   */
+  public boolean offer(Measure measure) {
+    if (accepting && queue.offer(measure)) {
+      return true;
+    }
+    rejectedCounter.increment();
+    return false;
+  }
+
+  /**
+   * Gets the number of measures parked in the dead-letter store.
+   *
+   * @return the number of parked measures
+   */
+  public int getDeadLetterCount() {
+    return deadLetterCount.get();
+  }
+
+  /**
+   * Stop accepting measures and drain the queue before the repository goes away.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (writer == null) {
+      return;
+    }
+    accepting = false;
+    writer.join(shutdownTimeoutMs);
+    if (writer.isAlive()) {
+      LOGGER.warn("Write-behind writer did not drain in {} ms, {} measures left in the queue",
+          shutdownTimeoutMs, queue.size());
+      writer.interrupt();
+    }
+  }
+
+  /**
+   * Writer loop. Waits for the first measure of a group, then collects more until the group is
+   * full or the flush interval elapses.
+   */
+  private void run() {
+    List<Measure> group = new ArrayList<>(flushSize);
+    try {
+      while (accepting || !queue.isEmpty()) {
+        retryDeadLetters(false);
+        Measure first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        while (group.size() < flushSize && accepting) {
+          queue.drainTo(group, flushSize - group.size());
+          long remaining = deadline - System.nanoTime();
+          if (group.size() >= flushSize || remaining <= 0) {
+            break;
+          }
+          Measure next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          group.add(next);
+        }
+        queue.drainTo(group, flushSize - group.size());
+
+        flush(group);
+        group.clear();
+      }
+      retryDeadLetters(true);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      lose(group.size() + queue.size());
+    }
+    if (deadLetterCount.get() > 0) {
+      lose(deadLetterCount.get());
+      deadLetters.clear();
+      deadLetterCount.set(0);
+    }
+  }
+
+  /**
+   * Flush a group with an unordered bulk insert and publish the created measures once it is
+   * written. A group whose write fails is parked, to be retried after the backoff.
+   *
+   * @param group the group
+   */
+  private void flush(List<Measure> group) {
+    if (write(group, false)) {
+      return;
+    }
+    failedCounter.increment(group.size());
+    List<Measure> parked = List.copyOf(group);
+    deadLetters.addLast(parked);
+    int count = deadLetterCount.addAndGet(parked.size());
+    while (count > deadLetterSize && deadLetters.size() > 1) {
+      List<Measure> oldest = deadLetters.removeFirst();
+      count = deadLetterCount.addAndGet(-oldest.size());
+      lose(oldest.size());
+    }
+    if (deadLetters.size() == 1) {
+      nextRetry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+    }
+  }
+
+  /**
+   * Retry the parked groups, oldest first, once their backoff elapsed. A failure doubles the
+   * backoff, up to its maximum; a success resets it.
+   *
+   * @param now true to retry right away, when the writer stops
+   */
+  private void retryDeadLetters(boolean now) {
+    if (deadLetters.isEmpty() || !now && System.nanoTime() - nextRetry < 0) {
+      return;
+    }
+    while (!deadLetters.isEmpty()) {
+      List<Measure> group = deadLetters.peekFirst();
+      if (!write(group, true)) {
+        backoffMs = Math.min(backoffMs * 2, maxRetryBackoffMs);
+        nextRetry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+        LOGGER.warn("Write-behind retry failed, {} measures parked, next retry in {} ms",
+            deadLetterCount.get(), backoffMs);
+        return;
+      }
+      deadLetters.removeFirst();
+      deadLetterCount.addAndGet(-group.size());
+    }
+    backoffMs = retryBackoffMs;
+    LOGGER.info("Write-behind dead-letter store drained");
+  }
+
+  /**
+   * Write a group in a single attempt and publish the created measures once it is written. A
+   * failed attempt may have written part of the group, so the retries only insert the measures
+   * not stored yet.
+   *
+   * @param group the group
+   * @param retry true, if the group was already attempted
+   * @return true, if written
+   */
+  private boolean write(List<Measure> group, boolean retry) {
+    try {
+      flushTimer.record(() -> retry
+          ? measureRepository.insertMissing(group)
+          : measureRepository.insertUnordered(group));
+    } catch (RuntimeException e) {
+      LOGGER.warn("Write-behind {} of {} measures failed", retry ? "retry" : "flush",
+          group.size(), e);
+      return false;
+    }
+    eventPublisher.publishEvent(MeasureEvent.created(group));
+    return true;
+  }
+
+  /**
+   * Count acknowledged measures dropped without being written.
+   *
+   * @param count the number of measures
+   */
+  private void lose(int count) {
+    if (count > 0) {
+      LOGGER.error("Write-behind dropped {} acknowledged measures", count);
+      lostCounter.increment(count);
+    }
+  }
+}
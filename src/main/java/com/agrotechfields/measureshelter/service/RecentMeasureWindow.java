@@ -0,0 +1,163 @@
+package com.agrotechfields.measureshelter.service;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.event.MeasureEvent;
+import com.agrotechfields.measureshelter.repository.MeasureFilter;
+import com.agrotechfields.measureshelter.repository.MeasureRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class RecentMeasureWindow. One {@link MeasureRing} for each isle with the measures of the
+ * last hours, pre-warmed from the database when the application is ready and kept up to date
+ * with the measure events of this instance. Time range queries of an isle inside the window are
+ * answered from memory.
+ *
+ * <p>The events are local, so the window misses the measures written by other instances and
+ * would serve stale reads behind a load balancer. It is disabled by default, and should only be
+ * enabled ({@code measure.window.enabled}) when a single instance writes the measures.
+ */
+@Component
+public class RecentMeasureWindow {
+
+  /** The logger. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(RecentMeasureWindow.class);
+
+  /** The measure repository. */
+  @Autowired
+  private MeasureRepository measureRepository;
+
+  /** The window flag. */
+  @Value("${measure.window.enabled:false}")
+  private boolean enabled;
+
+  /** The hours of measures kept. */
+  @Value("${measure.window.hours:72}")
+  private int hours;
+
+  /** The maximum number of measures kept for each isle. */
+  @Value("${measure.window.capacity:8640}")
+  private int capacity;
+
+  /** The rings by isle id. */
+  private final Map<ObjectId, MeasureRing> rings = new ConcurrentHashMap<>();
+
+  /** The ready flag, set once the window is pre-warmed. */
+  private volatile boolean ready;
+
+  /** The timestamp from which the window was pre-warmed. */
+  private volatile LocalDateTime warmedFrom;
+
+  /**
+   * Pre-warm the window with the measures of the last hours. Measures created meanwhile are
+   * added by their events, the ones read twice are replaced.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warm() {
+    if (!enabled) {
+      return;
+    }
+    LOGGER.warn("The recent measure window only sees the measures written by this instance, "
+        + "reads inside it are stale if other instances write measures");
+    warmedFrom = LocalDateTime.now().minusHours(hours);
+    MeasureFilter filter = new MeasureFilter(null, warmedFrom, null, Direction.ASC);
+    try (Stream<Measure> measures = measureRepository.stream(filter)) {
+      measures.forEach(this::add);
+    }
+    ready = true;
+    LOGGER.info("Pre-warmed {} measures of {} isles from {}",
+        rings.values().stream().mapToInt(MeasureRing::size).sum(), rings.size(), warmedFrom);
+  }
+
+  /**
+   * Checks if the measures of a filter are all in the window.
+   *
+   * @param filter the filter
+   * @return true, if covered
+   */
+  public boolean covers(MeasureFilter filter) {
+    if (!ready || filter.getIsleId() == null || filter.getFrom() == null
+        || filter.getFrom().isBefore(warmedFrom)) {
+      return false;
+    }
+    MeasureRing ring = rings.get(filter.getIsleId());
+    return ring == null || ring.covers(filter.getFrom());
+  }
+
+  /**
+   * Find the measures of a filter covered by the window.
+   *
+   * @param filter the filter
+   * @param limit the maximum number of measures, zero for no limit
+   * @return the measures
+   */
+  public List<Measure> find(MeasureFilter filter, int limit) {
+    MeasureRing ring = rings.get(filter.getIsleId());
+    if (ring == null) {
+      return List.of();
+    }
+    return ring.find(filter.getIsleId(), filter.getFrom(), filter.getTo(),
+        filter.getDirection(), limit);
+  }
+
+  /**
+   * Update the window with written measures. Measures older than the window are evicted as the
+   * new ones are added.
+   *
+   * @param event the measure event
+   */
+  @EventListener
+  public void onMeasureEvent(MeasureEvent event) {
+    if (!enabled) {
+      return;
+    }
+    if (event.getPrevious() != null) {
+      remove(event.getPrevious());
+    }
+    for (Measure measure : event.getMeasures()) {
+      if (event.getType() == MeasureEvent.Type.DELETED) {
+        remove(measure);
+      } else {
+        add(measure);
+      }
+    }
+  }
+
+  /**
+   * Add a measure to the ring of its isle, evicting the measures older than the window.
+   *
+   * @param measure the measure
+   */
+  private void add(Measure measure) {
+    if (measure.getIsleId() == null) {
+      return;
+    }
+    MeasureRing ring = rings.computeIfAbsent(measure.getIsleId(), id -> new MeasureRing(capacity));
+    ring.evictBefore(MeasureRing.toMillis(LocalDateTime.now().minusHours(hours)));
+    ring.add(measure);
+  }
+
+  /**
+   * Remove a measure from the ring of its isle.
+   *
+   * @param measure the measure
+   */
+  private void remove(Measure measure) {
+    MeasureRing ring = measure.getIsleId() == null ? null : rings.get(measure.getIsleId());
+    if (ring != null) {
+      ring.remove(measure.getId());
+    }
+  }
+}
@@ -141,7 +141,8 @@ public class UserService implements UserDetailsService {
   }
 
   /**
-   * Update context user.
+   * Update context user. The principal is shared by the principal cache, so the user is reloaded
+   * and the copy is changed instead.
    *
    * @param userDto the user dto
    * @return the user
@@ -155,9 +156,11 @@ public class UserService implements UserDetailsService {
       throw new EntityAlreadyExistsException("User");
     }
 
-    contextUser.setUsername(userDto.getUsername());
-    contextUser.setPassword(passwordEncoder.encode(userDto.getPassword()));
-    return userRepository.save(contextUser);
+    User user = userRepository.findById(contextUser.getId())
+        .orElseThrow(() -> new UsernameNotFoundException(contextUser.getUsername()));
+    user.setUsername(userDto.getUsername());
+    user.setPassword(passwordEncoder.encode(userDto.getPassword()));
+    return userRepository.save(user);
   }
 
   /**
@@ -0,0 +1,46 @@
+package com.agrotechfields.measureshelter.storage;
+
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class ArchiveEndpoint. Actuator endpoint to follow and start the {@link MeasureArchive}
+ * runs: {@code GET /actuator/archive} and {@code POST /actuator/archive}.
+ */
+@Component
+@Endpoint(id = "archive")
+public class ArchiveEndpoint {
+
+  /** The measure archive. */
+  @Autowired
+  private MeasureArchive measureArchive;
+
+  /**
+   * Status of the archive.
+   *
+   * @return the status
+   */
+  @ReadOperation
+  public Map<String, Object> status() {
+    return measureArchive.getStatus();
+  }
+
+  /**
+   * Start an archive run in the background, if none is running.
+   *
+   * @return the status
+   */
+  @WriteOperation
+  public Map<String, Object> start() {
+    if (!measureArchive.isEnabled()) {
+      throw new InvalidEndpointRequestException("Archive disabled", "Archive disabled");
+    }
+    measureArchive.start();
+    return measureArchive.getStatus();
+  }
+}
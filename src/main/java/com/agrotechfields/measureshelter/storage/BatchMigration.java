@@ -0,0 +1,177 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.storage.MigrationProgress.Status;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * The Class BatchMigration. Base of the online data migrations: walks a source collection in
+ * {@code _id} order, one batch per query, and saves a {@link MigrationProgress} checkpoint after
+ * each batch, so it runs in the background while the application keeps serving and resumes from
+ * the last checkpoint when started again. Started through the {@code migrations} actuator
+ * endpoint.
+ */
+public abstract class BatchMigration {
+
+  /** The logger. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchMigration.class);
+
+  /** The mongo template. */
+  @Autowired
+  protected MongoTemplate mongoTemplate;
+
+  /** The running flag. */
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  /**
+   * Gets the migration name.
+   *
+   * @return the name
+   */
+  public abstract String getName();
+
+  /**
+   * Gets the source collection.
+   *
+   * @return the source collection
+   */
+  protected abstract String getSourceCollection();
+
+  /**
+   * Filter of the source documents that need the migration. Matches all of them by default.
+   *
+   * @return the filter
+   */
+  protected Bson getFilter() {
+    return new Document();
+  }
+
+  /**
+   * Projection of the source documents read in a batch. Reads the whole documents by default.
+   *
+   * @return the projection, null for the whole documents
+   */
+  protected Bson getProjection() {
+    return null;
+  }
+
+  /**
+   * Migrate a batch of source documents.
+   *
+   * @param batch the batch, in {@code _id} order
+   * @param resumed true for the first batch after a resume, which may already be partially
+   *        migrated if the previous run stopped between the write and the checkpoint
+   */
+  protected abstract void migrate(List<Document> batch, boolean resumed);
+
+  /**
+   * Start the migration in the background.
+   *
+   * @param batchSize the batch size
+   * @return true, if started; false if it is already running
+   */
+  public boolean start(int batchSize) {
+    if (!running.compareAndSet(false, true)) {
+      return false;
+    }
+    Thread thread = new Thread(() -> run(batchSize), "migration-" + getName());
+    thread.setDaemon(true);
+    thread.start();
+    return true;
+  }
+
+  /**
+   * Gets the progress.
+   *
+   * @return the progress
+   */
+  public MigrationProgress getProgress() {
+    MigrationProgress progress = mongoTemplate.findById(getName(), MigrationProgress.class);
+    return progress == null ? new MigrationProgress(getName()) : progress;
+  }
+
+  /**
+   * Checks if it is running.
+   *
+   * @return true, if running
+   */
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  /**
+   * Run the migration until the source is exhausted or an error happens.
+   *
+   * @param batchSize the batch size
+   */
+  private void run(int batchSize) {
+    MigrationProgress progress = getProgress();
+    boolean resumed = progress.getLastId() != null;
+    progress.setStatus(Status.RUNNING);
+    progress.setStartedAt(LocalDateTime.now());
+    progress.setError(null);
+    save(progress);
+    LOGGER.info("Migration '{}' started after id {}", getName(), progress.getLastId());
+
+    try {
+      List<Document> batch = nextBatch(progress.getLastId(), batchSize);
+      while (!batch.isEmpty()) {
+        migrate(batch, resumed);
+        resumed = false;
+        progress.setLastId(batch.get(batch.size() - 1).getObjectId("_id"));
+        progress.setMigrated(progress.getMigrated() + batch.size());
+        save(progress);
+        batch = nextBatch(progress.getLastId(), batchSize);
+      }
+      progress.setStatus(Status.COMPLETED);
+      LOGGER.info("Migration '{}' completed, {} documents", getName(), progress.getMigrated());
+    } catch (RuntimeException e) {
+      progress.setStatus(Status.FAILED);
+      progress.setError(e.getMessage());
+      LOGGER.error("Migration '{}' failed after id {}", getName(), progress.getLastId(), e);
+    } finally {
+      save(progress);
+      running.set(false);
+    }
+  }
+
+  /**
+   * Next batch of source documents after an id.
+   *
+   * @param lastId the last id, null to start from the beginning
+   * @param batchSize the batch size
+   * @return the batch
+   */
+  private List<Document> nextBatch(ObjectId lastId, int batchSize) {
+    Bson filter = lastId == null
+        ? getFilter()
+        : Filters.and(getFilter(), Filters.gt("_id", lastId));
+    return mongoTemplate.getCollection(getSourceCollection())
+        .find(filter)
+        .projection(getProjection())
+        .sort(Sorts.ascending("_id"))
+        .limit(batchSize)
+        .into(new ArrayList<>(batchSize));
+  }
+
+  /**
+   * Save the progress.
+   *
+   * @param progress the progress
+   */
+  private void save(MigrationProgress progress) {
+    progress.setUpdatedAt(LocalDateTime.now());
+    mongoTemplate.save(progress);
+  }
+}
@@ -0,0 +1,76 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.mongodb.client.model.Filters;
+import java.util.List;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class BucketMigration. Packs the measure documents into the buckets of the
+ * {@link MeasureBucketStore}, keeping their ids, so the storage can be switched with
+ * {@code measure.storage.buckets.enabled} once it completes. The measures a previous run already
+ * packed are skipped by the buckets, and the measure documents are left untouched as a fallback.
+ */
+@Component
+public class BucketMigration extends BatchMigration {
+
+  /** The measure collection. */
+  @Autowired
+  private MeasureCollection measureCollection;
+
+  /** The bucket store. */
+  @Autowired
+  private MeasureBucketStore bucketStore;
+
+  /**
+   * Gets the migration name.
+   *
+   * @return the name
+   */
+  @Override
+  public String getName() {
+    return "measure-buckets";
+  }
+
+  /**
+   * Gets the source collection.
+   *
+   * @return the measure collection in use
+   */
+  @Override
+  protected String getSourceCollection() {
+    return measureCollection.getName();
+  }
+
+  /**
+   * Filter of the measures with an isle and a timestamp, the only ones a bucket accepts.
+   *
+   * @return the filter
+   */
+  @Override
+  protected Bson getFilter() {
+    return Filters.and(Filters.type(MeasureCollection.META_FIELD, "objectId"),
+        Filters.type(MeasureCollection.TIME_FIELD, "date"));
+  }
+
+  /**
+   * Migrate a batch, read as the mapping reads the measure documents.
+   *
+   * @param batch the batch
+   * @param resumed the resumed flag
+   */
+  @Override
+  protected void migrate(List<Document> batch, boolean resumed) {
+    bucketStore.createIndexes();
+    List<Measure> measures = batch.stream()
+        .map(document -> {
+          LegacyKeyListener.moveLegacyKeys(document);
+          return mongoTemplate.getConverter().read(Measure.class, document);
+        })
+        .toList();
+    bucketStore.insert(measures);
+  }
+}
@@ -0,0 +1,147 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+/**
+ * The Class FixedPointConverter. Converts a sensor field of a measure between its
+ * {@link BigDecimal} value and its stored value. With the fixed-point storage the value is
+ * stored as an integer scaled by the declared decimal places of the field, e.g. {@code 30.66}
+ * as {@code 3066}, and read back with that scale, {@code 30.66} or {@code 25.10}; otherwise as a
+ * string, the default mapping. A value with more decimal places than the declared ones is not
+ * rounded: the API rejects it with the fixed-point storage, see {@code MeasureService}, and one
+ * stored before, a legacy value, is kept as a string. Both are read, so the collection can be
+ * migrated while it is used.
+ */
+public class FixedPointConverter implements MongoValueConverter<BigDecimal, Object> {
+
+  /** The field. */
+  private final MeasureField field;
+
+  /** The fixed-point flag. */
+  private final boolean fixedPoint;
+
+  /**
+   * Instantiates a new fixed point converter.
+   *
+   * @param field the field
+   * @param fixedPoint the fixed-point flag
+   */
+  public FixedPointConverter(MeasureField field, boolean fixedPoint) {
+    this.field = field;
+    this.fixedPoint = fixedPoint;
+  }
+
+  /**
+   * Read a stored value.
+   *
+   * @param value the stored value
+   * @param context the context
+   * @return the value
+   */
+  @Override
+  public BigDecimal read(Object value, MongoConversionContext context) {
+    return readStored(field, value);
+  }
+
+  /**
+   * Write a value.
+   *
+   * @param value the value
+   * @param context the context
+   * @return the stored value
+   */
+  @Override
+  public Object write(BigDecimal value, MongoConversionContext context) {
+    return fixedPoint ? toStored(field, value) : value.toString();
+  }
+
+  /**
+   * Read a stored value of a field, a scaled integer, a string, a double or a decimal.
+   *
+   * @param field the field
+   * @param value the stored value
+   * @return the value, a scaled integer with the declared scale of the field
+   */
+  public static BigDecimal readStored(MeasureField field, Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof Integer || value instanceof Long) {
+      return BigDecimal.valueOf(((Number) value).longValue(), field.getScale());
+    }
+    if (value instanceof Double number) {
+      return BigDecimal.valueOf(number);
+    }
+    if (value instanceof Decimal128 number) {
+      return number.bigDecimalValue();
+    }
+    return new BigDecimal(value.toString());
+  }
+
+  /**
+   * Checks if a value of a field is stored without rounding, with no more decimal places than
+   * the declared ones.
+   *
+   * @param field the field
+   * @param value the value
+   * @return true, if exact
+   */
+  public static boolean isExact(MeasureField field, BigDecimal value) {
+    return value.stripTrailingZeros().scale() <= field.getScale();
+  }
+
+  /**
+   * Convert a value of a field to its fixed-point stored value: the scaled integer, or the string
+   * of a legacy value with more decimal places than the declared ones, kept without loss.
+   *
+   * @param field the field
+   * @param value the value
+   * @return the stored value
+   */
+  public static Object toStored(MeasureField field, BigDecimal value) {
+    return isExact(field, value) ? toFixedPoint(field, value) : value.toString();
+  }
+
+  /**
+   * Convert a value of a field to its scaled integer, an int when it fits.
+   *
+   * @param field the field
+   * @param value the value
+   * @return the scaled integer
+   * @throws IllegalArgumentException if the value has more decimal places than the declared ones
+   */
+  public static Number toFixedPoint(MeasureField field, BigDecimal value) {
+    if (!isExact(field, value)) {
+      throw new IllegalArgumentException(String.format("%s %s has more than %d decimal places",
+          field.getName(), value.toPlainString(), field.getScale()));
+    }
+    long scaled = value.setScale(field.getScale(), RoundingMode.UNNECESSARY).unscaledValue()
+        .longValueExact();
+    if (scaled >= Integer.MIN_VALUE && scaled <= Integer.MAX_VALUE) {
+      return (int) scaled;
+    }
+    return scaled;
+  }
+
+  /**
+   * Aggregation expression of the double value of a stored field, whether it is still a string
+   * or already a scaled integer, under its short key or, not yet migrated, its property name.
+   *
+   * @param field the field
+   * @return the expression
+   */
+  public static Document toDouble(MeasureField field) {
+    Document path =
+        new Document("$ifNull", List.of("$" + field.getKey(), "$" + field.getName()));
+    Document isString = new Document("$eq", List.of(new Document("$type", path), "string"));
+    Document scaled = new Document("$divide", List.of(path, Math.pow(10, field.getScale())));
+    return new Document("$cond", List.of(isString, new Document("$toDouble", path), scaled));
+  }
+}
@@ -0,0 +1,107 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class FixedPointMigration. Rewrites the sensor fields of the measures still stored as
+ * strings as scaled integers, see {@link FixedPointConverter}. Each field is only replaced while
+ * it is still the string that was read, so a resumed or repeated run, or a measure updated
+ * meanwhile, is not converted twice. A value with more decimal places than the declared ones is
+ * not rounded: the migration fails with the ids of the measures of the batch holding them, so
+ * they are corrected before it is resumed from that batch.
+ */
+@Component
+public class FixedPointMigration extends BatchMigration {
+
+  /** The measure collection. */
+  @Autowired
+  private MeasureCollection measureCollection;
+
+  /**
+   * Gets the migration name.
+   *
+   * @return the name
+   */
+  @Override
+  public String getName() {
+    return "measure-fixed-point";
+  }
+
+  /**
+   * Gets the source collection.
+   *
+   * @return the measure collection in use
+   */
+  @Override
+  protected String getSourceCollection() {
+    return measureCollection.getName();
+  }
+
+  /**
+   * Filter of the measures with a sensor field stored as a string, under its short key or its
+   * property name.
+   *
+   * @return the filter
+   */
+  @Override
+  protected Bson getFilter() {
+    List<Bson> strings = new ArrayList<>();
+    for (MeasureField field : MeasureField.values()) {
+      strings.add(Filters.type(field.getKey(), "string"));
+      strings.add(Filters.type(field.getName(), "string"));
+    }
+    return Filters.or(strings);
+  }
+
+  /**
+   * Migrate a batch with an unordered bulk of updates.
+   *
+   * @param batch the batch
+   * @param resumed the resumed flag
+   */
+  @Override
+  protected void migrate(List<Document> batch, boolean resumed) {
+    List<WriteModel<Document>> updates = new ArrayList<>(batch.size());
+    List<String> inexact = new ArrayList<>();
+    for (Document document : batch) {
+      List<Bson> unchanged = new ArrayList<>();
+      unchanged.add(Filters.eq("_id", document.get("_id")));
+      Document set = new Document();
+      for (MeasureField field : MeasureField.values()) {
+        for (String key : List.of(field.getKey(), field.getName())) {
+          if (document.get(key) instanceof String value) {
+            BigDecimal decimal = new BigDecimal(value);
+            if (!FixedPointConverter.isExact(field, decimal)) {
+              inexact.add(document.get("_id") + " " + field.getName() + "=" + value);
+              continue;
+            }
+            unchanged.add(Filters.eq(key, value));
+            set.append(key, FixedPointConverter.toFixedPoint(field, decimal));
+          }
+        }
+      }
+      if (!set.isEmpty()) {
+        updates.add(new UpdateOneModel<>(Filters.and(unchanged), new Document("$set", set)));
+      }
+    }
+    if (!inexact.isEmpty()) {
+      throw new IllegalStateException("Measures with more decimal places than the fixed-point "
+          + "storage keeps, not rounded: " + String.join(", ", inexact));
+    }
+    if (!updates.isEmpty()) {
+      mongoTemplate.getCollection(getSourceCollection())
+          .bulkWrite(updates, new BulkWriteOptions().ordered(false));
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.agrotechfields.measureshelter.storage;
+
+/**
+ * The Class GorillaReader. Reads back the rows compressed by a {@link GorillaWriter}.
+ */
+public class GorillaReader {
+
+  /** The bits. */
+  private final byte[] bytes;
+
+  /** The number of columns. */
+  private final int columns;
+
+  /** The number of rows. */
+  private final int count;
+
+  /** The milliseconds of the unit of the timestamps. */
+  private final long unit;
+
+  /** The number of read bits. */
+  private int position;
+
+  /** The number of read rows. */
+  private int read;
+
+  /** The timestamp of the current row, in units. */
+  private long timestamp;
+
+  /** The delta of the timestamps. */
+  private long delta;
+
+  /** The bits of each column of the current row. */
+  private final long[] values;
+
+  /** The leading zeros of the last XOR block of each column. */
+  private final int[] leading;
+
+  /** The trailing zeros of the last XOR block of each column. */
+  private final int[] trailing;
+
+  /**
+   * Instantiates a new gorilla reader.
+   *
+   * @param bytes the compressed rows
+   * @param columns the number of columns
+   * @param count the number of rows
+   */
+  public GorillaReader(byte[] bytes, int columns, int count) {
+    this.bytes = bytes;
+    this.columns = columns;
+    this.count = count;
+    this.values = new long[columns];
+    this.leading = new int[columns];
+    this.trailing = new int[columns];
+    this.unit = readBits(1) == 1 ? 1000 : 1;
+  }
+
+  /**
+   * Move to the next row.
+   *
+   * @return true, if there is one
+   */
+  public boolean next() {
+    if (read == count) {
+      return false;
+    }
+    if (read == 0) {
+      timestamp = readBits(64);
+    } else {
+      delta += readDeltaOfDelta();
+      timestamp += delta;
+    }
+
+    for (int column = 0; column < columns; column++) {
+      values[column] = read == 0 ? readBits(64) : values[column] ^ readXor(column);
+    }
+    read++;
+    return true;
+  }
+
+  /**
+   * Gets the timestamp of the current row.
+   *
+   * @return the timestamp, in milliseconds
+   */
+  public long getTimestamp() {
+    return timestamp * unit;
+  }
+
+  /**
+   * Gets a value of the current row.
+   *
+   * @param column the column
+   * @return the value, NaN if missing
+   */
+  public double getValue(int column) {
+    return Double.longBitsToDouble(values[column]);
+  }
+
+  /**
+   * Read a delta-of-delta.
+   *
+   * @return the delta-of-delta
+   */
+  private long readDeltaOfDelta() {
+    int length;
+    if (readBits(1) == 0) {
+      return 0;
+    } else if (readBits(1) == 0) {
+      length = 7;
+    } else if (readBits(1) == 0) {
+      length = 9;
+    } else if (readBits(1) == 0) {
+      length = 12;
+    } else {
+      return readBits(64);
+    }
+    long value = readBits(length);
+    return value << (64 - length) >> (64 - length);
+  }
+
+  /**
+   * Read the XOR of a value with the previous one of its column.
+   *
+   * @param column the column
+   * @return the XOR
+   */
+  private long readXor(int column) {
+    if (readBits(1) == 0) {
+      return 0;
+    }
+    if (readBits(1) == 1) {
+      leading[column] = (int) readBits(GorillaWriter.LEADING_BITS);
+      int length = (int) readBits(GorillaWriter.LENGTH_BITS) + 1;
+      trailing[column] = 64 - leading[column] - length;
+    }
+    return readBits(64 - leading[column] - trailing[column]) << trailing[column];
+  }
+
+  /**
+   * Read bits, the most significant first.
+   *
+   * @param length the number of bits, up to 64
+   * @return the bits, as the low bits of a value
+   */
+  private long readBits(int length) {
+    long value = 0;
+    for (int bit = 0; bit < length; bit++) {
+      value = value << 1 | (bytes[position >>> 3] >>> (7 - (position & 7)) & 1);
+      position++;
+    }
+    return value;
+  }
+}
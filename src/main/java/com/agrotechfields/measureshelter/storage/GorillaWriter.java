@@ -0,0 +1,190 @@
+package com.agrotechfields.measureshelter.storage;
+
+import java.util.Arrays;
+
+/**
+ * The Class GorillaWriter. Compresses rows of a timestamp and a fixed number of double columns
+ * into a bit stream, as described by the Gorilla paper (Pelkonen et al., VLDB 2015): the
+ * timestamps as delta-of-deltas in variable-length buckets and each column as the XOR of its
+ * previous value, where a repeated value costs a single bit. Read by {@link GorillaReader}.
+ *
+ * <p>The stream starts with one bit for the unit of the timestamps, seconds when all of them are
+ * whole seconds and milliseconds otherwise, so regular samples keep a zero delta-of-delta.
+ */
+public class GorillaWriter {
+
+  /** The number of bits of the leading zeros of a XOR block. */
+  static final int LEADING_BITS = 5;
+
+  /** The number of bits of the length of a XOR block. */
+  static final int LENGTH_BITS = 6;
+
+  /** The maximum number of leading zeros of a XOR block. */
+  static final int MAX_LEADING = (1 << LEADING_BITS) - 1;
+
+  /** The number of columns. */
+  private final int columns;
+
+  /** The milliseconds of the unit of the timestamps. */
+  private final long unit;
+
+  /** The bits. */
+  private byte[] bytes = new byte[64];
+
+  /** The number of written bits. */
+  private int position;
+
+  /** The number of rows. */
+  private int count;
+
+  /** The previous timestamp, in units. */
+  private long previousTimestamp;
+
+  /** The previous delta of the timestamps. */
+  private long previousDelta;
+
+  /** The previous bits of each column. */
+  private final long[] previousValues;
+
+  /** The leading zeros of the previous XOR block of each column, -1 before the first. */
+  private final int[] previousLeading;
+
+  /** The trailing zeros of the previous XOR block of each column. */
+  private final int[] previousTrailing;
+
+  /**
+   * Instantiates a new gorilla writer.
+   *
+   * @param columns the number of columns
+   * @param seconds true, if all timestamps are whole seconds
+   */
+  public GorillaWriter(int columns, boolean seconds) {
+    this.columns = columns;
+    this.unit = seconds ? 1000 : 1;
+    this.previousValues = new long[columns];
+    this.previousLeading = new int[columns];
+    this.previousTrailing = new int[columns];
+    Arrays.fill(previousLeading, -1);
+    writeBits(seconds ? 1 : 0, 1);
+  }
+
+  /**
+   * Append a row. A missing value is written as a NaN.
+   *
+   * @param timestamp the timestamp, in milliseconds
+   * @param values the value of each column
+   */
+  public void append(long timestamp, double[] values) {
+    long time = timestamp / unit;
+    if (count == 0) {
+      writeBits(time, 64);
+    } else {
+      long delta = time - previousTimestamp;
+      writeDeltaOfDelta(delta - previousDelta);
+      previousDelta = delta;
+    }
+    previousTimestamp = time;
+
+    for (int column = 0; column < columns; column++) {
+      long bits = Double.doubleToLongBits(values[column]);
+      if (count == 0) {
+        writeBits(bits, 64);
+      } else {
+        writeXor(column, bits ^ previousValues[column]);
+      }
+      previousValues[column] = bits;
+    }
+    count++;
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return the count
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the compressed rows.
+   *
+   * @return the bytes
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(bytes, (position + 7) >>> 3);
+  }
+
+  /**
+   * Write a delta-of-delta: a single zero bit when the delta did not change, a 7, 9 or 12 bit
+   * value after a 2, 3 or 4 bit prefix, or the whole value.
+   *
+   * @param deltaOfDelta the delta-of-delta
+   */
+  private void writeDeltaOfDelta(long deltaOfDelta) {
+    if (deltaOfDelta == 0) {
+      writeBits(0b0, 1);
+    } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+      writeBits(0b10, 2);
+      writeBits(deltaOfDelta, 7);
+    } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+      writeBits(0b110, 3);
+      writeBits(deltaOfDelta, 9);
+    } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+      writeBits(0b1110, 4);
+      writeBits(deltaOfDelta, 12);
+    } else {
+      writeBits(0b1111, 4);
+      writeBits(deltaOfDelta, 64);
+    }
+  }
+
+  /**
+   * Write the XOR of a value with the previous one of its column: a single zero bit when it is
+   * repeated, otherwise its meaningful bits, inside the window of the previous block when they
+   * fit in it, or after the leading zeros and the length of a new block.
+   *
+   * @param column the column
+   * @param xor the XOR
+   */
+  private void writeXor(int column, long xor) {
+    if (xor == 0) {
+      writeBits(0b0, 1);
+      return;
+    }
+    int leading = Math.min(Long.numberOfLeadingZeros(xor), MAX_LEADING);
+    int trailing = Long.numberOfTrailingZeros(xor);
+    if (previousLeading[column] >= 0 && leading >= previousLeading[column]
+        && trailing >= previousTrailing[column]) {
+      writeBits(0b10, 2);
+      writeBits(xor >>> previousTrailing[column],
+          64 - previousLeading[column] - previousTrailing[column]);
+      return;
+    }
+    int length = 64 - leading - trailing;
+    writeBits(0b11, 2);
+    writeBits(leading, LEADING_BITS);
+    writeBits(length - 1, LENGTH_BITS);
+    writeBits(xor >>> trailing, length);
+    previousLeading[column] = leading;
+    previousTrailing[column] = trailing;
+  }
+
+  /**
+   * Write the low bits of a value, the most significant first.
+   *
+   * @param value the value
+   * @param length the number of bits, up to 64
+   */
+  private void writeBits(long value, int length) {
+    if (position + length > bytes.length * 8) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, (position + length + 7) >>> 3));
+    }
+    for (int bit = length - 1; bit >= 0; bit--) {
+      if ((value >>> bit & 1) != 0) {
+        bytes[position >>> 3] |= (byte) (0x80 >>> (position & 7));
+      }
+      position++;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Image;
+import com.agrotechfields.measureshelter.service.ImageService;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.util.List;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class ImageMigration. Moves the content of the images created before GridFS from their
+ * {@code imageData} field to the GridFS bucket of the images, under the same id, then removes the
+ * field, and sets the content length and hash of the images without them. The batches only read
+ * the ids, and the images are loaded one at a time. A file already stored by a previous run is
+ * kept, and the chunks of an interrupted upload are removed before storing it again. Until it
+ * completes, both layouts are read.
+ */
+@Component
+public class ImageMigration extends BatchMigration {
+
+  /** The GridFS operations of the image bucket. */
+  @Autowired
+  private GridFsOperations gridFsOperations;
+
+  /** The GridFS bucket of the images. */
+  @Value("${spring.data.mongodb.gridfs.bucket:fs}")
+  private String bucket;
+
+  /**
+   * Gets the migration name.
+   *
+   * @return the name
+   */
+  @Override
+  public String getName() {
+    return "images-gridfs";
+  }
+
+  /**
+   * Gets the source collection.
+   *
+   * @return the image collection
+   */
+  @Override
+  protected String getSourceCollection() {
+    return mongoTemplate.getCollectionName(Image.class);
+  }
+
+  /**
+   * Filter of the images with their content in the document or without a content hash.
+   *
+   * @return the filter
+   */
+  @Override
+  protected Bson getFilter() {
+    return Filters.or(Filters.exists("imageData"), Filters.exists("hash", false));
+  }
+
+  /**
+   * Projection of the ids only, so a batch does not hold the content of its images.
+   *
+   * @return the projection
+   */
+  @Override
+  protected Bson getProjection() {
+    return Projections.include("_id");
+  }
+
+  /**
+   * Migrate a batch, an image at a time.
+   *
+   * @param batch the batch
+   * @param resumed the resumed flag
+   */
+  @Override
+  protected void migrate(List<Document> batch, boolean resumed) {
+    MongoCollection<Document> images = mongoTemplate.getCollection(getSourceCollection());
+    for (Document id : batch) {
+      Document image = images.find(Filters.eq("_id", id.get("_id"))).first();
+      if (image == null) {
+        continue;
+      }
+      ObjectId imageId = image.getObjectId("_id");
+      Query file = Query.query(Criteria.where("_id").is(imageId));
+      if (image.get("imageData") == null) {
+        GridFSFile stored = gridFsOperations.findOne(file);
+        if (stored != null) {
+          images.updateOne(Filters.eq("_id", imageId), Updates.combine(
+              Updates.set("length", stored.getLength()),
+              Updates.set("hash", hash(gridFsOperations.getResource(stored)))));
+        }
+        continue;
+      }
+      byte[] data = image.get("imageData", Binary.class).getData();
+      if (gridFsOperations.findOne(file) == null) {
+        mongoTemplate.getCollection(bucket + ".chunks")
+            .deleteMany(Filters.eq("files_id", imageId));
+        gridFsOperations.store(GridFsUpload.fromStream(new ByteArrayInputStream(data))
+            .id(imageId)
+            .filename(image.getString("name"))
+            .contentType(MediaType.IMAGE_PNG_VALUE)
+            .build());
+      }
+      images.updateOne(Filters.eq("_id", imageId), Updates.combine(Updates.unset("imageData"),
+          Updates.set("length", (long) data.length),
+          Updates.set("hash", hash(new ByteArrayResource(data)))));
+    }
+  }
+
+  /**
+   * Hash a content, reading it as a stream.
+   *
+   * @param content the content
+   * @return the hash, in hexadecimal
+   */
+  private static String hash(Resource content) {
+    try (DigestInputStream stream = ImageService.digest(content.getInputStream())) {
+      stream.transferTo(OutputStream.nullOutputStream());
+      return ImageService.hash(stream);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
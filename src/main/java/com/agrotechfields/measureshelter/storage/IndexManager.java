@@ -0,0 +1,124 @@
+package com.agrotechfields.measureshelter.storage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class IndexManager. Creates on startup the indexes declared on the documents
+ * ({@code @Indexed}, {@code @CompoundIndex}) that do not exist yet, logging each one it builds,
+ * and reports the usage of the indexes of each collection.
+ */
+@Component
+public class IndexManager {
+
+  /** The logger. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(IndexManager.class);
+
+  /** The mongo template. */
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /** The mapping context. */
+  @Autowired
+  private MongoMappingContext mappingContext;
+
+  /**
+   * Ensure the declared indexes of all documents exist.
+   */
+  @EventListener(ContextRefreshedEvent.class)
+  public void ensureIndexes() {
+    IndexResolver indexResolver = IndexResolver.create(mappingContext);
+    for (MongoPersistentEntity<?> entity : documents()) {
+      String collection = entity.getCollection();
+      IndexOperations indexOperations = mongoTemplate.indexOps(collection);
+      List<List<String>> existing = mongoTemplate.getCollection(collection).listIndexes()
+          .map(index -> keys(index.get("key", Document.class)))
+          .into(new ArrayList<>());
+
+      for (IndexDefinition index : indexResolver.resolveIndexFor(entity.getTypeInformation())) {
+        String keys = index.getIndexKeys().toJson();
+        if (existing.contains(keys(index.getIndexKeys()))) {
+          LOGGER.debug("Index {} on '{}' exists", keys, collection);
+          continue;
+        }
+        try {
+          String name = indexOperations.ensureIndex(index);
+          LOGGER.info("Created index '{}' {} on '{}'", name, keys, collection);
+        } catch (DataAccessException e) {
+          LOGGER.error("Could not create index {} on '{}'", keys, collection, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Index usage of each collection, from {@code $indexStats}: the accesses of each index since
+   * the server started or the index was created.
+   *
+   * @return the index usage by collection
+   */
+  public Map<String, List<Document>> indexStats() {
+    Document project = new Document("_id", 0)
+        .append("name", 1)
+        .append("key", 1)
+        .append("accesses", "$accesses.ops")
+        .append("since", "$accesses.since");
+    Map<String, List<Document>> stats = new LinkedHashMap<>();
+    for (MongoPersistentEntity<?> entity : documents()) {
+      String collection = entity.getCollection();
+      if (stats.containsKey(collection) || !mongoTemplate.collectionExists(collection)) {
+        continue;
+      }
+      stats.put(collection, mongoTemplate.getCollection(collection)
+          .aggregate(List.of(new Document("$indexStats", new Document()),
+              new Document("$project", project),
+              new Document("$sort", new Document("name", 1))))
+          .into(new ArrayList<>()));
+    }
+    return stats;
+  }
+
+  /**
+   * The keys of an index, in their order, as {@code field:direction}. Compound indexes with the
+   * same fields in another order are different indexes, while a {@link Document} equals another
+   * with the same entries in any order. The numeric directions are compared as integers, as the
+   * shells may store them as doubles.
+   *
+   * @param key the key document of the index
+   * @return the keys
+   */
+  private static List<String> keys(Document key) {
+    return key.entrySet().stream()
+        .map(entry -> entry.getKey() + ":" + (entry.getValue() instanceof Number number
+            ? number.intValue() : entry.getValue()))
+        .toList();
+  }
+
+  /**
+   * The persistent entities mapped to a collection.
+   *
+   * @return the documents
+   */
+  private List<MongoPersistentEntity<?>> documents() {
+    return mappingContext.getPersistentEntities().stream()
+        .filter(entity -> entity.isAnnotationPresent(
+            org.springframework.data.mongodb.core.mapping.Document.class))
+        .toList();
+  }
+}
@@ -0,0 +1,32 @@
+package com.agrotechfields.measureshelter.storage;
+
+import java.util.List;
+import java.util.Map;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class IndexStatsEndpoint. Actuator endpoint reporting the index usage of each collection:
+ * {@code GET /actuator/indexes}.
+ */
+@Component
+@Endpoint(id = "indexes")
+public class IndexStatsEndpoint {
+
+  /** The index manager. */
+  @Autowired
+  private IndexManager indexManager;
+
+  /**
+   * Index usage by collection.
+   *
+   * @return the index usage by collection
+   */
+  @ReadOperation
+  public Map<String, List<Document>> indexes() {
+    return indexManager.indexStats();
+  }
+}
@@ -0,0 +1,46 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class LegacyKeyListener. Moves the sensor fields of the measures not yet migrated by
+ * {@link ShortKeyMigration} from their property names to their short keys before the mapping
+ * reads them, the compatibility path of the reads that go through the mapping. The reads of the
+ * {@link MeasureCodec} accept both layouts by themselves.
+ */
+@Component
+public class LegacyKeyListener extends AbstractMongoEventListener<Measure> {
+
+  /**
+   * Move the legacy keys of a loaded measure.
+   *
+   * @param event the after load event
+   */
+  @Override
+  public void onAfterLoad(AfterLoadEvent<Measure> event) {
+    moveLegacyKeys(event.getDocument());
+  }
+
+  /**
+   * Move the sensor fields stored under their property names to their short keys, unless the
+   * short key is already there.
+   *
+   * @param document the measure document
+   */
+  public static void moveLegacyKeys(Document document) {
+    if (document == null) {
+      return;
+    }
+    for (MeasureField field : MeasureField.values()) {
+      if (document.containsKey(field.getName())) {
+        Object value = document.remove(field.getName());
+        document.putIfAbsent(field.getKey(), value);
+      }
+    }
+  }
+}
@@ -0,0 +1,696 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.repository.MeasureCursor;
+import com.agrotechfields.measureshelter.repository.MeasureFilter;
+import com.agrotechfields.measureshelter.repository.MeasureRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class MeasureArchive. Cold tier of the measures: the whole months older than
+ * {@code measure.archive.after-days} are moved out of the database into a
+ * {@link MeasureSegment} per isle and month, {@code <directory>/<isleId>/<yyyy-MM>.seg}, so the
+ * live collection stays bounded. The range reads merge the measures of the database with the
+ * ones of the segments that overlap the range, read through memory maps kept open in a bounded
+ * cache.
+ *
+ * <p>A measure is only deleted from the database after its segment is written, and a measure
+ * found in both tiers is read from the database, so an interrupted run is completed by the next
+ * one. A measure created late for an archived month is merged into its segment by the next run.
+ * An archived measure is found by id by scanning the segments, and an updated or deleted one is
+ * removed from its segment first. A month, or an isle whose measures cannot be read, that fails
+ * is logged and left in the database for the next run, without stopping the others.
+ */
+@Component
+public class MeasureArchive {
+
+  /** The logger. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(MeasureArchive.class);
+
+  /** The extension of the segment files. */
+  private static final String EXTENSION = ".seg";
+
+  /** The number of measures deleted from the database by query. */
+  private static final int DELETE_BATCH_SIZE = 1000;
+
+  /** The repository. */
+  @Autowired
+  private MeasureRepository measureRepository;
+
+  /** Whether the measures are archived. */
+  @Value("${measure.archive.enabled:false}")
+  private boolean enabled;
+
+  /** The directory of the segments. */
+  @Value("${measure.archive.directory:archive}")
+  private String directory;
+
+  /** The age of the measures to archive, widened to whole months. */
+  @Value("${measure.archive.after-days:365}")
+  private long afterDays;
+
+  /** The interval between the archive runs. */
+  @Value("${measure.archive.interval-hours:24}")
+  private long intervalHours;
+
+  /** The maximum number of segments kept mapped. */
+  @Value("${measure.archive.open-segments:256}")
+  private long openSegments;
+
+  /** The mapped segments by path. */
+  private Cache<Path, MeasureSegment> segments;
+
+  /** The scheduler of the archive runs. */
+  private ScheduledExecutorService scheduler;
+
+  /** Whether a run is in progress. */
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  /** The end of the latest archived month, null if nothing is archived. */
+  private volatile LocalDateTime archivedUntil;
+
+  /** The end of the last run. */
+  private volatile LocalDateTime lastRun;
+
+  /** The number of measures archived by the last run. */
+  private volatile long lastArchived;
+
+  /** The error of the last run, null if it succeeded. */
+  private volatile String lastError;
+
+  /** The isle months, or isles, that failed in the last run. */
+  private volatile List<String> lastFailed = List.of();
+
+  /**
+   * Scan the archived months and schedule the archive runs.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @PostConstruct
+  public void init() throws IOException {
+    segments = Caffeine.newBuilder().maximumSize(openSegments).build();
+    if (!enabled) {
+      return;
+    }
+    Path root = Paths.get(directory);
+    Files.createDirectories(root);
+    for (Path isleDirectory : list(root)) {
+      for (Path path : list(isleDirectory)) {
+        YearMonth month = toMonth(path);
+        if (month != null) {
+          updateArchivedUntil(month);
+        }
+      }
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "measure-archive");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::run, intervalHours, intervalHours, TimeUnit.HOURS);
+  }
+
+  /**
+   * Stop the archive runs.
+   */
+  @PreDestroy
+  public void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Checks if the measures are archived.
+   *
+   * @return true, if enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Start an archive run in the background.
+   *
+   * @return true, if started; false if disabled or already running
+   */
+  public boolean start() {
+    if (!enabled || running.get()) {
+      return false;
+    }
+    scheduler.execute(this::run);
+    return true;
+  }
+
+  /**
+   * Gets the status of the archive.
+   *
+   * @return the status
+   */
+  public Map<String, Object> getStatus() {
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("enabled", enabled);
+    status.put("directory", Paths.get(directory).toAbsolutePath().toString());
+    status.put("running", running.get());
+    status.put("archivedUntil", archivedUntil);
+    status.put("lastRun", lastRun);
+    status.put("lastArchived", lastArchived);
+    status.put("lastError", lastError);
+    status.put("lastFailedCount", lastFailed.size());
+    status.put("lastFailed", lastFailed);
+    return status;
+  }
+
+  /**
+   * Checks if the range of a filter may have archived measures.
+   *
+   * @param filter the filter
+   * @return true, if the segments must be read
+   */
+  public boolean covers(MeasureFilter filter) {
+    LocalDateTime until = archivedUntil;
+    return enabled && until != null
+        && (filter.getFrom() == null || filter.getFrom().isBefore(until));
+  }
+
+  /**
+   * Archive the whole months older than the configured age, isle by isle and month by month. A
+   * failed month, or isle, is logged and counted in the status, and the run goes on.
+   *
+   * @return the number of measures moved out of the database
+   */
+  public synchronized long archive() {
+    LocalDateTime cutoff =
+        LocalDate.now().minusDays(afterDays).withDayOfMonth(1).atStartOfDay();
+    long archived = 0;
+    List<String> failed = new ArrayList<>();
+    for (ObjectId isleId : measureRepository.findIsleIds(
+        new MeasureFilter(null, null, cutoff, Direction.ASC))) {
+      MeasureFilter filter = new MeasureFilter(isleId, null, cutoff, Direction.ASC);
+      List<Measure> month = new ArrayList<>();
+      try (Stream<Measure> measures = measureRepository.stream(filter)) {
+        Iterator<Measure> iterator = measures.iterator();
+        while (iterator.hasNext()) {
+          Measure measure = iterator.next();
+          if (!month.isEmpty() && !YearMonth.from(measure.getTimestamp())
+              .equals(YearMonth.from(month.get(0).getTimestamp()))) {
+            archived += tryArchiveMonth(isleId, month, failed);
+            month = new ArrayList<>();
+          }
+          month.add(measure);
+        }
+      } catch (RuntimeException e) {
+        failed.add(isleId.toHexString());
+        LOGGER.error("Measure archive of the isle {} failed", isleId, e);
+        continue;
+      }
+      if (!month.isEmpty()) {
+        archived += tryArchiveMonth(isleId, month, failed);
+      }
+    }
+    lastFailed = List.copyOf(failed);
+    return archived;
+  }
+
+  /**
+   * Find an archived measure by id. The segments of every isle are scanned, starting from the
+   * month its id was created in and moving away from it, where a measure sent on time is.
+   *
+   * @param id the measure id
+   * @return the measure
+   */
+  public Optional<Measure> findById(ObjectId id) {
+    if (!enabled || archivedUntil == null) {
+      return Optional.empty();
+    }
+    YearMonth created = YearMonth.from(
+        LocalDateTime.ofInstant(id.getDate().toInstant(), ZoneId.systemDefault()));
+    List<Path> paths = new ArrayList<>();
+    for (Path isleDirectory : list(Paths.get(directory))) {
+      for (Path path : list(isleDirectory)) {
+        if (toMonth(path) != null) {
+          paths.add(path);
+        }
+      }
+    }
+    paths.sort(Comparator.comparingLong(
+        (Path path) -> Math.abs(ChronoUnit.MONTHS.between(created, toMonth(path)))));
+    for (Path path : paths) {
+      MeasureSegment segment = open(path);
+      if (segment == null) {
+        continue;
+      }
+      Iterator<Measure> measures = segment.iterator(null, null, true);
+      while (measures.hasNext()) {
+        Measure measure = measures.next();
+        if (id.equals(measure.getId())) {
+          return Optional.of(measure);
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Remove a measure from the segment of its month, if it is archived, before it is updated or
+   * deleted in the database, so its archived copy is not read again. The segment is rewritten
+   * without it, or deleted when it was its last measure.
+   *
+   * @param measure the measure, as it is stored
+   * @return true, if it was archived
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public synchronized boolean remove(Measure measure) throws IOException {
+    if (!enabled || archivedUntil == null || measure.getIsleId() == null
+        || measure.getTimestamp() == null || !measure.getTimestamp().isBefore(archivedUntil)) {
+      return false;
+    }
+    Path path = Paths.get(directory, measure.getIsleId().toHexString(),
+        YearMonth.from(measure.getTimestamp()) + EXTENSION);
+    if (!Files.exists(path)) {
+      return false;
+    }
+    List<Measure> measures = new MeasureSegment(path).readAll();
+    if (!measures.removeIf(archived -> archived.getId().equals(measure.getId()))) {
+      return false;
+    }
+    if (measures.isEmpty()) {
+      Files.delete(path);
+    } else {
+      MeasureSegment.write(path, measure.getIsleId(), measures);
+    }
+    segments.invalidate(path);
+    return true;
+  }
+
+  /**
+   * Find the distinct isle ids of the archived measures of a filter, the isles with a segment of
+   * a month of its range.
+   *
+   * @param filter the filter
+   * @return the isle ids
+   */
+  public List<ObjectId> findIsleIds(MeasureFilter filter) {
+    List<ObjectId> isleIds = new ArrayList<>();
+    if (!covers(filter)) {
+      return isleIds;
+    }
+    YearMonth first = filter.getFrom() == null ? null : YearMonth.from(filter.getFrom());
+    YearMonth last = filter.getTo() == null ? null : YearMonth.from(filter.getTo());
+    for (Path isleDirectory : list(Paths.get(directory))) {
+      boolean inRange = list(isleDirectory).stream()
+          .map(MeasureArchive::toMonth)
+          .anyMatch(month -> month != null && (first == null || !month.isBefore(first))
+              && (last == null || !month.isAfter(last)));
+      if (inRange && ObjectId.isValid(isleDirectory.getFileName().toString())) {
+        ObjectId isleId = new ObjectId(isleDirectory.getFileName().toString());
+        if (filter.getIsleId() == null || filter.getIsleId().equals(isleId)) {
+          isleIds.add(isleId);
+        }
+      }
+    }
+    return isleIds;
+  }
+
+  /**
+   * Merge the measures of the database of a filter with the archived ones.
+   *
+   * @param hot the measures of the database, in the order of the filter
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @param limit the maximum number of measures, zero for no limit
+   * @return the measures
+   */
+  public List<Measure> merge(List<Measure> hot, MeasureFilter filter, MeasureCursor after,
+      int limit) {
+    List<Measure> measures = new ArrayList<>();
+    Iterator<Measure> merged = mergeSorted(List.of(hot.iterator(), cold(filter, after)),
+        filter.getOrder());
+    while (merged.hasNext() && (limit == 0 || measures.size() < limit)) {
+      measures.add(merged.next());
+    }
+    return measures;
+  }
+
+  /**
+   * Merge a stream of the measures of the database of a filter with the archived ones, reading
+   * the segments as the stream is consumed.
+   *
+   * @param hot the measures of the database, in the order of the filter
+   * @param filter the filter
+   * @return the stream of measures, which closes the stream of the database
+   */
+  public Stream<Measure> merge(Stream<Measure> hot, MeasureFilter filter) {
+    Iterator<Measure> merged = mergeSorted(List.of(hot.iterator(), cold(filter, null)),
+        filter.getOrder());
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL),
+        false).onClose(hot::close);
+  }
+
+  /**
+   * Merge ordered iterators. A measure found in several of them, the same timestamp and id, is
+   * taken from the first one.
+   *
+   * @param iterators the iterators, each one in the order
+   * @param order the order
+   * @return the merged iterator
+   */
+  static Iterator<Measure> mergeSorted(List<Iterator<Measure>> iterators,
+      Comparator<Measure> order) {
+    PriorityQueue<Head> heads = new PriorityQueue<>(
+        Comparator.comparing((Head head) -> head.measure, order)
+            .thenComparingInt(head -> head.index));
+    for (int index = 0; index < iterators.size(); index++) {
+      if (iterators.get(index).hasNext()) {
+        heads.add(new Head(iterators.get(index).next(), index));
+      }
+    }
+    return new Iterator<>() {
+
+      private Measure previous;
+
+      @Override
+      public boolean hasNext() {
+        while (!heads.isEmpty() && previous != null
+            && order.compare(heads.peek().measure, previous) == 0) {
+          advance();
+        }
+        return !heads.isEmpty();
+      }
+
+      @Override
+      public Measure next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        previous = advance();
+        return previous;
+      }
+
+      /**
+       * Take the first head and replace it with the next measure of its iterator.
+       *
+       * @return the measure of the head
+       */
+      private Measure advance() {
+        Head head = heads.poll();
+        Iterator<Measure> iterator = iterators.get(head.index);
+        if (iterator.hasNext()) {
+          heads.add(new Head(iterator.next(), head.index));
+        }
+        return head.measure;
+      }
+    };
+  }
+
+  /**
+   * Iterate the archived measures of a filter, in its order.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @return the iterator
+   */
+  private Iterator<Measure> cold(MeasureFilter filter, MeasureCursor after) {
+    boolean ascending = filter.getDirection().isAscending();
+    LocalDateTime from = filter.getFrom();
+    LocalDateTime to = filter.getTo();
+    if (after != null && ascending) {
+      from = after.getTimestamp();
+    } else if (after != null) {
+      to = after.getTimestamp();
+    }
+    YearMonth first = from == null ? null : YearMonth.from(from);
+    YearMonth last = to == null ? null : YearMonth.from(to);
+
+    List<Iterator<Measure>> isles = new ArrayList<>();
+    Path root = Paths.get(directory);
+    List<Path> isleDirectories = filter.getIsleId() == null
+        ? list(root)
+        : List.of(root.resolve(filter.getIsleId().toHexString()));
+    for (Path isleDirectory : isleDirectories) {
+      List<Path> months = new ArrayList<>();
+      for (Path path : list(isleDirectory)) {
+        YearMonth month = toMonth(path);
+        if (month != null && (first == null || !month.isBefore(first))
+            && (last == null || !month.isAfter(last))) {
+          months.add(path);
+        }
+      }
+      months.sort(ascending ? Comparator.naturalOrder() : Comparator.reverseOrder());
+      if (!months.isEmpty()) {
+        isles.add(chain(months, from, to, ascending));
+      }
+    }
+
+    Iterator<Measure> merged = mergeSorted(isles, filter.getOrder());
+    return new Iterator<>() {
+
+      private Measure next;
+
+      @Override
+      public boolean hasNext() {
+        while (next == null && merged.hasNext()) {
+          Measure measure = merged.next();
+          if (filter.matches(measure, after)) {
+            next = measure;
+          }
+        }
+        return next != null;
+      }
+
+      @Override
+      public Measure next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Measure measure = next;
+        next = null;
+        return measure;
+      }
+    };
+  }
+
+  /**
+   * Iterate the segments of the months of an isle one after the other, opening each one when it
+   * is reached.
+   *
+   * @param months the segment paths, in the order
+   * @param from the inclusive start of the range, null for unbounded
+   * @param to the end of the range, null for unbounded
+   * @param ascending the timestamp order
+   * @return the iterator
+   */
+  private Iterator<Measure> chain(List<Path> months, LocalDateTime from, LocalDateTime to,
+      boolean ascending) {
+    Iterator<Path> paths = months.iterator();
+    return new Iterator<>() {
+
+      private Iterator<Measure> current = List.<Measure>of().iterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && paths.hasNext()) {
+          MeasureSegment segment = open(paths.next());
+          if (segment != null) {
+            current = segment.iterator(from, to, ascending);
+          }
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public Measure next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+
+  /**
+   * Run the archive, recording its outcome.
+   */
+  private void run() {
+    if (!running.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      LOGGER.info("Measure archive started");
+      lastArchived = archive();
+      lastError = lastFailed.isEmpty() ? null
+          : lastFailed.size() + " isle months failed: " + String.join(", ", lastFailed);
+      LOGGER.info("Measure archive finished, {} measures archived, {} isle months failed",
+          lastArchived, lastFailed.size());
+    } catch (RuntimeException e) {
+      lastError = e.getMessage();
+      LOGGER.error("Measure archive failed", e);
+    } finally {
+      lastRun = LocalDateTime.now();
+      running.set(false);
+    }
+  }
+
+  /**
+   * Archive the measures of a month of an isle, recording its failure instead of throwing it.
+   *
+   * @param isleId the isle id
+   * @param measures the measures of the month, in {@code (timestamp, _id)} order
+   * @param failed the failed isle months, as {@code <isleId>/<yyyy-MM>}
+   * @return the number of deleted measures, 0 if it failed
+   */
+  private long tryArchiveMonth(ObjectId isleId, List<Measure> measures, List<String> failed) {
+    try {
+      return archiveMonth(isleId, measures);
+    } catch (IOException | RuntimeException e) {
+      String month = isleId.toHexString() + "/" + YearMonth.from(measures.get(0).getTimestamp());
+      failed.add(month);
+      LOGGER.error("Measure archive of {} failed", month, e);
+      return 0;
+    }
+  }
+
+  /**
+   * Archive the measures of a month of an isle: rewrite its segment with them, then delete them
+   * from the database.
+   *
+   * @param isleId the isle id
+   * @param measures the measures of the month, in {@code (timestamp, _id)} order
+   * @return the number of deleted measures
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private long archiveMonth(ObjectId isleId, List<Measure> measures) throws IOException {
+    YearMonth month = YearMonth.from(measures.get(0).getTimestamp());
+    Path path = Paths.get(directory, isleId.toHexString(), month + EXTENSION);
+    List<Measure> merged = measures;
+    if (Files.exists(path)) {
+      Map<ObjectId, Measure> byId = new LinkedHashMap<>();
+      new MeasureSegment(path).readAll().forEach(measure -> byId.put(measure.getId(), measure));
+      measures.forEach(measure -> byId.put(measure.getId(), measure));
+      merged = new ArrayList<>(byId.values());
+      merged.sort(new MeasureFilter(null, null, null, Direction.ASC).getOrder());
+    }
+    MeasureSegment.write(path, isleId, merged);
+    segments.invalidate(path);
+    updateArchivedUntil(month);
+
+    long deleted = 0;
+    for (int from = 0; from < measures.size(); from += DELETE_BATCH_SIZE) {
+      deleted += measureRepository.deleteMeasures(measures
+          .subList(from, Math.min(from + DELETE_BATCH_SIZE, measures.size())).stream()
+          .map(Measure::getId)
+          .toList());
+    }
+    return deleted;
+  }
+
+  /**
+   * Open a segment, or get it from the cache.
+   *
+   * @param path the path
+   * @return the segment, null if it no longer exists
+   */
+  private MeasureSegment open(Path path) {
+    return segments.get(path, key -> {
+      try {
+        return Files.exists(key) ? new MeasureSegment(key) : null;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Move the end of the archived months past a month.
+   *
+   * @param month the archived month
+   */
+  private synchronized void updateArchivedUntil(YearMonth month) {
+    LocalDateTime until = month.plusMonths(1).atDay(1).atStartOfDay();
+    if (archivedUntil == null || until.isAfter(archivedUntil)) {
+      archivedUntil = until;
+    }
+  }
+
+  /**
+   * Gets the month of a segment file.
+   *
+   * @param path the path
+   * @return the month, null if it is not a segment
+   */
+  private static YearMonth toMonth(Path path) {
+    String name = path.getFileName().toString();
+    if (!name.endsWith(EXTENSION)) {
+      return null;
+    }
+    try {
+      return YearMonth.parse(name.substring(0, name.length() - EXTENSION.length()));
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  /**
+   * List the entries of a directory.
+   *
+   * @param path the directory
+   * @return the entries, empty if it does not exist
+   */
+  private static List<Path> list(Path path) {
+    if (!Files.isDirectory(path)) {
+      return List.of();
+    }
+    try (Stream<Path> entries = Files.list(path)) {
+      return entries.toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The head of an iterator being merged.
+   *
+   * @param measure the next measure of the iterator
+   * @param index the index of the iterator, the lower first among equal measures
+   */
+  private record Head(Measure measure, int index) {}
+}
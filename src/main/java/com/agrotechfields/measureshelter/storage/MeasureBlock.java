@@ -0,0 +1,115 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.types.ObjectId;
+
+/**
+ * The Class MeasureBlock. Compresses the timestamps and the sensor fields of measures of an isle
+ * with a {@link GorillaWriter}. The fields are compressed as the doubles of their fixed-point
+ * values, see {@link FixedPointConverter}, whole numbers whose slow changes leave few meaningful
+ * bits to store; a missing value as a NaN. A legacy value with more decimal places than the
+ * declared ones keeps the fraction of its scaled double, {@code 21.005} as {@code 2100.5}, and a
+ * block is not written when a value cannot be read back without loss. The timestamps are taken in
+ * UTC, free of the time zone changes. The ids and the isle id are kept by the caller.
+ */
+public final class MeasureBlock {
+
+  /** The fields. */
+  private static final MeasureField[] FIELDS = MeasureField.values();
+
+  /**
+   * Instantiates a new measure block.
+   */
+  private MeasureBlock() {}
+
+  /**
+   * Compress measures.
+   *
+   * @param measures the measures, in the order they are read back
+   * @return the compressed timestamps and fields
+   * @throws IllegalArgumentException if a value cannot be read back without loss, with the ids of
+   *         those measures
+   */
+  public static byte[] encode(List<Measure> measures) {
+    boolean seconds =
+        measures.stream().allMatch(measure -> toMillis(measure.getTimestamp()) % 1000 == 0);
+    GorillaWriter writer = new GorillaWriter(FIELDS.length, seconds);
+    double[] values = new double[FIELDS.length];
+    List<String> inexact = new ArrayList<>();
+    for (Measure measure : measures) {
+      for (int f = 0; f < FIELDS.length; f++) {
+        BigDecimal value = FIELDS[f].valueOf(measure);
+        values[f] = value == null ? Double.NaN : value.movePointRight(FIELDS[f].getScale())
+            .doubleValue();
+        if (value != null && readValue(FIELDS[f], values[f]).compareTo(value) != 0) {
+          inexact.add(measure.getId() + " " + FIELDS[f].getName() + "=" + value.toPlainString());
+        }
+      }
+      writer.append(toMillis(measure.getTimestamp()), values);
+    }
+    if (!inexact.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Measures with values a block cannot keep without loss: " + String.join(", ", inexact));
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decompress measures.
+   *
+   * @param data the compressed timestamps and fields
+   * @param isleId the isle id of the measures
+   * @param ids the ids of the measures, one for each of them
+   * @return the measures
+   */
+  public static List<Measure> decode(byte[] data, ObjectId isleId, List<ObjectId> ids) {
+    GorillaReader reader = new GorillaReader(data, FIELDS.length, ids.size());
+    List<Measure> measures = new ArrayList<>(ids.size());
+    for (ObjectId id : ids) {
+      reader.next();
+      Measure measure = new Measure();
+      measure.setId(id);
+      measure.setIsleId(isleId);
+      measure.setTimestamp(
+          LocalDateTime.ofInstant(Instant.ofEpochMilli(reader.getTimestamp()), ZoneOffset.UTC));
+      for (int f = 0; f < FIELDS.length; f++) {
+        double value = reader.getValue(f);
+        FIELDS[f].setValue(measure, Double.isNaN(value) ? null : readValue(FIELDS[f], value));
+      }
+      measures.add(measure);
+    }
+    return measures;
+  }
+
+  /**
+   * Read a compressed value: a whole number with the declared scale of the field, as the
+   * fixed-point storage, or a legacy value with its own decimal places.
+   *
+   * @param field the field
+   * @param value the scaled value
+   * @return the value
+   */
+  private static BigDecimal readValue(MeasureField field, double value) {
+    if (value == Math.rint(value)) {
+      return FixedPointConverter.readStored(field, (long) value);
+    }
+    return BigDecimal.valueOf(value).movePointLeft(field.getScale());
+  }
+
+  /**
+   * Gets the epoch milliseconds of a timestamp in UTC.
+   *
+   * @param timestamp the timestamp
+   * @return the milliseconds
+   */
+  public static long toMillis(LocalDateTime timestamp) {
+    return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+}
@@ -0,0 +1,694 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.agrotechfields.measureshelter.domain.MeasureRollup;
+import com.agrotechfields.measureshelter.domain.MeasureRollup.RollupField;
+import com.agrotechfields.measureshelter.repository.MeasureCursor;
+import com.agrotechfields.measureshelter.repository.MeasureFilter;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class MeasureBucketStore. Optional storage engine of the measures, enabled by
+ * {@code measure.storage.buckets.enabled}, behind {@link
+ * com.agrotechfields.measureshelter.repository.MeasureRepository}. The measures of an isle are
+ * packed into one document for each hour: their ids, and their timestamps and sensor fields
+ * compressed as a {@link MeasureBlock}.
+ *
+ * <p>A bucket is rewritten as a whole on each change, guarded by its version, and removed when
+ * it has no measures left. A change is thus O(n) in the measures of its bucket, which are
+ * decoded and encoded again, and concurrent changes of a bucket retry on its version. The
+ * measures of an insert are grouped by bucket, so a bulk insert, such as a group commit of the
+ * write-behind ingest, rewrites each bucket once; single inserts rewrite it for each measure.
+ *
+ * <p>A measure moved to another bucket by a save is written to its new bucket before it is
+ * removed from the previous one, so it is never missing. Meanwhile, or after a failure between
+ * the two writes, until its next save removes the previous copy, the reads by id and the reads
+ * of the buckets of an hour keep a single copy of it.
+ */
+@Component
+public class MeasureBucketStore {
+
+  /** The id key. */
+  private static final String ID = "_id";
+
+  /** The isle id key. */
+  private static final String ISLE_ID = "isleId";
+
+  /** The key of the start of the hour of a bucket. */
+  private static final String START = "start";
+
+  /** The key of the measure ids, in timestamp order. */
+  private static final String IDS = "ids";
+
+  /** The key of the compressed timestamps and fields. */
+  private static final String DATA = "data";
+
+  /** The version key. */
+  private static final String VERSION = "version";
+
+  /** The fields. */
+  private static final MeasureField[] FIELDS = MeasureField.values();
+
+  /** The attempts of a bucket update changed concurrently. */
+  private static final int MAX_ATTEMPTS = 10;
+
+  /** The number of buckets fetched by each round trip of a stream cursor. */
+  private static final int STREAM_BATCH_SIZE = 100;
+
+  /** The origin of the bins of the rollups, the one of {@code $dateTrunc}. */
+  private static final LocalDateTime BIN_ORIGIN = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+  /** The mongo template. */
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /** The bucket storage flag. */
+  @Value("${measure.storage.buckets.enabled:false}")
+  private boolean enabled;
+
+  /** The bucket collection. */
+  @Value("${measure.storage.buckets.collection:measure_bucket}")
+  private String collection;
+
+  /**
+   * Creates the indexes of the buckets when enabled: one bucket for each isle and hour, the
+   * hours of all isles and the measure ids.
+   */
+  @PostConstruct
+  public void init() {
+    if (enabled) {
+      createIndexes();
+    }
+  }
+
+  /**
+   * Creates the indexes of the buckets if they do not exist yet.
+   */
+  public void createIndexes() {
+    collection().createIndex(Indexes.ascending(ISLE_ID, START), new IndexOptions().unique(true));
+    collection().createIndex(Indexes.ascending(START, ISLE_ID));
+    collection().createIndex(Indexes.ascending(IDS));
+  }
+
+  /**
+   * Checks if the bucket storage is enabled.
+   *
+   * @return true, if enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Insert measures into their buckets. Measures whose id is already in their bucket are
+   * ignored.
+   *
+   * @param measures the measures, their missing ids are assigned
+   * @return the number of inserted measures
+   */
+  public int insert(List<Measure> measures) {
+    Map<BucketKey, List<Measure>> buckets = new TreeMap<>();
+    for (Measure measure : measures) {
+      if (measure.getId() == null) {
+        measure.setId(new ObjectId());
+      }
+      buckets.computeIfAbsent(BucketKey.of(measure), key -> new ArrayList<>()).add(measure);
+    }
+    int inserted = 0;
+    for (Map.Entry<BucketKey, List<Measure>> bucket : buckets.entrySet()) {
+      inserted += write(bucket.getKey(), bucket.getValue(), Set.of());
+    }
+    return inserted;
+  }
+
+  /**
+   * Save a measure, moving it to another bucket when its isle or hour changed. The move adds it
+   * to the new bucket before removing it from the previous ones, any copy left by a failed move
+   * included.
+   *
+   * @param measure the measure
+   * @return the measure
+   */
+  public Measure save(Measure measure) {
+    if (measure.getId() == null) {
+      insert(List.of(measure));
+      return measure;
+    }
+    BucketKey key = BucketKey.of(measure);
+    List<BucketKey> previous = new ArrayList<>();
+    collection().find(Filters.eq(IDS, measure.getId()))
+        .projection(Projections.include(ISLE_ID, START))
+        .forEach(bucket -> previous.add(BucketKey.of(bucket)));
+    write(key, List.of(measure), Set.of(measure.getId()));
+    for (BucketKey bucket : previous) {
+      if (!key.equals(bucket)) {
+        write(bucket, List.of(), Set.of(measure.getId()));
+      }
+    }
+    return measure;
+  }
+
+  /**
+   * Delete measures, rewriting each of their buckets once.
+   *
+   * @param ids the measure ids
+   * @return the number of deleted measures
+   */
+  public int delete(Collection<ObjectId> ids) {
+    Map<BucketKey, Set<ObjectId>> buckets = new TreeMap<>();
+    collection().find(Filters.in(IDS, ids))
+        .projection(Projections.include(ISLE_ID, START, IDS))
+        .forEach(bucket -> {
+          Set<ObjectId> removed = new HashSet<>(bucket.getList(IDS, ObjectId.class));
+          removed.retainAll(ids);
+          buckets.put(BucketKey.of(bucket), removed);
+        });
+    int deleted = 0;
+    for (Map.Entry<BucketKey, Set<ObjectId>> bucket : buckets.entrySet()) {
+      deleted += write(bucket.getKey(), List.of(), bucket.getValue());
+    }
+    return deleted;
+  }
+
+  /**
+   * Find a measure by id.
+   *
+   * @param id the measure id
+   * @return the measure
+   */
+  public Optional<Measure> findById(ObjectId id) {
+    Document bucket = collection().find(Filters.eq(IDS, id)).first();
+    if (bucket == null) {
+      return Optional.empty();
+    }
+    return decode(bucket).stream().filter(measure -> id.equals(measure.getId())).findFirst();
+  }
+
+  /**
+   * Find measures by id, decoding each of their buckets once.
+   *
+   * @param ids the measure ids
+   * @return the measures found, in bucket order
+   */
+  public List<Measure> findAllById(Collection<ObjectId> ids) {
+    List<Measure> measures = new ArrayList<>();
+    Set<ObjectId> found = new HashSet<>();
+    collection().find(Filters.in(IDS, ids)).sort(Sorts.ascending(START, ISLE_ID))
+        .forEach(bucket -> decode(bucket).stream()
+            .filter(measure -> ids.contains(measure.getId()) && found.add(measure.getId()))
+            .forEach(measures::add));
+    return measures;
+  }
+
+  /**
+   * Count the measures, from the ids of the buckets.
+   *
+   * @return the number of measures
+   */
+  public long count() {
+    Document total = collection().aggregate(List.of(new Document("$group",
+        new Document(ID, null).append("count", new Document("$sum", new Document("$size",
+            "$" + IDS)))))).first();
+    return total == null ? 0 : total.get("count", Number.class).longValue();
+  }
+
+  /**
+   * Delete all the measures.
+   */
+  public void deleteAll() {
+    collection().deleteMany(new Document());
+  }
+
+  /**
+   * Find the measures of a filter, in {@code (timestamp, _id)} order.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @param limit the maximum number of measures, zero for no limit
+   * @return the measures
+   */
+  public List<Measure> find(MeasureFilter filter, MeasureCursor after, int limit) {
+    try (Stream<Measure> measures = stream(filter, after)) {
+      return (limit > 0 ? measures.limit(limit) : measures)
+          .collect(Collectors.toCollection(ArrayList::new));
+    }
+  }
+
+  /**
+   * Stream the measures of a filter in {@code (timestamp, _id)} order, decoding the buckets of
+   * an hour at a time. The stream must be closed to release the cursor.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @return the stream of measures
+   */
+  public Stream<Measure> stream(MeasureFilter filter, MeasureCursor after) {
+    Bson sort = filter.getDirection().isAscending()
+        ? Sorts.ascending(START, ISLE_ID)
+        : Sorts.descending(START, ISLE_ID);
+    MongoCursor<Document> cursor = collection().find(bucketFilter(filter, after))
+        .sort(sort)
+        .batchSize(STREAM_BATCH_SIZE)
+        .cursor();
+    Iterator<Measure> iterator = new BucketIterator(cursor,
+        measure -> filter.matches(measure, after), filter.getOrder());
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+        .onClose(cursor::close);
+  }
+
+  /**
+   * Find the distinct isle ids of the buckets of a filter, which may include an isle whose
+   * measures of a partially covered hour are all outside the filter.
+   *
+   * @param filter the filter
+   * @return the isle ids
+   */
+  public List<ObjectId> findIsleIds(MeasureFilter filter) {
+    return collection().distinct(ISLE_ID, bucketFilter(filter, null), ObjectId.class)
+        .into(new ArrayList<>());
+  }
+
+  /**
+   * Find the latest measure of each isle with a single aggregation of the latest bucket of each
+   * isle, sorted on the reverse of the {@code (isleId, start)} index so the group can take the
+   * first bucket of each isle from it; only those buckets are decoded.
+   *
+   * @return the latest measure of each isle with measures, in isle order
+   */
+  public List<Measure> findLatestOfEachIsle() {
+    List<Measure> latest = new ArrayList<>();
+    collection().aggregate(List.of(
+        new Document("$sort", new Document(ISLE_ID, -1).append(START, -1)),
+        new Document("$group", new Document(ID, "$" + ISLE_ID)
+            .append("bucket", new Document("$first", "$$ROOT"))),
+        new Document("$sort", new Document(ID, 1))))
+        .forEach(group -> {
+          List<Measure> measures = decode(group.get("bucket", Document.class));
+          if (!measures.isEmpty()) {
+            latest.add(measures.get(measures.size() - 1));
+          }
+        });
+    return latest;
+  }
+
+  /**
+   * Find the latest measure of an isle, in its latest bucket.
+   *
+   * @param isleId the isle object id
+   * @return the latest measure, null if the isle has no measures
+   */
+  public Measure findLatestOfIsle(ObjectId isleId) {
+    Document bucket = collection().find(Filters.eq(ISLE_ID, isleId))
+        .sort(Sorts.descending(START))
+        .first();
+    List<Measure> measures = bucket == null ? List.of() : decode(bucket);
+    return measures.isEmpty() ? null : measures.get(measures.size() - 1);
+  }
+
+  /**
+   * Aggregate the rollups of the measures of a filter by isle and time bucket from the decoded
+   * measures, truncated as {@code $dateTrunc} truncates them.
+   *
+   * @param filter the filter
+   * @param unit the unit of the buckets: minute, hour or day
+   * @param binSize the number of units of a bucket
+   * @return the stream of rollups, without ids, in timestamp order
+   */
+  public Stream<MeasureRollup> aggregateRollups(MeasureFilter filter, String unit, int binSize) {
+    try (Stream<Measure> measures = stream(filter, null)) {
+      return aggregateRollups(measures, unit, binSize).stream();
+    }
+  }
+
+  /**
+   * Aggregate the rollups of measures by isle and time bucket in memory, truncated as
+   * {@code $dateTrunc} truncates them.
+   *
+   * @param measures the measures, consumed but not closed
+   * @param unit the unit of the buckets: minute, hour or day
+   * @param binSize the number of units of a bucket
+   * @return the rollups, without ids, in timestamp order
+   */
+  public static List<MeasureRollup> aggregateRollups(Stream<Measure> measures, String unit,
+      int binSize) {
+    ChronoUnit chronoUnit = switch (unit) {
+      case "minute" -> ChronoUnit.MINUTES;
+      case "hour" -> ChronoUnit.HOURS;
+      default -> ChronoUnit.DAYS;
+    };
+    Map<BucketKey, MeasureRollup> rollups = new TreeMap<>();
+    measures.forEach(measure -> {
+      long units = chronoUnit.between(BIN_ORIGIN, measure.getTimestamp().truncatedTo(chronoUnit));
+      LocalDateTime bin = BIN_ORIGIN.plus(Math.floorDiv(units, binSize) * binSize, chronoUnit);
+      add(rollups.computeIfAbsent(new BucketKey(bin, measure.getIsleId()),
+          MeasureBucketStore::emptyRollup), measure);
+    });
+    return new ArrayList<>(rollups.values());
+  }
+
+  /**
+   * Encode the measures of a bucket.
+   *
+   * @param id the bucket id
+   * @param isleId the isle id
+   * @param start the start of the hour
+   * @param measures the measures of the isle in the hour
+   * @param version the version
+   * @return the bucket
+   */
+  public static Document encode(ObjectId id, ObjectId isleId, LocalDateTime start,
+      List<Measure> measures, long version) {
+    List<Measure> sorted = new ArrayList<>(measures);
+    sorted.sort(new MeasureFilter(null, null, null, Direction.ASC).getOrder());
+    return new Document(ID, id)
+        .append(ISLE_ID, isleId)
+        .append(START, Date.from(start.atZone(ZoneId.systemDefault()).toInstant()))
+        .append(IDS, sorted.stream().map(Measure::getId).toList())
+        .append(DATA, new Binary(MeasureBlock.encode(sorted)))
+        .append(VERSION, version);
+  }
+
+  /**
+   * Decode the measures of a bucket.
+   *
+   * @param bucket the bucket
+   * @return the measures, in {@code (timestamp, _id)} order
+   */
+  public static List<Measure> decode(Document bucket) {
+    return MeasureBlock.decode(bucket.get(DATA, Binary.class).getData(),
+        bucket.getObjectId(ISLE_ID), bucket.getList(IDS, ObjectId.class));
+  }
+
+  /**
+   * The bucket collection.
+   *
+   * @return the collection
+   */
+  private MongoCollection<Document> collection() {
+    return mongoTemplate.getCollection(collection);
+  }
+
+  /**
+   * Write the changes of a bucket: add measures whose id it does not have yet and remove or
+   * replace a measure. The bucket is read, changed and written back only if no other write
+   * changed its version meanwhile, otherwise it is tried again.
+   *
+   * @param key the bucket key
+   * @param added the measures to add
+   * @param removed the ids of the measures to remove, or to replace by an added one with the
+   *        same id
+   * @return the number of added measures, or of removed ones when none is added
+   */
+  private int write(BucketKey key, List<Measure> added, Set<ObjectId> removed) {
+    Bson filter = Filters.and(Filters.eq(ISLE_ID, key.isleId()),
+        Filters.eq(START, Date.from(key.start().atZone(ZoneId.systemDefault()).toInstant())));
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      Document bucket = collection().find(filter).first();
+      List<Measure> measures = bucket == null ? new ArrayList<>() : decode(bucket);
+      int before = measures.size();
+      measures.removeIf(measure -> removed.contains(measure.getId()));
+      int removedCount = before - measures.size();
+      Set<ObjectId> ids = measures.stream().map(Measure::getId).collect(Collectors.toSet());
+      int written = 0;
+      for (Measure measure : added) {
+        if (ids.add(measure.getId())) {
+          measures.add(measure);
+          written++;
+        }
+      }
+      if (written == 0 && removedCount == 0) {
+        return 0;
+      }
+      int result = added.isEmpty() ? removedCount : written;
+
+      if (bucket == null) {
+        try {
+          collection().insertOne(encode(new ObjectId(), key.isleId(), key.start(), measures, 0));
+          return result;
+        } catch (MongoWriteException e) {
+          if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+            throw e;
+          }
+          continue;
+        }
+      }
+      long version = bucket.get(VERSION, Number.class).longValue();
+      Bson current = Filters.and(Filters.eq(ID, bucket.get(ID)), Filters.eq(VERSION, version));
+      boolean applied = measures.isEmpty()
+          ? collection().deleteOne(current).getDeletedCount() == 1
+          : collection().replaceOne(current, encode(bucket.getObjectId(ID), key.isleId(),
+              key.start(), measures, version + 1)).getMatchedCount() == 1;
+      if (applied) {
+        return result;
+      }
+    }
+    throw new OptimisticLockingFailureException("The bucket of isle " + key.isleId() + " at "
+        + key.start() + " kept changing");
+  }
+
+  /**
+   * Filter of the buckets of the hours of a filter and of the cursor of a page.
+   *
+   * @param filter the filter
+   * @param after the cursor of the previous page, null for the first page
+   * @return the bucket filter
+   */
+  private Bson bucketFilter(MeasureFilter filter, MeasureCursor after) {
+    boolean ascending = filter.getDirection().isAscending();
+    List<Bson> filters = new ArrayList<>();
+    if (filter.getIsleId() != null) {
+      filters.add(Filters.eq(ISLE_ID, filter.getIsleId()));
+    }
+    LocalDateTime from = after != null && ascending ? after.getTimestamp() : filter.getFrom();
+    if (from != null) {
+      filters.add(Filters.gte(START, Date.from(from.truncatedTo(ChronoUnit.HOURS)
+          .atZone(ZoneId.systemDefault()).toInstant())));
+    }
+    if (after != null && !ascending) {
+      filters.add(Filters.lte(START,
+          Date.from(after.getTimestamp().atZone(ZoneId.systemDefault()).toInstant())));
+    } else if (filter.getTo() != null) {
+      filters.add(Filters.lt(START,
+          Date.from(filter.getTo().atZone(ZoneId.systemDefault()).toInstant())));
+    }
+    return filters.isEmpty() ? new Document() : Filters.and(filters);
+  }
+
+  /**
+   * Empty rollup of an isle and time bucket.
+   *
+   * @param key the key
+   * @return the rollup
+   */
+  private static MeasureRollup emptyRollup(BucketKey key) {
+    MeasureRollup rollup = new MeasureRollup();
+    rollup.setIsleId(key.isleId());
+    rollup.setTimestamp(key.start());
+    rollup.setCount(0L);
+    for (MeasureField field : FIELDS) {
+      RollupField rollupField = new RollupField();
+      rollupField.setCount(0L);
+      rollupField.setSum(0.0);
+      if (field.isCircular()) {
+        rollupField.setSin(0.0);
+        rollupField.setCos(0.0);
+      }
+      rollup.getFields().put(field.getName(), rollupField);
+    }
+    return rollup;
+  }
+
+  /**
+   * Add a measure to a rollup.
+   *
+   * @param rollup the rollup
+   * @param measure the measure
+   */
+  private static void add(MeasureRollup rollup, Measure measure) {
+    rollup.setCount(rollup.getCount() + 1);
+    for (MeasureField field : FIELDS) {
+      if (field.valueOf(measure) == null) {
+        continue;
+      }
+      double value = field.valueOf(measure).doubleValue();
+      RollupField rollupField = rollup.getFields().get(field.getName());
+      rollupField.setCount(rollupField.getCount() + 1);
+      rollupField.setSum(rollupField.getSum() + value);
+      rollupField.setMin(rollupField.getMin() == null
+          ? value : Math.min(rollupField.getMin(), value));
+      rollupField.setMax(rollupField.getMax() == null
+          ? value : Math.max(rollupField.getMax(), value));
+      if (field.isCircular()) {
+        rollupField.setSin(rollupField.getSin() + Math.sin(Math.toRadians(value)));
+        rollupField.setCos(rollupField.getCos() + Math.cos(Math.toRadians(value)));
+      }
+    }
+  }
+
+  /**
+   * The Record BucketKey. An hour, or a rollup bucket, of an isle, in timestamp order.
+   *
+   * @param start the start of the bucket
+   * @param isleId the isle id
+   */
+  private record BucketKey(LocalDateTime start, ObjectId isleId)
+      implements Comparable<BucketKey> {
+
+    /**
+     * The bucket key of a measure.
+     *
+     * @param measure the measure
+     * @return the bucket key
+     */
+    private static BucketKey of(Measure measure) {
+      if (measure.getIsleId() == null || measure.getTimestamp() == null) {
+        throw new IllegalArgumentException(
+            "A measure needs an isle id and a timestamp to be stored in a bucket");
+      }
+      return new BucketKey(measure.getTimestamp().truncatedTo(ChronoUnit.HOURS),
+          measure.getIsleId());
+    }
+
+    /**
+     * The bucket key of a bucket.
+     *
+     * @param bucket the bucket
+     * @return the bucket key
+     */
+    private static BucketKey of(Document bucket) {
+      return new BucketKey(LocalDateTime.ofInstant(bucket.getDate(START).toInstant(),
+          ZoneId.systemDefault()), bucket.getObjectId(ISLE_ID));
+    }
+
+    /**
+     * Compare by start, then isle id.
+     *
+     * @param other the other key
+     * @return the comparison
+     */
+    @Override
+    public int compareTo(BucketKey other) {
+      int compare = start.compareTo(other.start);
+      return compare != 0 ? compare : isleId.compareTo(other.isleId);
+    }
+  }
+
+  /**
+   * The Class BucketIterator. Iterates the measures of a cursor of buckets, decoding together
+   * the buckets of the same hour of every isle so their measures are returned in order.
+   */
+  private static class BucketIterator implements Iterator<Measure> {
+
+    /** The cursor of buckets, in hour order. */
+    private final MongoCursor<Document> cursor;
+
+    /** The filter of the measures. */
+    private final Predicate<Measure> filter;
+
+    /** The order of the measures. */
+    private final Comparator<Measure> order;
+
+    /** The measures of the current hour. */
+    private Iterator<Measure> hour = Collections.emptyIterator();
+
+    /** The first bucket of the next hour, already read from the cursor. */
+    private Document pending;
+
+    /**
+     * Instantiates a new bucket iterator.
+     *
+     * @param cursor the cursor
+     * @param filter the filter
+     * @param order the order
+     */
+    private BucketIterator(MongoCursor<Document> cursor, Predicate<Measure> filter,
+        Comparator<Measure> order) {
+      this.cursor = cursor;
+      this.filter = filter;
+      this.order = order;
+    }
+
+    /**
+     * Checks for a next measure, decoding the next hours until one has a measure of the filter.
+     *
+     * @return true, if there is a next measure
+     */
+    @Override
+    public boolean hasNext() {
+      while (!hour.hasNext() && (pending != null || cursor.hasNext())) {
+        Document first = pending != null ? pending : cursor.next();
+        pending = null;
+        List<Measure> measures = new ArrayList<>(decode(first));
+        while (cursor.hasNext()) {
+          Document next = cursor.next();
+          if (!first.get(START).equals(next.get(START))) {
+            pending = next;
+            break;
+          }
+          measures.addAll(decode(next));
+        }
+        Set<ObjectId> ids = new HashSet<>();
+        measures.removeIf(measure -> !ids.add(measure.getId()) || !filter.test(measure));
+        measures.sort(order);
+        hour = measures.iterator();
+      }
+      return hour.hasNext();
+    }
+
+    /**
+     * Next measure.
+     *
+     * @return the measure
+     */
+    @Override
+    public Measure next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return hour.next();
+    }
+  }
+}
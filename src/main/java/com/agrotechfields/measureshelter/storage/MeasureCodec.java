@@ -0,0 +1,207 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * The Class MeasureCodec. Encodes and decodes a {@link Measure} field by field, without the
+ * reflective mapping, into the same document the mapping writes: the {@code _id}, the isle id,
+ * the sensor fields under their short keys as {@link FixedPointConverter} stores them, the
+ * timestamp as a date in the zone of the application and the {@code _class} type hint. Missing
+ * values are not written. The sensor fields are also read under their property names, the keys of
+ * the measures not yet migrated by {@link ShortKeyMigration}.
+ */
+public class MeasureCodec implements CollectibleCodec<Measure> {
+
+  /** The id key. */
+  private static final String ID = "_id";
+
+  /** The isle id key. */
+  private static final String ISLE_ID = "isleId";
+
+  /** The timestamp key. */
+  private static final String TIMESTAMP = "timestamp";
+
+  /** The type hint key. */
+  private static final String CLASS = "_class";
+
+  /** The fields. */
+  private static final MeasureField[] FIELDS = MeasureField.values();
+
+  /** The fields by short key and by property name. */
+  private static final Map<String, MeasureField> FIELDS_BY_KEY = new HashMap<>();
+
+  static {
+    for (MeasureField field : FIELDS) {
+      FIELDS_BY_KEY.put(field.getKey(), field);
+      FIELDS_BY_KEY.put(field.getName(), field);
+    }
+  }
+
+  /** The fixed-point storage flag. */
+  private final boolean fixedPoint;
+
+  /**
+   * Instantiates a new measure codec.
+   *
+   * @param fixedPoint the fixed-point storage flag
+   */
+  public MeasureCodec(boolean fixedPoint) {
+    this.fixedPoint = fixedPoint;
+  }
+
+  /**
+   * Encode a measure.
+   *
+   * @param writer the writer
+   * @param measure the measure
+   * @param encoderContext the encoder context
+   */
+  @Override
+  public void encode(BsonWriter writer, Measure measure, EncoderContext encoderContext) {
+    writer.writeStartDocument();
+    if (measure.getId() != null) {
+      writer.writeObjectId(ID, measure.getId());
+    }
+    if (measure.getIsleId() != null) {
+      writer.writeObjectId(ISLE_ID, measure.getIsleId());
+    }
+    for (MeasureField field : FIELDS) {
+      BigDecimal value = field.valueOf(measure);
+      if (value == null) {
+        continue;
+      }
+      Object stored = fixedPoint ? FixedPointConverter.toStored(field, value) : value.toString();
+      if (stored instanceof Integer scaled) {
+        writer.writeInt32(field.getKey(), scaled);
+      } else if (stored instanceof Long scaled) {
+        writer.writeInt64(field.getKey(), scaled);
+      } else {
+        writer.writeString(field.getKey(), stored.toString());
+      }
+    }
+    if (measure.getTimestamp() != null) {
+      writer.writeDateTime(TIMESTAMP,
+          measure.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+    writer.writeString(CLASS, Measure.class.getName());
+    writer.writeEndDocument();
+  }
+
+  /**
+   * Decode a measure, skipping the unknown keys.
+   *
+   * @param reader the reader
+   * @param decoderContext the decoder context
+   * @return the measure
+   */
+  @Override
+  public Measure decode(BsonReader reader, DecoderContext decoderContext) {
+    Measure measure = new Measure();
+    reader.readStartDocument();
+    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+      String name = reader.readName();
+      if (reader.getCurrentBsonType() == BsonType.NULL) {
+        reader.readNull();
+        continue;
+      }
+      switch (name) {
+        case ID -> measure.setId(reader.readObjectId());
+        case ISLE_ID -> measure.setIsleId(reader.readObjectId());
+        case TIMESTAMP -> measure.setTimestamp(LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(reader.readDateTime()), ZoneId.systemDefault()));
+        default -> {
+          MeasureField field = FIELDS_BY_KEY.get(name);
+          if (field == null) {
+            reader.skipValue();
+          } else {
+            field.setValue(measure, readValue(reader, field));
+          }
+        }
+      }
+    }
+    reader.readEndDocument();
+    return measure;
+  }
+
+  /**
+   * Gets the encoder class.
+   *
+   * @return the encoder class
+   */
+  @Override
+  public Class<Measure> getEncoderClass() {
+    return Measure.class;
+  }
+
+  /**
+   * Generate an id if absent.
+   *
+   * @param measure the measure
+   * @return the measure
+   */
+  @Override
+  public Measure generateIdIfAbsentFromDocument(Measure measure) {
+    if (measure.getId() == null) {
+      measure.setId(new ObjectId());
+    }
+    return measure;
+  }
+
+  /**
+   * Checks if the measure has an id.
+   *
+   * @param measure the measure
+   * @return true, if it has an id
+   */
+  @Override
+  public boolean documentHasId(Measure measure) {
+    return measure.getId() != null;
+  }
+
+  /**
+   * Gets the id of a measure.
+   *
+   * @param measure the measure
+   * @return the id
+   */
+  @Override
+  public BsonValue getDocumentId(Measure measure) {
+    if (measure.getId() == null) {
+      throw new IllegalStateException("The measure has no id");
+    }
+    return new BsonObjectId(measure.getId());
+  }
+
+  /**
+   * Read a stored sensor value.
+   *
+   * @param reader the reader
+   * @param field the field
+   * @return the value
+   */
+  private BigDecimal readValue(BsonReader reader, MeasureField field) {
+    return switch (reader.getCurrentBsonType()) {
+      case INT32 -> FixedPointConverter.readStored(field, reader.readInt32());
+      case INT64 -> FixedPointConverter.readStored(field, reader.readInt64());
+      case DOUBLE -> FixedPointConverter.readStored(field, reader.readDouble());
+      case DECIMAL128 -> reader.readDecimal128().bigDecimalValue();
+      default -> new BigDecimal(reader.readString());
+    };
+  }
+}
@@ -0,0 +1,179 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Isle;
+import jakarta.annotation.PostConstruct;
+import java.util.Objects;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.CollectionOptions.TimeSeriesOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class MeasureCollection. Resolves the collection of the measures, referenced by the
+ * {@code @Document} of {@link com.agrotechfields.measureshelter.domain.Measure}.
+ *
+ * <p>When the time-series storage is enabled the measures live in a native MongoDB time-series
+ * collection, with {@code timestamp} as timeField and {@code isleId} as metaField, created here
+ * on startup if missing. Its granularity is derived from the shortest isle sampling interval
+ * (minutes) unless it is configured. It requires MongoDB 7.0 or later, the first version that
+ * updates and deletes the measures of a time-series collection by id, so the application does
+ * not start on an older server with the time-series storage enabled.
+ */
+@Component("measureCollection")
+public class MeasureCollection {
+
+  /** The logger. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(MeasureCollection.class);
+
+  /** The time field. */
+  public static final String TIME_FIELD = "timestamp";
+
+  /** The meta field. */
+  public static final String META_FIELD = "isleId";
+
+  /** The minimum major version of the server for the time-series storage. */
+  private static final int MIN_SERVER_VERSION = 7;
+
+  /** The mongo template. */
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /** The time-series flag. */
+  @Value("${measure.storage.time-series.enabled:false}")
+  private boolean timeSeries;
+
+  /** The regular collection. */
+  @Value("${measure.storage.collection:measure}")
+  private String regularCollection;
+
+  /** The time-series collection. */
+  @Value("${measure.storage.time-series.collection:measure_ts}")
+  private String timeSeriesCollection;
+
+  /** The configured granularity, derived from the isles when empty. */
+  @Value("${measure.storage.time-series.granularity:}")
+  private String granularity;
+
+  /**
+   * Creates the time-series collection when it is enabled and does not exist yet.
+   */
+  @PostConstruct
+  public void init() {
+    if (timeSeries) {
+      createTimeSeriesCollection();
+    }
+  }
+
+  /**
+   * Creates the time-series collection if it does not exist yet.
+   */
+  public void createTimeSeriesCollection() {
+    requireServerVersion();
+    if (mongoTemplate.collectionExists(timeSeriesCollection)) {
+      return;
+    }
+    Granularity resolvedGranularity = resolveGranularity();
+    mongoTemplate.createCollection(timeSeriesCollection, CollectionOptions.empty()
+        .timeSeries(TimeSeriesOptions.timeSeries(TIME_FIELD)
+            .metaField(META_FIELD)
+            .granularity(resolvedGranularity)));
+    LOGGER.info("Created time-series collection '{}' with granularity {}", timeSeriesCollection,
+        resolvedGranularity);
+  }
+
+  /**
+   * Check the server supports the time-series storage.
+   *
+   * @throws IllegalStateException if the server is older than MongoDB 7.0
+   */
+  private void requireServerVersion() {
+    String version = mongoTemplate.executeCommand(new Document("buildInfo", 1))
+        .getString("version");
+    int major = Integer.parseInt(version.substring(0, version.indexOf('.')));
+    if (major < MIN_SERVER_VERSION) {
+      throw new IllegalStateException("The time-series storage requires MongoDB "
+          + MIN_SERVER_VERSION + ".0 or later, the server is " + version);
+    }
+  }
+
+  /**
+   * Gets the name of the collection the measures are read from and written to.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return timeSeries ? timeSeriesCollection : regularCollection;
+  }
+
+  /**
+   * Gets the regular collection.
+   *
+   * @return the regular collection
+   */
+  public String getRegularCollection() {
+    return regularCollection;
+  }
+
+  /**
+   * Gets the time-series collection.
+   *
+   * @return the time-series collection
+   */
+  public String getTimeSeriesCollection() {
+    return timeSeriesCollection;
+  }
+
+  /**
+   * Checks if the time-series storage is enabled.
+   *
+   * @return true, if enabled
+   */
+  public boolean isTimeSeries() {
+    return timeSeries;
+  }
+
+  /**
+   * Resolve granularity: the configured one, or the one that matches the shortest isle sampling
+   * interval.
+   *
+   * @return the granularity
+   */
+  public Granularity resolveGranularity() {
+    if (granularity != null && !granularity.isBlank()) {
+      return Granularity.valueOf(granularity.trim().toUpperCase());
+    }
+    Query query = new Query(Criteria.where("samplingInterval").gt(0))
+        .with(Sort.by(Sort.Direction.ASC, "samplingInterval"))
+        .limit(1);
+    query.fields().include("samplingInterval");
+    Isle isle = mongoTemplate.findOne(query, Isle.class);
+    int minutes = isle == null ? 5 : Objects.requireNonNullElse(isle.getSamplingInterval(), 5);
+    return granularityOf(minutes);
+  }
+
+  /**
+   * Granularity for a sampling interval, following the MongoDB guidance: seconds under a minute,
+   * minutes under an hour and hours otherwise.
+   *
+   * @param samplingIntervalMinutes the sampling interval in minutes
+   * @return the granularity
+   */
+  public static Granularity granularityOf(int samplingIntervalMinutes) {
+    if (samplingIntervalMinutes < 1) {
+      return Granularity.SECONDS;
+    }
+    if (samplingIntervalMinutes < 60) {
+      return Granularity.MINUTES;
+    }
+    return Granularity.HOURS;
+  }
+}
@@ -0,0 +1,62 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.mongodb.MongoClientSettings;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+/**
+ * The Class MeasureConversions. Registers a {@link FixedPointConverter} for each sensor field of
+ * the measures with the mapping converter, and the {@link MeasureCodec} with the Mongo client for
+ * the reads and bulk inserts that bypass the mapping.
+ */
+@Configuration
+public class MeasureConversions {
+
+  /** The fixed-point storage flag. */
+  @Value("${measure.storage.fixed-point.enabled:false}")
+  private boolean fixedPoint;
+
+  /**
+   * Mongo custom conversions.
+   *
+   * @return the mongo custom conversions
+   */
+  @Bean
+  public MongoCustomConversions mongoCustomConversions() {
+    return MongoCustomConversions.create(adapter -> adapter.configurePropertyConversions(
+        registrar -> {
+          for (MeasureField field : MeasureField.values()) {
+            registrar.registerConverter(Measure.class, field.getName(),
+                new FixedPointConverter(field, fixedPoint));
+          }
+        }));
+  }
+
+  /**
+   * Measure codec.
+   *
+   * @return the measure codec
+   */
+  @Bean
+  public MeasureCodec measureCodec() {
+    return new MeasureCodec(fixedPoint);
+  }
+
+  /**
+   * Mongo client settings customizer, adding the measure codec before the default codecs.
+   *
+   * @param measureCodec the measure codec
+   * @return the mongo client settings builder customizer
+   */
+  @Bean
+  public MongoClientSettingsBuilderCustomizer measureCodecCustomizer(MeasureCodec measureCodec) {
+    return builder -> builder.codecRegistry(CodecRegistries.fromRegistries(
+        CodecRegistries.fromCodecs(measureCodec), MongoClientSettings.getDefaultCodecRegistry()));
+  }
+}
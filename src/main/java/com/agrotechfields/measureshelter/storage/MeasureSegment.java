@@ -0,0 +1,259 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.bson.types.ObjectId;
+
+/**
+ * The Class MeasureSegment. Immutable file of the archived measures of an isle, read through a
+ * memory map. The measures are split in blocks of up to {@link #BLOCK_SIZE}, in
+ * {@code (timestamp, _id)} order, each one with the raw ids of its measures followed by their
+ * {@link MeasureBlock}. A small index after the header keeps the first and last timestamp, the
+ * count, the offset and the length of each block, so a range read only decodes the blocks it
+ * overlaps.
+ *
+ * <p>Layout, big-endian: the magic number, the format version, the isle id and the number of
+ * blocks; then for each block its first and last UTC milliseconds, count, offset and length;
+ * then the blocks.
+ */
+public class MeasureSegment {
+
+  /** The magic number, {@code MSEG}. */
+  private static final int MAGIC = 0x4D534547;
+
+  /** The format version. */
+  private static final int VERSION = 1;
+
+  /** The maximum number of measures of a block. */
+  public static final int BLOCK_SIZE = 1024;
+
+  /** The length of the header. */
+  private static final int HEADER_LENGTH = 24;
+
+  /** The length of an index entry. */
+  private static final int ENTRY_LENGTH = 32;
+
+  /** The length of an id. */
+  private static final int ID_LENGTH = 12;
+
+  /** The isle id. */
+  private final ObjectId isleId;
+
+  /** The mapped file. */
+  private final ByteBuffer buffer;
+
+  /** The first timestamp of each block, in UTC milliseconds. */
+  private final long[] firsts;
+
+  /** The last timestamp of each block, in UTC milliseconds. */
+  private final long[] lasts;
+
+  /** The number of measures of each block. */
+  private final int[] counts;
+
+  /** The offset of each block. */
+  private final int[] offsets;
+
+  /** The length of each block. */
+  private final int[] lengths;
+
+  /**
+   * Map a segment file and read its index.
+   *
+   * @param path the path
+   * @throws IOException Signals that an I/O exception has occurred, or an invalid segment.
+   */
+  public MeasureSegment(Path path) throws IOException {
+    MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer = mapped;
+    if (buffer.remaining() < HEADER_LENGTH || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != VERSION) {
+      throw new IOException("Invalid measure segment " + path);
+    }
+    byte[] id = new byte[ID_LENGTH];
+    buffer.get(8, id);
+    isleId = new ObjectId(id);
+    int blocks = buffer.getInt(20);
+    firsts = new long[blocks];
+    lasts = new long[blocks];
+    counts = new int[blocks];
+    offsets = new int[blocks];
+    lengths = new int[blocks];
+    for (int block = 0; block < blocks; block++) {
+      int entry = HEADER_LENGTH + block * ENTRY_LENGTH;
+      firsts[block] = buffer.getLong(entry);
+      lasts[block] = buffer.getLong(entry + 8);
+      counts[block] = buffer.getInt(entry + 16);
+      offsets[block] = (int) buffer.getLong(entry + 20);
+      lengths[block] = buffer.getInt(entry + 28);
+    }
+  }
+
+  /**
+   * Write the measures of an isle as a new segment file, replacing the previous one atomically.
+   *
+   * @param path the path
+   * @param isleId the isle id
+   * @param measures the measures, in {@code (timestamp, _id)} order
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(Path path, ObjectId isleId, List<Measure> measures)
+      throws IOException {
+    List<byte[]> blocks = new ArrayList<>();
+    for (int from = 0; from < measures.size(); from += BLOCK_SIZE) {
+      List<Measure> block = measures.subList(from, Math.min(from + BLOCK_SIZE, measures.size()));
+      byte[] data = MeasureBlock.encode(block);
+      ByteBuffer bytes = ByteBuffer.allocate(block.size() * ID_LENGTH + data.length);
+      block.forEach(measure -> measure.getId().putToByteBuffer(bytes));
+      blocks.add(bytes.put(data).array());
+    }
+
+    int offset = HEADER_LENGTH + blocks.size() * ENTRY_LENGTH;
+    ByteBuffer header = ByteBuffer.allocate(offset)
+        .putInt(MAGIC)
+        .putInt(VERSION)
+        .put(isleId.toByteArray())
+        .putInt(blocks.size());
+    for (int block = 0; block < blocks.size(); block++) {
+      int from = block * BLOCK_SIZE;
+      int to = Math.min(from + BLOCK_SIZE, measures.size()) - 1;
+      header.putLong(MeasureBlock.toMillis(measures.get(from).getTimestamp()))
+          .putLong(MeasureBlock.toMillis(measures.get(to).getTimestamp()))
+          .putInt(to - from + 1)
+          .putLong(offset)
+          .putInt(blocks.get(block).length);
+      offset += blocks.get(block).length;
+    }
+
+    Files.createDirectories(path.getParent());
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      channel.write(header.flip());
+      for (byte[] block : blocks) {
+        channel.write(ByteBuffer.wrap(block));
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Gets the isle id.
+   *
+   * @return the isle id
+   */
+  public ObjectId getIsleId() {
+    return isleId;
+  }
+
+  /**
+   * Gets the number of measures.
+   *
+   * @return the count
+   */
+  public int getCount() {
+    int count = 0;
+    for (int blockCount : counts) {
+      count += blockCount;
+    }
+    return count;
+  }
+
+  /**
+   * Read all the measures.
+   *
+   * @return the measures, in {@code (timestamp, _id)} order
+   */
+  public List<Measure> readAll() {
+    List<Measure> measures = new ArrayList<>(getCount());
+    for (int block = 0; block < counts.length; block++) {
+      measures.addAll(read(block));
+    }
+    return measures;
+  }
+
+  /**
+   * Iterate the measures of the blocks that overlap a range, decoding a block at a time.
+   *
+   * @param from the inclusive start of the range, null for unbounded
+   * @param to the inclusive end of the range, null for unbounded
+   * @param ascending the timestamp order
+   * @return the iterator, which may return measures outside the range from the boundary blocks
+   */
+  public Iterator<Measure> iterator(LocalDateTime from, LocalDateTime to, boolean ascending) {
+    long fromMillis = from == null ? Long.MIN_VALUE : MeasureBlock.toMillis(from);
+    long toMillis = to == null ? Long.MAX_VALUE : MeasureBlock.toMillis(to);
+    List<Integer> blocks = new ArrayList<>();
+    for (int block = 0; block < counts.length; block++) {
+      if (lasts[block] >= fromMillis && firsts[block] <= toMillis) {
+        blocks.add(block);
+      }
+    }
+    if (!ascending) {
+      Collections.reverse(blocks);
+    }
+    Iterator<Integer> remaining = blocks.iterator();
+    return new Iterator<>() {
+
+      private Iterator<Measure> current = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && remaining.hasNext()) {
+          List<Measure> measures = read(remaining.next());
+          if (!ascending) {
+            Collections.reverse(measures);
+          }
+          current = measures.iterator();
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public Measure next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+
+  /**
+   * Decode a block from the mapped file.
+   *
+   * @param block the block
+   * @return the measures of the block
+   */
+  private List<Measure> read(int block) {
+    List<ObjectId> ids = new ArrayList<>(counts[block]);
+    byte[] id = new byte[ID_LENGTH];
+    int position = offsets[block];
+    for (int index = 0; index < counts[block]; index++) {
+      buffer.get(position, id);
+      ids.add(new ObjectId(id));
+      position += ID_LENGTH;
+    }
+    byte[] data = new byte[offsets[block] + lengths[block] - position];
+    buffer.get(position, data);
+    return MeasureBlock.decode(data, isleId, ids);
+  }
+}
@@ -0,0 +1,85 @@
+package com.agrotechfields.measureshelter.storage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class MigrationEndpoint. Actuator endpoint to follow and start the {@link BatchMigration}s:
+ * {@code GET /actuator/migrations[/{name}]} and {@code POST /actuator/migrations/{name}}, with an
+ * optional {@code batchSize} in the body.
+ */
+@Component
+@Endpoint(id = "migrations")
+public class MigrationEndpoint {
+
+  /** The migrations. */
+  @Autowired
+  private List<BatchMigration> migrations;
+
+  /** The default batch size. */
+  @Value("${storage.migration.batch-size:1000}")
+  private int defaultBatchSize;
+
+  /**
+   * Progress of all migrations.
+   *
+   * @return the progress by migration name
+   */
+  @ReadOperation
+  public Map<String, MigrationProgress> migrations() {
+    Map<String, MigrationProgress> progress = new LinkedHashMap<>();
+    migrations.forEach(migration -> progress.put(migration.getName(), migration.getProgress()));
+    return progress;
+  }
+
+  /**
+   * Progress of a migration.
+   *
+   * @param name the migration name
+   * @return the progress, or null (404) if there is no such migration
+   */
+  @ReadOperation
+  public MigrationProgress migration(@Selector String name) {
+    BatchMigration migration = find(name);
+    return migration == null ? null : migration.getProgress();
+  }
+
+  /**
+   * Start or resume a migration.
+   *
+   * @param name the migration name
+   * @param batchSize the batch size
+   * @return the progress, or null (404) if there is no such migration
+   */
+  @WriteOperation
+  public MigrationProgress start(@Selector String name, @Nullable Integer batchSize) {
+    BatchMigration migration = find(name);
+    if (migration == null) {
+      return null;
+    }
+    migration.start(batchSize == null || batchSize < 1 ? defaultBatchSize : batchSize);
+    return migration.getProgress();
+  }
+
+  /**
+   * Find a migration by name.
+   *
+   * @param name the name
+   * @return the migration, or null
+   */
+  private BatchMigration find(String name) {
+    return migrations.stream()
+        .filter(migration -> migration.getName().equals(name))
+        .findFirst()
+        .orElse(null);
+  }
+}
@@ -0,0 +1,182 @@
+package com.agrotechfields.measureshelter.storage;
+
+import java.time.LocalDateTime;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * The Class MigrationProgress. Checkpoint of a {@link BatchMigration}, saved after each batch so
+ * an interrupted migration resumes where it stopped.
+ */
+@Document(collection = "migrations")
+public class MigrationProgress {
+
+  /**
+   * The Enum Status.
+   */
+  public enum Status {
+
+    /** Never started. */
+    PENDING,
+    /** Running. */
+    RUNNING,
+    /** All documents migrated. */
+    COMPLETED,
+    /** Stopped by an error, starts again from the last checkpoint. */
+    FAILED;
+  }
+
+  /** The migration name. */
+  @Id
+  private String name;
+
+  /** The status. */
+  private Status status = Status.PENDING;
+
+  /** The id of the last migrated document. */
+  private ObjectId lastId;
+
+  /** The number of migrated documents. */
+  private long migrated;
+
+  /** The start of the last run. */
+  private LocalDateTime startedAt;
+
+  /** The last update. */
+  private LocalDateTime updatedAt;
+
+  /** The error of the last run. */
+  private String error;
+
+  /**
+   * Instantiates a new migration progress.
+   */
+  public MigrationProgress() {}
+
+  /**
+   * Instantiates a new migration progress.
+   *
+   * @param name the migration name
+   */
+  public MigrationProgress(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets the name.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the status.
+   *
+   * @return the status
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Sets the status.
+   *
+   * @param status the new status
+   */
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  /**
+   * Gets the last id.
+   *
+   * @return the last id
+   */
+  public ObjectId getLastId() {
+    return lastId;
+  }
+
+  /**
+   * Sets the last id.
+   *
+   * @param lastId the new last id
+   */
+  public void setLastId(ObjectId lastId) {
+    this.lastId = lastId;
+  }
+
+  /**
+   * Gets the migrated.
+   *
+   * @return the migrated
+   */
+  public long getMigrated() {
+    return migrated;
+  }
+
+  /**
+   * Sets the migrated.
+   *
+   * @param migrated the new migrated
+   */
+  public void setMigrated(long migrated) {
+    this.migrated = migrated;
+  }
+
+  /**
+   * Gets the started at.
+   *
+   * @return the started at
+   */
+  public LocalDateTime getStartedAt() {
+    return startedAt;
+  }
+
+  /**
+   * Sets the started at.
+   *
+   * @param startedAt the new started at
+   */
+  public void setStartedAt(LocalDateTime startedAt) {
+    this.startedAt = startedAt;
+  }
+
+  /**
+   * Gets the updated at.
+   *
+   * @return the updated at
+   */
+  public LocalDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  /**
+   * Sets the updated at.
+   *
+   * @param updatedAt the new updated at
+   */
+  public void setUpdatedAt(LocalDateTime updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+  /**
+   * Gets the error.
+   *
+   * @return the error
+   */
+  public String getError() {
+    return error;
+  }
+
+  /**
+   * Sets the error.
+   *
+   * @param error the new error
+   */
+  public void setError(String error) {
+    this.error = error;
+  }
+}
@@ -0,0 +1,60 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.RollupResolution;
+import com.agrotechfields.measureshelter.service.MeasureRollupService;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class RollupEndpoint. Actuator endpoint to rebuild the measure rollups from the raw
+ * measures: {@code POST /actuator/rollups}, with an optional {@code isleId}, {@code from} and
+ * {@code to} in the body. The range is widened to whole buckets.
+ */
+@Component
+@Endpoint(id = "rollups")
+public class RollupEndpoint {
+
+  /** The measure rollup service. */
+  @Autowired
+  private MeasureRollupService measureRollupService;
+
+  /**
+   * Rebuild the rollups.
+   *
+   * @param isleId the isle id, all isles when null
+   * @param from the ISO start of the range, unbounded when null
+   * @param to the ISO end of the range, unbounded when null
+   * @return the number of rebuilt rollups by resolution
+   */
+  @WriteOperation
+  public Map<RollupResolution, Long> rebuild(@Nullable String isleId, @Nullable String from,
+      @Nullable String to) {
+    if (isleId != null && !ObjectId.isValid(isleId)) {
+      throw new InvalidEndpointRequestException("Invalid isle id", "Invalid isle id");
+    }
+    ObjectId objectId = isleId == null ? null : new ObjectId(isleId);
+    return measureRollupService.rebuild(objectId, parse(from), parse(to));
+  }
+
+  /**
+   * Parses an ISO timestamp.
+   *
+   * @param timestamp the timestamp
+   * @return the local date time, null when null
+   */
+  private LocalDateTime parse(String timestamp) {
+    try {
+      return timestamp == null ? null : LocalDateTime.parse(timestamp);
+    } catch (DateTimeParseException e) {
+      throw new InvalidEndpointRequestException("Invalid timestamp", "Invalid timestamp");
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.mongodb.client.model.Filters;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class ShortKeyMigration. Renames the sensor fields of the measures written before the short
+ * keys from their property names to their short keys, see {@link MeasureField#getKey()}. A rename
+ * of a key that is no longer there does nothing, so a resumed or repeated run, or a measure saved
+ * meanwhile with the short keys, is left as it is. Until it completes, both layouts are read.
+ */
+@Component
+public class ShortKeyMigration extends BatchMigration {
+
+  /** The measure collection. */
+  @Autowired
+  private MeasureCollection measureCollection;
+
+  /**
+   * Gets the migration name.
+   *
+   * @return the name
+   */
+  @Override
+  public String getName() {
+    return "measure-short-keys";
+  }
+
+  /**
+   * Gets the source collection.
+   *
+   * @return the measure collection in use
+   */
+  @Override
+  protected String getSourceCollection() {
+    return measureCollection.getName();
+  }
+
+  /**
+   * Filter of the measures with a sensor field under its property name.
+   *
+   * @return the filter
+   */
+  @Override
+  protected Bson getFilter() {
+    List<Bson> legacy = new ArrayList<>();
+    for (MeasureField field : MeasureField.values()) {
+      legacy.add(Filters.exists(field.getName()));
+    }
+    return Filters.or(legacy);
+  }
+
+  /**
+   * Migrate a batch with a single update renaming the legacy keys.
+   *
+   * @param batch the batch
+   * @param resumed the resumed flag
+   */
+  @Override
+  protected void migrate(List<Document> batch, boolean resumed) {
+    List<Object> ids = batch.stream().map(document -> document.get("_id")).toList();
+    Document rename = new Document();
+    for (MeasureField field : MeasureField.values()) {
+      rename.append(field.getName(), field.getKey());
+    }
+    mongoTemplate.getCollection(getSourceCollection())
+        .updateMany(Filters.in("_id", ids), new Document("$rename", rename));
+  }
+}
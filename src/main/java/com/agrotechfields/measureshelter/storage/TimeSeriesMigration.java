@@ -0,0 +1,84 @@
+package com.agrotechfields.measureshelter.storage;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class TimeSeriesMigration. Copies the measures of the regular collection into the
+ * time-series collection, keeping their ids, so the storage can be switched with
+ * {@code measure.storage.time-series.enabled} once it completes. The regular collection is left
+ * untouched as a fallback.
+ */
+@Component
+public class TimeSeriesMigration extends BatchMigration {
+
+  /** The measure collection. */
+  @Autowired
+  private MeasureCollection measureCollection;
+
+  /**
+   * Gets the migration name.
+   *
+   * @return the name
+   */
+  @Override
+  public String getName() {
+    return "measure-time-series";
+  }
+
+  /**
+   * Gets the source collection.
+   *
+   * @return the regular measure collection
+   */
+  @Override
+  protected String getSourceCollection() {
+    return measureCollection.getRegularCollection();
+  }
+
+  /**
+   * Filter of the measures with a timestamp, the only ones a time-series collection accepts.
+   *
+   * @return the filter
+   */
+  @Override
+  protected Bson getFilter() {
+    return Filters.type(MeasureCollection.TIME_FIELD, "date");
+  }
+
+  /**
+   * Migrate a batch, skipping the measures a previous run already copied.
+   *
+   * @param batch the batch
+   * @param resumed the resumed flag
+   */
+  @Override
+  protected void migrate(List<Document> batch, boolean resumed) {
+    measureCollection.createTimeSeriesCollection();
+    MongoCollection<Document> target =
+        mongoTemplate.getCollection(measureCollection.getTimeSeriesCollection());
+
+    List<Document> documents = batch;
+    if (resumed) {
+      List<ObjectId> ids = batch.stream().map(document -> document.getObjectId("_id")).toList();
+      Set<ObjectId> copied = new HashSet<>();
+      target.find(Filters.in("_id", ids)).projection(new Document("_id", 1))
+          .forEach(document -> copied.add(document.getObjectId("_id")));
+      documents = batch.stream()
+          .filter(document -> !copied.contains(document.getObjectId("_id")))
+          .toList();
+    }
+    if (!documents.isEmpty()) {
+      target.insertMany(documents, new InsertManyOptions().ordered(false));
+    }
+  }
+}
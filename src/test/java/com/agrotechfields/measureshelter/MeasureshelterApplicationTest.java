@@ -7,10 +7,12 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import java.io.FileInputStream;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -69,7 +71,7 @@ class MeasureshelterApplicationTest {
   private UserRepository userRepository;
 
   @Container
-  static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:5");
+  static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:7.0");
 
   @DynamicPropertySource
   static void mongoDbProperties(DynamicPropertyRegistry registry) {
@@ -2442,7 +2444,7 @@ class MeasureshelterApplicationTest {
   @DisplayName("119. Image - POST with file size greater than the limit")
   void imagePostWithFileSizeGreaterThanTheLimit() throws Exception {
     Random random = new Random();
-    byte[] bytes = new byte[16*1024*1024];
+    byte[] bytes = new byte[16*1024*1024 + 1];
     random.nextBytes(bytes);
 
     MockMultipartFile file =
@@ -2535,7 +2537,39 @@ class MeasureshelterApplicationTest {
 
   @Test
   @Order(126)
-  @DisplayName("126. Image - DELETE by id")
+  @DisplayName("126. Image - GET with ETag and Range")
+  void imageGetWithEtagAndRange() throws Exception {
+    MvcResult result = mockMvc
+        .perform(get("/image/id/" + ids.get(IMAGE))
+            .headers(HTTP_HEADERS))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL,
+            "max-age=31536000, private, immutable"))
+        .andReturn();
+    String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc
+        .perform(get("/image/name/image01.png")
+            .headers(HTTP_HEADERS)
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(content().bytes(new byte[0]));
+
+    byte[] image = getMockImage();
+    mockMvc
+        .perform(get("/image/id/" + ids.get(IMAGE))
+            .headers(HTTP_HEADERS)
+            .header(HttpHeaders.RANGE, "bytes=0-9"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + image.length))
+        .andExpect(content().bytes(Arrays.copyOf(image, 10)));
+  }
+
+  @Test
+  @Order(127)
+  @DisplayName("127. Image - DELETE by id")
   void imageDeleteById() throws Exception {
     mockMvc
         .perform(delete("/image/" + ids.get(IMAGE))
@@ -1,5 +1,6 @@
 package com.agrotechfields.measureshelter;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
@@ -7,6 +8,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import java.util.ArrayList;
 import java.util.List;
@@ -58,7 +60,7 @@ class MeasureshelterSecurityTest {
   private UserRepository userRepository;
 
   @Container
-  static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:5");
+  static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:7.0");
 
   @DynamicPropertySource
   static void mongoDbProperties(DynamicPropertyRegistry registry) {
@@ -586,4 +588,54 @@ class MeasureshelterSecurityTest {
       .andExpect(status().isMethodNotAllowed())
       .andExpect(jsonPath("$.message").value("Request method 'PATCH' is not supported"));
   }
+
+  @Test
+  @Order(24)
+  @DisplayName("24. /user - GET - Unauthorized access for user disabled after its login")
+  void userGetUnauthorizedForUserDisabledAfterItsLogin() throws Exception {
+    User adminUser = USERS.get(0);
+    setHeadersWithTokenByLogin(ADMIN_USERNAME, ADMIN_PASSWORD);
+
+    mockMvc
+      .perform(get("/user").headers(HTTP_HEADERS))
+      .andExpect(status().isOk());
+
+    mockMvc
+      .perform(patch("/user/" + adminUser.getId() + "/toggle/enable").headers(HTTP_HEADERS))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.isEnable").value(false));
+
+    mockMvc
+      .perform(get("/user").headers(HTTP_HEADERS))
+      .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+      .andExpect(status().isUnauthorized())
+      .andExpect(jsonPath("$.message").value("User is disabled"));
+
+    adminUser.setEnabled(true);
+    userRepository.save(adminUser);
+  }
+
+  @Test
+  @Order(25)
+  @DisplayName("25. /measure/streaming - GET - streamed response completed on its async dispatch")
+  void measureStreamingGetCompletedOnItsAsyncDispatch() throws Exception {
+    setHeadersWithTokenByLogin(USER_USERNAME, USER_PASSWORD);
+
+    MvcResult mvcResult = mockMvc
+      .perform(get("/measure/streaming").headers(HTTP_HEADERS))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    mockMvc
+      .perform(asyncDispatch(mvcResult))
+      .andExpect(status().isOk())
+      .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+      .andExpect(content().json("[]"));
+
+    setHeadersWithTokenByLogin(SAT_USERNAME, SAT_PASSWORD);
+
+    mockMvc
+      .perform(get("/measure/streaming").headers(HTTP_HEADERS))
+      .andExpect(status().isForbidden());
+  }
 }
@@ -0,0 +1,121 @@
+package com.agrotechfields.measureshelter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.repository.MeasureRepository;
+import com.agrotechfields.measureshelter.storage.MeasureCollection;
+import com.mongodb.client.model.Filters;
+
+@SpringBootTest(properties = "measure.storage.time-series.enabled=true")
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class MeasureshelterTimeSeriesTest {
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private MeasureCollection measureCollection;
+
+  @Autowired
+  private MeasureRepository measureRepository;
+
+  @Container
+  static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:7.0");
+
+  @DynamicPropertySource
+  static void mongoDbProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+  }
+
+  private static final ObjectId ISLE_ID = new ObjectId();
+
+  private static final LocalDateTime START =
+      LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusHours(1);
+
+  private static Measure measureAt(int minute) {
+    return new Measure(new ObjectId(), ISLE_ID, new BigDecimal("30.66"), new BigDecimal("21.5"),
+        new BigDecimal("4.21"), new BigDecimal("200"), new BigDecimal("1060.54"),
+        new BigDecimal("1050.24"), new BigDecimal("40.23"), new BigDecimal("52.1"),
+        BigDecimal.ZERO, BigDecimal.ONE, START.plusMinutes(minute));
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("1. The measures are stored in a time-series collection")
+  void theMeasuresAreStoredInATimeSeriesCollection() {
+    assertTrue(measureCollection.isTimeSeries());
+    Document collection = mongoTemplate.getDb().listCollections()
+        .filter(Filters.eq("name", measureCollection.getName())).first();
+    assertEquals("timeseries", collection.getString("type"));
+    Document timeseries = collection.get("options", Document.class)
+        .get("timeseries", Document.class);
+    assertEquals(MeasureCollection.TIME_FIELD, timeseries.getString("timeField"));
+    assertEquals(MeasureCollection.META_FIELD, timeseries.getString("metaField"));
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("2. The time-series collection has the indexes ending with the _id")
+  void theTimeSeriesCollectionHasTheIndexesEndingWithTheId() {
+    List<Document> keys = mongoTemplate.getCollection(measureCollection.getName()).listIndexes()
+        .map(index -> index.get("key", Document.class))
+        .into(new ArrayList<>());
+
+    assertTrue(keys.stream().anyMatch(key -> List.of("isleId", "timestamp", "_id")
+        .equals(new ArrayList<>(key.keySet()))));
+    assertTrue(keys.stream().anyMatch(key -> List.of("timestamp", "_id")
+        .equals(new ArrayList<>(key.keySet()))));
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("3. insertMissing skips the measures already stored without a unique _id")
+  void insertMissingSkipsTheMeasuresAlreadyStoredWithoutAUniqueId() {
+    Measure stored = measureAt(0);
+    Measure missing = measureAt(1);
+    assertEquals(1, measureRepository.insertUnordered(List.of(stored)));
+
+    assertEquals(1, measureRepository.insertMissing(List.of(stored, missing)));
+    assertEquals(0, measureRepository.insertMissing(List.of(stored, missing)));
+    assertEquals(2, mongoTemplate.getCollection(measureCollection.getName())
+        .countDocuments(Filters.eq("isleId", ISLE_ID)));
+    assertEquals(missing.getTimestamp(),
+        measureRepository.findById(missing.getId()).orElseThrow().getTimestamp());
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("4. A measure of the time-series collection is updated and deleted by _id")
+  void aMeasureOfTheTimeSeriesCollectionIsUpdatedAndDeletedById() {
+    Measure measure = measureAt(2);
+    measureRepository.insert(measure);
+    measure.setAirTemp(new BigDecimal("25.10"));
+    measureRepository.save(measure);
+    assertEquals(new BigDecimal("25.10"),
+        measureRepository.findById(measure.getId()).orElseThrow().getAirTemp());
+
+    measureRepository.deleteById(measure.getId());
+    assertTrue(measureRepository.findById(measure.getId()).isEmpty());
+  }
+}
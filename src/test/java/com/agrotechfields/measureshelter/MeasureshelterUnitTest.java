@@ -1,27 +1,141 @@
 package com.agrotechfields.measureshelter;
 
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import com.agrotechfields.measureshelter.controller.ImageController;
 import com.agrotechfields.measureshelter.domain.Image;
 import com.agrotechfields.measureshelter.domain.Isle;
 import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureExportFormat;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.agrotechfields.measureshelter.domain.MeasureRollup;
+import com.agrotechfields.measureshelter.domain.MeasureRollup.RollupField;
+import com.agrotechfields.measureshelter.domain.MeasureStats;
 import com.agrotechfields.measureshelter.domain.Role;
+import com.agrotechfields.measureshelter.domain.RollupResolution;
+import com.agrotechfields.measureshelter.domain.StatsInterval;
 import com.agrotechfields.measureshelter.domain.User;
 import com.agrotechfields.measureshelter.dto.request.AuthDto;
 import com.agrotechfields.measureshelter.dto.request.IsleDto;
 import com.agrotechfields.measureshelter.dto.request.MeasureDto;
+import com.agrotechfields.measureshelter.dto.request.MeasureQueryDto;
 import com.agrotechfields.measureshelter.dto.request.UserDto;
+import com.agrotechfields.measureshelter.dto.response.ImageResponseDto;
 import com.agrotechfields.measureshelter.dto.response.IsleResponseDto;
+import com.agrotechfields.measureshelter.dto.response.MeasureBatchResponseDto;
+import com.agrotechfields.measureshelter.dto.response.MeasurePageResponseDto;
 import com.agrotechfields.measureshelter.dto.response.MeasureResponseDto;
 import com.agrotechfields.measureshelter.dto.response.TokenReponseDto;
 import com.agrotechfields.measureshelter.dto.response.UserResponseDto;
+import com.agrotechfields.measureshelter.event.MeasureEvent;
+import com.agrotechfields.measureshelter.exception.EntityAlreadyExistsException;
 import com.agrotechfields.measureshelter.exception.payload.ErrorPayload;
+import com.agrotechfields.measureshelter.repository.ImageRepository;
+import com.agrotechfields.measureshelter.repository.IsleRepository;
+import com.agrotechfields.measureshelter.repository.MeasureCursor;
+import com.agrotechfields.measureshelter.repository.MeasureFilter;
+import com.agrotechfields.measureshelter.repository.MeasureRepository;
+import com.agrotechfields.measureshelter.repository.MeasureRepositoryImpl;
+import com.agrotechfields.measureshelter.repository.UserRepository;
+import com.agrotechfields.measureshelter.service.ImageService;
+import com.agrotechfields.measureshelter.service.IsleCache;
+import com.agrotechfields.measureshelter.service.IsleService;
+import com.agrotechfields.measureshelter.service.LatestMeasureView;
+import com.agrotechfields.measureshelter.service.MeasureArrowWriter;
+import com.agrotechfields.measureshelter.service.MeasureBroadcaster;
+import com.agrotechfields.measureshelter.service.MeasureExporter;
+import com.agrotechfields.measureshelter.service.MeasureRing;
+import com.agrotechfields.measureshelter.service.MeasureRollupService;
+import com.agrotechfields.measureshelter.service.MeasureService;
+import com.agrotechfields.measureshelter.service.MeasureWriteBehindBuffer;
+import com.agrotechfields.measureshelter.storage.FixedPointConverter;
+import com.agrotechfields.measureshelter.storage.GorillaReader;
+import com.agrotechfields.measureshelter.storage.GorillaWriter;
+import com.agrotechfields.measureshelter.storage.ImageMigration;
+import com.agrotechfields.measureshelter.storage.LegacyKeyListener;
+import com.agrotechfields.measureshelter.storage.MeasureArchive;
+import com.agrotechfields.measureshelter.storage.MeasureBlock;
+import com.agrotechfields.measureshelter.storage.MeasureBucketStore;
+import com.agrotechfields.measureshelter.storage.MeasureCodec;
+import com.agrotechfields.measureshelter.storage.MeasureCollection;
+import com.agrotechfields.measureshelter.storage.MeasureSegment;
+import com.agrotechfields.measureshelter.storage.MigrationProgress;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
 import org.bson.types.Binary;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.DisplayName;
@@ -29,7 +143,47 @@ import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @DisplayName("Unit tests not covered by integration tests")
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -492,10 +646,1620 @@ class MeasureshelterUnitTest {
     image.setId(id);
     image.setImageData(binary);
     image.setName("filename");
+    image.setLength(8L);
 
     assertEquals(id, image.getId());
     assertEquals("filename", image.getName());
     assertEquals(binary, image.getImageData());
+    assertEquals(8L, image.getLength());
     assertNotNull(image.getTimestamp());
   }
+
+  @Test
+  @Order(24)
+  @DisplayName("24. Testing MeasureBatchResponseDto by factories")
+  void testingMeasureBatchResponseDtoByFactories() {
+    MeasureBatchResponseDto created = MeasureBatchResponseDto.created(0, "someid");
+    MeasureBatchResponseDto invalid = MeasureBatchResponseDto.invalid(1, "airTemp: must not be null");
+
+    assertEquals(0, created.getIndex());
+    assertEquals(201, created.getStatus());
+    assertEquals("someid", created.getId());
+    assertNull(created.getMessage());
+    assertEquals(1, invalid.getIndex());
+    assertEquals(422, invalid.getStatus());
+    assertNull(invalid.getId());
+    assertEquals("airTemp: must not be null", invalid.getMessage());
+  }
+
+  @Test
+  @Order(25)
+  @DisplayName("25. Testing MeasureCollection granularity by sampling interval")
+  void testingMeasureCollectionGranularityBySamplingInterval() {
+    assertEquals(Granularity.SECONDS, MeasureCollection.granularityOf(0));
+    assertEquals(Granularity.MINUTES, MeasureCollection.granularityOf(1));
+    assertEquals(Granularity.MINUTES, MeasureCollection.granularityOf(5));
+    assertEquals(Granularity.HOURS, MeasureCollection.granularityOf(60));
+  }
+
+  @Test
+  @Order(26)
+  @DisplayName("26. Testing MeasureCursor by encoding and decoding")
+  void testingMeasureCursorByEncodingAndDecoding() throws ServletException {
+    ObjectId id = new ObjectId();
+    LocalDateTime timestamp = LocalDateTime.of(2023, 6, 1, 12, 30, 15);
+
+    MeasureCursor decoded = MeasureCursor.decode(new MeasureCursor(timestamp, id).encode());
+
+    assertEquals(timestamp, decoded.getTimestamp());
+    assertEquals(id, decoded.getId());
+    assertNull(MeasureCursor.decode(null));
+    assertNull(MeasureCursor.decode(" "));
+    assertThrows(ServletException.class, () -> MeasureCursor.decode("not a cursor"));
+  }
+
+  @Test
+  @Order(27)
+  @DisplayName("27. Testing MeasurePageResponseDto by constructor")
+  void testingMeasurePageResponseDtoByConstructor() {
+    List<Measure> measures = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Measure measure = new Measure();
+      measure.setId(new ObjectId());
+      measure.setIsleId(new ObjectId());
+      measure.setTimestamp(LocalDateTime.of(2023, 6, 1, 12, i));
+      measures.add(measure);
+    }
+
+    MeasurePageResponseDto page = new MeasurePageResponseDto(measures, 2);
+    MeasurePageResponseDto lastPage = new MeasurePageResponseDto(measures.subList(2, 3), 2);
+
+    assertEquals(2, page.getSize());
+    assertEquals(measures.get(1).getId().toHexString(), page.getContent().get(1).getId());
+    assertNotNull(page.getNext());
+    assertEquals(1, lastPage.getSize());
+    assertNull(lastPage.getNext());
+  }
+
+  @Test
+  @Order(28)
+  @DisplayName("28. Testing MeasureQueryDto by constructor")
+  void testingMeasureQueryDtoByConstructor() {
+    LocalDateTime from = LocalDateTime.of(2023, 6, 1, 0, 0);
+    LocalDateTime to = from.plusDays(1);
+
+    MeasureQueryDto empty = new MeasureQueryDto();
+    MeasureQueryDto query = new MeasureQueryDto(from, to, 10, "DESC");
+
+    assertTrue(empty.isEmpty());
+    assertEquals(Direction.ASC, empty.getDirection());
+    assertFalse(query.isEmpty());
+    assertEquals(from, query.getFrom());
+    assertEquals(to, query.getTo());
+    assertEquals(10, query.getLimit());
+    assertEquals(Direction.DESC, query.getDirection());
+  }
+
+  @Test
+  @Order(29)
+  @DisplayName("29. Testing StatsInterval by parsing")
+  void testingStatsIntervalByParsing() throws ServletException {
+    StatsInterval quarter = StatsInterval.parse("15m");
+    StatsInterval hour = StatsInterval.parse("1h");
+    StatsInterval day = StatsInterval.parse("1d");
+
+    assertEquals("minute", quarter.getUnit());
+    assertEquals(15, quarter.getBinSize());
+    assertEquals(Duration.ofMinutes(15), quarter.getDuration());
+    assertEquals("hour", hour.getUnit());
+    assertEquals(Duration.ofHours(1), hour.getDuration());
+    assertEquals("day", day.getUnit());
+    assertEquals(Duration.ofDays(1), day.getDuration());
+    assertThrows(ServletException.class, () -> StatsInterval.parse("0m"));
+    assertThrows(ServletException.class, () -> StatsInterval.parse("1w"));
+    assertThrows(ServletException.class, () -> StatsInterval.parse(null));
+  }
+
+  @Test
+  @Order(30)
+  @DisplayName("30. Testing MeasureRollup to MeasureStats")
+  void testingMeasureRollupToMeasureStats() {
+    RollupField airTemp = new RollupField();
+    airTemp.setCount(2L);
+    airTemp.setSum(50.0);
+    airTemp.setMin(20.0);
+    airTemp.setMax(30.0);
+    RollupField windDirection = new RollupField();
+    windDirection.setCount(2L);
+    windDirection.setSin(Math.sin(Math.toRadians(350)) + Math.sin(Math.toRadians(20)));
+    windDirection.setCos(Math.cos(Math.toRadians(350)) + Math.cos(Math.toRadians(20)));
+
+    MeasureRollup rollup = new MeasureRollup();
+    LocalDateTime timestamp = RollupResolution.HOUR.truncate(LocalDateTime.of(2023, 6, 1, 12, 35));
+    rollup.setTimestamp(timestamp);
+    rollup.setCount(2L);
+    rollup.setFields(Map.of("airTemp", airTemp, "windDirection", windDirection));
+
+    MeasureStats stats = rollup.toMeasureStats();
+
+    assertEquals(LocalDateTime.of(2023, 6, 1, 12, 0), stats.getTimestamp());
+    assertEquals(LocalDateTime.of(2023, 6, 1, 13, 0), RollupResolution.HOUR.next(timestamp));
+    assertEquals(2L, stats.getCount());
+    assertEquals(25.0, stats.getFields().get("airTemp").getAvg());
+    assertEquals(5.0, stats.getFields().get("windDirection").getAvg(), 1e-9);
+    assertEquals(0L, stats.getFields().get("pressure").getCount());
+    assertNull(stats.getFields().get("pressure").getAvg());
+  }
+
+  @Test
+  @Order(31)
+  @DisplayName("31. Testing MeasureEvent by factories")
+  void testingMeasureEventByFactories() {
+    Measure previous = new Measure();
+    Measure measure = new Measure();
+
+    MeasureEvent created = MeasureEvent.created(List.of(measure));
+    MeasureEvent updated = MeasureEvent.updated(previous, measure);
+    MeasureEvent deleted = MeasureEvent.deleted(measure);
+
+    assertEquals(MeasureEvent.Type.CREATED, created.getType());
+    assertEquals(List.of(measure), created.getMeasures());
+    assertNull(created.getPrevious());
+    assertEquals(MeasureEvent.Type.UPDATED, updated.getType());
+    assertEquals(previous, updated.getPrevious());
+    assertEquals(MeasureEvent.Type.DELETED, deleted.getType());
+    assertEquals(List.of(measure), deleted.getMeasures());
+  }
+
+  @Test
+  @Order(32)
+  @DisplayName("32. Testing LatestMeasureView by created measures")
+  void testingLatestMeasureViewByCreatedMeasures() {
+    ObjectId isleId = new ObjectId();
+    Measure older = new Measure();
+    older.setId(new ObjectId());
+    older.setIsleId(isleId);
+    older.setTimestamp(LocalDateTime.of(2023, 6, 1, 12, 0));
+    Measure newer = new Measure();
+    newer.setId(new ObjectId());
+    newer.setIsleId(isleId);
+    newer.setTimestamp(LocalDateTime.of(2023, 6, 1, 12, 5));
+
+    LatestMeasureView view = new LatestMeasureView();
+    ReflectionTestUtils.setField(view, "enabled", true);
+    view.onMeasureEvent(MeasureEvent.created(List.of(newer)));
+    view.onMeasureEvent(MeasureEvent.created(List.of(older)));
+
+    assertEquals(1, view.getAll().size());
+    assertEquals(newer.getId(), view.getAll().iterator().next().getId());
+  }
+
+  @Test
+  @Order(33)
+  @DisplayName("33. Testing MeasureRing by order, eviction and exact values")
+  void testingMeasureRingByOrderEvictionAndExactValues() {
+    ObjectId isleId = new ObjectId();
+    LocalDateTime start = LocalDateTime.of(2023, 6, 1, 12, 0);
+    List<Measure> measures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Measure measure = new Measure();
+      measure.setId(new ObjectId());
+      measure.setIsleId(isleId);
+      measure.setTimestamp(start.plusMinutes(i));
+      measure.setAirTemp(new BigDecimal("25.10"));
+      measures.add(measure);
+    }
+
+    MeasureRing ring = new MeasureRing(3);
+    ring.add(measures.get(2));
+    ring.add(measures.get(0));
+    ring.add(measures.get(1));
+    ring.add(measures.get(3));
+
+    assertEquals(3, ring.size());
+    assertFalse(ring.covers(start));
+    assertTrue(ring.covers(start.plusMinutes(1)));
+    List<Measure> found = ring.find(isleId, start.plusMinutes(1), start.plusMinutes(3),
+        Direction.DESC, 0);
+    assertEquals(List.of(measures.get(2), measures.get(1)), found);
+    assertEquals("25.10", found.get(0).getAirTemp().toPlainString());
+    assertNull(found.get(0).getGndTemp());
+    assertEquals(start.plusMinutes(2), found.get(0).getTimestamp());
+    assertEquals(1, ring.find(isleId, start, null, Direction.ASC, 1).size());
+
+    MeasureRing grown = new MeasureRing(40);
+    List<Measure> appended = new ArrayList<>();
+    for (int i = 0; i < 45; i++) {
+      Measure measure = new Measure();
+      measure.setId(new ObjectId());
+      measure.setIsleId(isleId);
+      measure.setTimestamp(start.plusMinutes(i));
+      measure.setAirTemp(new BigDecimal(i));
+      appended.add(measure);
+      grown.add(measure);
+    }
+    Measure replaced = new Measure();
+    replaced.setId(appended.get(30).getId());
+    replaced.setIsleId(isleId);
+    replaced.setTimestamp(appended.get(30).getTimestamp());
+    replaced.setAirTemp(BigDecimal.TEN.negate());
+    grown.add(replaced);
+
+    assertEquals(40, grown.size());
+    assertTrue(grown.covers(start.plusMinutes(5)));
+    List<Measure> all = grown.find(isleId, start, null, Direction.ASC, 0);
+    assertEquals(appended.subList(5, 45).stream().map(Measure::getId).toList(),
+        all.stream().map(Measure::getId).toList());
+    assertEquals(new BigDecimal(44), all.get(39).getAirTemp());
+    assertEquals(BigDecimal.TEN.negate(), all.get(25).getAirTemp());
+  }
+
+  @Test
+  @Order(34)
+  @DisplayName("34. Testing MeasureBroadcaster by subscriptions")
+  void testingMeasureBroadcasterBySubscriptions() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    MeasureBroadcaster broadcaster = broadcaster(meterRegistry, 16, 16, 1000L);
+
+    ObjectId isleId = new ObjectId();
+    ObjectId anotherIsleId = new ObjectId();
+    List<Object> isleSent = new CopyOnWriteArrayList<>();
+    List<Object> sameIsleSent = new CopyOnWriteArrayList<>();
+    List<Object> everySent = new CopyOnWriteArrayList<>();
+    List<Object> anotherIsleSent = new CopyOnWriteArrayList<>();
+    connect(broadcaster.subscribe(isleId), isleSent, null);
+    connect(broadcaster.subscribe(isleId), sameIsleSent, null);
+    connect(broadcaster.subscribe(null), everySent, null);
+    connect(broadcaster.subscribe(anotherIsleId), anotherIsleSent, null);
+    assertEquals(4.0, meterRegistry.get("measure.stream.subscribers").gauge().value());
+
+    List<Measure> measures = List.of(streamed(isleId), streamed(anotherIsleId),
+        streamed(isleId));
+    broadcaster.onMeasureEvent(MeasureEvent.created(measures));
+    broadcaster.onMeasureEvent(MeasureEvent.deleted(streamed(isleId)));
+    await(() -> isleSent.size() == 2 && sameIsleSent.size() == 2 && everySent.size() == 3
+        && anotherIsleSent.size() == 1);
+    assertEquals(List.of(measures.get(0).getId().toHexString(),
+        measures.get(2).getId().toHexString()), sentIds(isleSent));
+    assertEquals(sentIds(isleSent), sentIds(sameIsleSent));
+    assertEquals(measures.stream().map(measure -> measure.getId().toHexString()).toList(),
+        sentIds(everySent));
+    assertEquals(List.of(measures.get(1).getId().toHexString()), sentIds(anotherIsleSent));
+    assertEquals(0.0, meterRegistry.get("measure.stream.dropped").counter().count());
+
+    broadcaster.stop();
+    assertEquals(0.0, meterRegistry.get("measure.stream.subscribers").gauge().value());
+    assertTrue(isleSent.contains("complete"));
+  }
+
+  @Test
+  @Order(35)
+  @DisplayName("35. Testing MeasureExportFormat by parse")
+  void testingMeasureExportFormatByParse() throws ServletException {
+    assertEquals(MeasureExportFormat.CSV, MeasureExportFormat.parse("csv"));
+    assertEquals(MeasureExportFormat.NDJSON, MeasureExportFormat.parse("NDJSON"));
+    assertEquals("text/csv", MeasureExportFormat.CSV.getMediaType().toString());
+    assertEquals("ndjson", MeasureExportFormat.NDJSON.getExtension());
+    assertThrows(ServletException.class, () -> MeasureExportFormat.parse("xml"));
+    assertThrows(ServletException.class, () -> MeasureExportFormat.parse(null));
+  }
+
+  @Test
+  @Order(36)
+  @DisplayName("36. Testing MeasureArrowWriter by record batches")
+  void testingMeasureArrowWriterByRecordBatches() throws IOException {
+    ObjectId isleId = new ObjectId();
+    List<Measure> measures = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Measure measure = new Measure();
+      measure.setId(new ObjectId());
+      measure.setIsleId(isleId);
+      measure.setTimestamp(LocalDateTime.of(2023, 6, 1, 12, i));
+      measure.setAirTemp(new BigDecimal("25.5"));
+      measures.add(measure);
+    }
+
+    MeasureArrowWriter writer = new MeasureArrowWriter();
+    ReflectionTestUtils.setField(writer, "batchSize", 2);
+    ReflectionTestUtils.setField(writer, "maxMemory", 1L << 24);
+    writer.init();
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    writer.write(measures.iterator(), List.of(isleId), outputStream);
+
+    try (RootAllocator allocator = new RootAllocator();
+        ArrowStreamReader reader = new ArrowStreamReader(
+            new ByteArrayInputStream(outputStream.toByteArray()), allocator)) {
+      VectorSchemaRoot root = reader.getVectorSchemaRoot();
+      int rows = 0;
+      while (reader.loadNextBatch()) {
+        rows += root.getRowCount();
+      }
+      assertEquals(3, rows);
+      assertEquals(25.5, ((Float8Vector) root.getVector("airTemp")).get(0));
+      assertTrue(((Float8Vector) root.getVector("gndTemp")).isNull(0));
+      assertEquals(0, ((IntVector) root.getVector("isleId")).get(0));
+      assertEquals(isleId.toHexString(),
+          reader.getDictionaryVectors().get(1L).getVector().getObject(0).toString());
+    }
+    writer.close();
+  }
+
+  @Test
+  @Order(37)
+  @DisplayName("37. Testing FixedPointConverter by mapping converter")
+  void testingFixedPointConverterByMappingConverter() {
+    MongoCustomConversions conversions = MongoCustomConversions.create(adapter -> adapter
+        .configurePropertyConversions(registrar -> registrar.registerConverter(Measure.class,
+            "airTemp", new FixedPointConverter(MeasureField.AIR_TEMP, true))));
+    MappingMongoConverter converter = converter(conversions);
+
+    Measure measure = new Measure();
+    measure.setId(new ObjectId());
+    measure.setAirTemp(new BigDecimal("30.66"));
+    measure.setGndTemp(new BigDecimal("21.5"));
+    Document document = new Document();
+    converter.write(measure, document);
+
+    assertEquals(3066, document.get("at"));
+    assertEquals("21.5", document.get("gt"));
+    assertEquals(new BigDecimal("30.66"), converter.read(Measure.class, document).getAirTemp());
+    document.put("at", "30.66");
+    assertEquals(new BigDecimal("30.66"), converter.read(Measure.class, document).getAirTemp());
+    assertEquals("30.00", FixedPointConverter.readStored(MeasureField.AIR_TEMP, 3000).toString());
+    assertEquals("25.10", FixedPointConverter.readStored(MeasureField.AIR_TEMP, 2510).toString());
+    assertEquals(2500000,
+        FixedPointConverter.toFixedPoint(MeasureField.PRESSURE, new BigDecimal("25000.000")));
+    assertThrows(IllegalArgumentException.class,
+        () -> FixedPointConverter.toFixedPoint(MeasureField.PRESSURE, new BigDecimal("250.005")));
+
+    MeasureService measureService = new MeasureService();
+    MeasureDto dto = new MeasureDto();
+    dto.setPressure(new BigDecimal("1014.005"));
+    assertNull(measureService.findPrecisionViolation(dto));
+    ReflectionTestUtils.setField(measureService, "fixedPoint", true);
+    assertEquals("pressure: must have at most 2 decimal places with the fixed-point storage",
+        measureService.findPrecisionViolation(dto));
+    dto.setPressure(new BigDecimal("1014.500"));
+    assertNull(measureService.findPrecisionViolation(dto));
+  }
+
+  @Test
+  @Order(38)
+  @DisplayName("38. Testing MeasureCodec by the mapping converter documents")
+  void testingMeasureCodecByTheMappingConverterDocuments() {
+    Measure measure = new Measure(new ObjectId(), new ObjectId(), new BigDecimal("30"),
+        new BigDecimal("30.66"), new BigDecimal("4.21"), new BigDecimal("200"),
+        new BigDecimal("1060.54"), new BigDecimal("1050.24"), new BigDecimal("40.23"),
+        new BigDecimal("52.1"), new BigDecimal("0"), null,
+        LocalDateTime.of(2023, 6, 23, 13, 12, 0, 123_000_000));
+
+    for (boolean fixedPoint : new boolean[] {false, true}) {
+      MongoCustomConversions conversions = MongoCustomConversions.create(adapter -> adapter
+          .configurePropertyConversions(registrar -> {
+            for (MeasureField field : MeasureField.values()) {
+              registrar.registerConverter(Measure.class, field.getName(),
+                  new FixedPointConverter(field, fixedPoint));
+            }
+          }));
+      MappingMongoConverter converter = converter(conversions);
+      Document mapped = new Document();
+      converter.write(measure, mapped);
+
+      MeasureCodec codec = new MeasureCodec(fixedPoint);
+      BsonDocument encoded = new BsonDocument();
+      codec.encode(new BsonDocumentWriter(encoded), measure, EncoderContext.builder().build());
+
+      assertEquals(mapped.toBsonDocument(), encoded);
+      Measure decoded = codec.decode(encoded.asBsonReader(), DecoderContext.builder().build());
+      Measure read = converter.read(Measure.class, mapped);
+      assertEquals(read.getId(), decoded.getId());
+      assertEquals(read.getIsleId(), decoded.getIsleId());
+      assertEquals(read.getTimestamp(), decoded.getTimestamp());
+      for (MeasureField field : MeasureField.values()) {
+        assertEquals(field.valueOf(read), field.valueOf(decoded));
+      }
+      assertNull(decoded.getRainIntensity());
+    }
+  }
+
+  @Test
+  @Order(39)
+  @DisplayName("39. Testing the short keys and the legacy keys of a measure")
+  void testingTheShortKeysAndTheLegacyKeysOfAMeasure() {
+    MappingMongoConverter converter = converter(new MongoCustomConversions(List.of()));
+    Measure measure = new Measure();
+    measure.setAirTemp(new BigDecimal("30.66"));
+    measure.setRainIntensity(new BigDecimal("0"));
+    Document document = new Document();
+    converter.write(measure, document);
+
+    for (MeasureField field : MeasureField.values()) {
+      assertFalse(document.containsKey(field.getName()));
+    }
+    assertEquals("30.66", document.get(MeasureField.AIR_TEMP.getKey()));
+    assertEquals("0", document.get(MeasureField.RAIN_INTENSITY.getKey()));
+
+    Document legacy = new Document("airTemp", "30.66").append("gt", "21.5");
+    Measure decoded = new MeasureCodec(false)
+        .decode(legacy.toBsonDocument().asBsonReader(), DecoderContext.builder().build());
+    assertEquals(new BigDecimal("30.66"), decoded.getAirTemp());
+    assertEquals(new BigDecimal("21.5"), decoded.getGndTemp());
+
+    LegacyKeyListener.moveLegacyKeys(legacy);
+    assertEquals(new Document("gt", "21.5").append("at", "30.66"), legacy);
+    Measure read = converter.read(Measure.class, legacy);
+    assertEquals(new BigDecimal("30.66"), read.getAirTemp());
+    assertEquals(new BigDecimal("21.5"), read.getGndTemp());
+  }
+
+  @Test
+  @Order(40)
+  @DisplayName("40. Testing the Gorilla compression of the measure buckets")
+  void testingTheGorillaCompressionOfTheMeasureBuckets() {
+    Random random = new Random(42);
+    long[] timestamps = new long[1000];
+    double[][] values = new double[1000][3];
+    GorillaWriter writer = new GorillaWriter(3, false);
+    for (int row = 0; row < timestamps.length; row++) {
+      timestamps[row] = (row == 0 ? 1_687_525_920_000L : timestamps[row - 1])
+          + random.nextInt(5) * random.nextInt(100_000);
+      values[row][0] = random.nextInt(3) == 0 ? random.nextDouble() * 1000 : row / 7;
+      values[row][1] = random.nextInt(10) == 0 ? Double.NaN : -random.nextInt(100);
+      values[row][2] = random.nextDouble() < 0.5 ? Double.MAX_VALUE : Double.MIN_VALUE;
+      writer.append(timestamps[row], values[row]);
+    }
+    GorillaReader reader = new GorillaReader(writer.toByteArray(), 3, writer.getCount());
+    for (int row = 0; row < timestamps.length; row++) {
+      assertTrue(reader.next());
+      assertEquals(timestamps[row], reader.getTimestamp());
+      for (int column = 0; column < 3; column++) {
+        assertEquals(values[row][column], reader.getValue(column));
+      }
+    }
+    assertFalse(reader.next());
+
+    ObjectId isleId = new ObjectId();
+    LocalDateTime start = LocalDateTime.of(2023, 6, 23, 13, 0);
+    List<Measure> measures = new ArrayList<>();
+    for (int sample = 11; sample >= 0; sample--) {
+      measures.add(new Measure(new ObjectId(), isleId, new BigDecimal("30.66"),
+          new BigDecimal(21 + sample / 4), new BigDecimal("4.21").add(BigDecimal.valueOf(sample)),
+          new BigDecimal("200"), new BigDecimal("1060.54"), new BigDecimal("1050.2"),
+          new BigDecimal("40.23"), new BigDecimal("52.1"), BigDecimal.ZERO,
+          sample == 5 ? null : BigDecimal.ZERO, start.plusMinutes(5L * sample)));
+    }
+    Document bucket = MeasureBucketStore.encode(new ObjectId(), isleId, start, measures, 0);
+    List<Measure> decoded = MeasureBucketStore.decode(bucket);
+
+    assertEquals(12, decoded.size());
+    for (int sample = 0; sample < 12; sample++) {
+      Measure measure = measures.get(11 - sample);
+      assertEquals(measure.getId(), decoded.get(sample).getId());
+      assertEquals(isleId, decoded.get(sample).getIsleId());
+      assertEquals(measure.getTimestamp(), decoded.get(sample).getTimestamp());
+      for (MeasureField field : MeasureField.values()) {
+        assertEquals(declared(field, measure), field.valueOf(decoded.get(sample)));
+      }
+    }
+
+    int documents = 0;
+    MeasureCodec codec = new MeasureCodec(true);
+    for (Measure measure : measures) {
+      BsonDocument document = new BsonDocument();
+      codec.encode(new BsonDocumentWriter(document), measure, EncoderContext.builder().build());
+      documents += new RawBsonDocument(document, new BsonDocumentCodec()).getByteBuffer()
+          .remaining();
+    }
+    int compressed = new RawBsonDocument(bucket.toBsonDocument(), new BsonDocumentCodec())
+        .getByteBuffer().remaining();
+    assertTrue(compressed * 5 < documents);
+  }
+
+  @Test
+  @Order(41)
+  @DisplayName("41. Testing the archived measure segments merged with the live measures")
+  void testingTheArchivedMeasureSegmentsMergedWithTheLiveMeasures() throws IOException {
+    ObjectId isleId = new ObjectId();
+    ObjectId otherIsleId = new ObjectId();
+    LocalDateTime start = LocalDateTime.of(2022, 1, 30, 0, 0);
+    List<Measure> january = new ArrayList<>();
+    for (int minute = 0; minute < 2 * 24 * 60; minute++) {
+      january.add(new Measure(new ObjectId(), isleId, new BigDecimal("30.66"),
+          new BigDecimal(20 + minute % 7), new BigDecimal("4.21"), new BigDecimal(minute % 360),
+          new BigDecimal("1060.54"), new BigDecimal("1050.2"), new BigDecimal("40.23"),
+          new BigDecimal("52.1"), BigDecimal.ZERO, minute % 11 == 0 ? null : BigDecimal.ONE,
+          start.plusMinutes(minute)));
+    }
+    List<Measure> february = new ArrayList<>();
+    for (int hour = 0; hour < 3; hour++) {
+      february.add(new Measure(new ObjectId(), otherIsleId, new BigDecimal("25"),
+          new BigDecimal("19"), new BigDecimal("1"), new BigDecimal("90"),
+          new BigDecimal("1000"), new BigDecimal("1000"), new BigDecimal("50"),
+          new BigDecimal("50"), BigDecimal.ZERO, BigDecimal.ZERO,
+          LocalDateTime.of(2022, 2, 1, hour, 0)));
+    }
+
+    Path directory = Files.createTempDirectory("archive");
+    Path path = directory.resolve(isleId.toHexString()).resolve("2022-01.seg");
+    MeasureSegment.write(path, isleId, january);
+    MeasureSegment.write(directory.resolve(otherIsleId.toHexString()).resolve("2022-02.seg"),
+        otherIsleId, february);
+
+    MeasureSegment segment = new MeasureSegment(path);
+    assertEquals(isleId, segment.getIsleId());
+    assertEquals(january.size(), segment.getCount());
+    List<Measure> decoded = segment.readAll();
+    for (int index = 0; index < january.size(); index++) {
+      assertEquals(january.get(index).getId(), decoded.get(index).getId());
+      assertEquals(january.get(index).getTimestamp(), decoded.get(index).getTimestamp());
+      for (MeasureField field : MeasureField.values()) {
+        assertEquals(declared(field, january.get(index)), field.valueOf(decoded.get(index)));
+      }
+    }
+    Iterator<Measure> descending = segment.iterator(null, start.plusMinutes(100), false);
+    assertEquals(january.get(MeasureSegment.BLOCK_SIZE - 1), descending.next());
+    assertEquals(january.get(MeasureSegment.BLOCK_SIZE - 2), descending.next());
+
+    MeasureArchive archive = new MeasureArchive();
+    ReflectionTestUtils.setField(archive, "enabled", true);
+    ReflectionTestUtils.setField(archive, "directory", directory.toString());
+    ReflectionTestUtils.setField(archive, "intervalHours", 24L);
+    ReflectionTestUtils.setField(archive, "openSegments", 16L);
+    archive.init();
+    archive.stop();
+
+    assertFalse(archive.covers(new MeasureFilter(null, LocalDateTime.of(2022, 3, 1, 0, 0),
+        null, Direction.ASC)));
+    assertTrue(archive.covers(new MeasureFilter(isleId, start, null, Direction.ASC)));
+    assertEquals(january.size() + february.size(),
+        archive.merge(List.of(), new MeasureFilter(null, null, null, Direction.ASC), null, 0)
+            .size());
+    assertEquals(List.of(otherIsleId), archive.findIsleIds(
+        new MeasureFilter(null, LocalDateTime.of(2022, 2, 1, 0, 0), null, Direction.ASC)));
+    assertEquals(january.get(100).getId(),
+        archive.findById(january.get(100).getId()).orElseThrow().getId());
+    assertTrue(archive.findById(new ObjectId()).isEmpty());
+
+    Measure duplicate = january.get(january.size() - 1);
+    Measure updated = new Measure(duplicate.getId(), isleId, BigDecimal.TEN, BigDecimal.TEN,
+        BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN,
+        BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN, duplicate.getTimestamp());
+    Measure live = new Measure(new ObjectId(), isleId, BigDecimal.ONE, BigDecimal.ONE,
+        BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE,
+        BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, LocalDateTime.of(2022, 3, 1, 0, 0));
+    MeasureFilter filter =
+        new MeasureFilter(isleId, LocalDateTime.of(2022, 1, 31, 23, 0), null, Direction.ASC);
+    List<Measure> merged = archive.merge(List.of(updated, live), filter, null, 0);
+    assertEquals(61, merged.size());
+    assertEquals(january.get(january.size() - 60).getId(), merged.get(0).getId());
+    assertEquals(BigDecimal.TEN.setScale(2), merged.get(59).getAirTemp().setScale(2));
+    assertEquals(live, merged.get(60));
+
+    MeasureFilter descendingFilter = new MeasureFilter(null, null, null, Direction.DESC);
+    List<Measure> page = archive.merge(List.of(updated), descendingFilter,
+        new MeasureCursor(february.get(1).getTimestamp(), february.get(1).getId()), 3);
+    assertEquals(List.of(february.get(0).getId(), duplicate.getId(),
+        january.get(january.size() - 2).getId()), page.stream().map(Measure::getId).toList());
+
+    assertTrue(archive.remove(january.get(100)));
+    assertFalse(archive.remove(january.get(100)));
+    assertFalse(archive.remove(live));
+    assertTrue(archive.findById(january.get(100).getId()).isEmpty());
+    assertEquals(january.size() - 1, new MeasureSegment(path).getCount());
+    for (Measure measure : february) {
+      assertTrue(archive.remove(measure));
+    }
+    assertTrue(archive.findIsleIds(new MeasureFilter(otherIsleId, null, null, Direction.ASC))
+        .isEmpty());
+  }
+
+  @Test
+  @Order(42)
+  @DisplayName("42. Testing the image metadata with the content hash")
+  void testingTheImageMetadataWithTheContentHash() throws IOException {
+    DigestInputStream content =
+        ImageService.digest(new ByteArrayInputStream("abc".getBytes(StandardCharsets.US_ASCII)));
+    assertEquals(3, content.readAllBytes().length);
+    String hash = ImageService.hash(content);
+    assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+
+    Image image = new Image(new ObjectId(), "filename.png", null);
+    image.setLength(3L);
+    image.setHash(hash);
+    ImageResponseDto dto = new ImageResponseDto(image);
+
+    assertEquals(image.getId().toHexString(), dto.getId());
+    assertEquals("filename.png", dto.getName());
+    assertEquals(3L, dto.getSize());
+    assertEquals(hash, dto.getHash());
+    assertEquals(image.getTimestamp(), dto.getTimestamp());
+  }
+
+  @Test
+  @Order(43)
+  @DisplayName("43. Testing the write-behind buffer with retries and the shutdown drain")
+  void testingTheWriteBehindBufferWithRetriesAndTheShutdownDrain()
+      throws InterruptedException {
+    List<Measure> written = new CopyOnWriteArrayList<>();
+    List<Object> events = new CopyOnWriteArrayList<>();
+    AtomicBoolean failing = new AtomicBoolean();
+    MeasureRepository repository = mock(MeasureRepository.class);
+    Answer<Integer> insert = invocation -> {
+      if (failing.get()) {
+        throw new IllegalStateException("Database unavailable");
+      }
+      List<Measure> group = invocation.getArgument(0);
+      written.addAll(group);
+      return group.size();
+    };
+    doAnswer(insert).when(repository).insertUnordered(anyList());
+    doAnswer(insert).when(repository).insertMissing(anyList());
+    ApplicationEventPublisher publisher = events::add;
+    MeterRegistry registry = new SimpleMeterRegistry();
+
+    MeasureWriteBehindBuffer buffer = new MeasureWriteBehindBuffer();
+    ReflectionTestUtils.setField(buffer, "measureRepository", repository);
+    ReflectionTestUtils.setField(buffer, "eventPublisher", publisher);
+    ReflectionTestUtils.setField(buffer, "meterRegistry", registry);
+    ReflectionTestUtils.setField(buffer, "enabled", true);
+    ReflectionTestUtils.setField(buffer, "queueSize", 4);
+    ReflectionTestUtils.setField(buffer, "flushSize", 2);
+    ReflectionTestUtils.setField(buffer, "flushIntervalMs", 10L);
+    ReflectionTestUtils.setField(buffer, "shutdownTimeoutMs", 5000L);
+    ReflectionTestUtils.setField(buffer, "deadLetterSize", 3);
+    ReflectionTestUtils.setField(buffer, "retryBackoffMs", 10L);
+    ReflectionTestUtils.setField(buffer, "maxRetryBackoffMs", 20L);
+    buffer.start();
+
+    Measure first = new Measure(new ObjectId(), new ObjectId(), BigDecimal.ONE, BigDecimal.ONE,
+        BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE,
+        BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, LocalDateTime.of(2022, 1, 1, 0, 0));
+    assertTrue(buffer.offer(first));
+    await(() -> events.size() == 1);
+    assertTrue(written.contains(first));
+
+    failing.set(true);
+    List<Measure> parked = new ArrayList<>();
+    for (int minute = 1; minute <= 4; minute++) {
+      Measure measure = new Measure(new ObjectId(), first.getIsleId(), BigDecimal.TEN,
+          BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN,
+          BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN,
+          first.getTimestamp().plusMinutes(minute));
+      parked.add(measure);
+      assertTrue(buffer.offer(measure));
+      await(() -> buffer.getDeadLetterCount() <= 3 && buffer.getDeadLetterCount()
+          + registry.get("measure.ingest.lost").counter().count() == parked.size());
+    }
+    assertEquals(4, registry.get("measure.ingest.failed").counter().count());
+    verify(repository, times(5)).insertUnordered(anyList());
+    double lost = registry.get("measure.ingest.lost").counter().count();
+    assertEquals(4, buffer.getDeadLetterCount() + lost);
+
+    failing.set(false);
+    await(() -> buffer.getDeadLetterCount() == 0 && events.size() == 4);
+    assertEquals(5, written.size() + lost);
+    assertTrue(written.contains(parked.get(3)));
+    assertEquals(0, registry.get("measure.ingest.dead-letter.size").gauge().value());
+
+    List<Measure> drained = new ArrayList<>();
+    for (int minute = 5; minute <= 8; minute++) {
+      Measure measure = new Measure(new ObjectId(), first.getIsleId(), BigDecimal.ONE,
+          BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE,
+          BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE,
+          first.getTimestamp().plusMinutes(minute));
+      if (buffer.offer(measure)) {
+        drained.add(measure);
+      }
+    }
+    buffer.stop();
+    assertTrue(written.containsAll(drained));
+    assertFalse(buffer.offer(first));
+    assertEquals(4 - drained.size() + 1.0,
+        registry.get("measure.ingest.rejected").counter().count());
+  }
+
+  @Test
+  @Order(44)
+  @DisplayName("44. Testing the isle cache hits and its invalidation on isle changes")
+  void testingTheIsleCacheHitsAndItsInvalidationOnIsleChanges() throws Exception {
+    ObjectId isleId = new ObjectId();
+    Isle isle = new Isle(isleId, "someserial", BigDecimal.valueOf(20), BigDecimal.valueOf(30),
+        BigDecimal.valueOf(1000), true, 10);
+    IsleRepository repository = mock(IsleRepository.class);
+    when(repository.findById(isleId)).thenReturn(Optional.of(isle));
+    when(repository.findBySerialNumber("someserial")).thenReturn(Optional.of(isle));
+    when(repository.findBySerialNumber("otherserial")).thenReturn(Optional.empty());
+    when(repository.save(any(Isle.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    UserRepository userRepository = mock(UserRepository.class);
+    when(userRepository.findByUsername(anyString()))
+        .thenReturn(Optional.empty());
+
+    IsleCache cache = new IsleCache();
+    ReflectionTestUtils.setField(cache, "isleRepository", repository);
+    ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(cache, "maxSize", 100L);
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+    cache.init();
+    IsleService service = new IsleService();
+    ReflectionTestUtils.setField(service, "isleRepository", repository);
+    ReflectionTestUtils.setField(service, "userRepository", userRepository);
+    ReflectionTestUtils.setField(service, "isleCache", cache);
+
+    assertEquals(isle, service.findIsleBySerialNumber("someserial"));
+    assertEquals(isle, service.findIsleBySerialNumber("someserial"));
+    assertEquals(isle, service.findCachedIsleById(isleId));
+    assertEquals(isle, service.findCachedIsleById(isleId));
+    verify(repository, times(1)).findBySerialNumber("someserial");
+    verify(repository, times(1)).findById(isleId);
+
+    Isle updated = new Isle(isleId, "otherserial", BigDecimal.valueOf(20),
+        BigDecimal.valueOf(30), BigDecimal.valueOf(1000), false, 10);
+    service.updateIsleById(isleId, new IsleDto("otherserial", BigDecimal.valueOf(20),
+        BigDecimal.valueOf(30), BigDecimal.valueOf(1000), false, 10));
+    when(repository.findById(isleId)).thenReturn(Optional.of(updated));
+    when(repository.findBySerialNumber("someserial")).thenReturn(Optional.empty());
+    when(repository.findBySerialNumber("otherserial")).thenReturn(Optional.of(updated));
+    assertFalse(service.findCachedIsleById(isleId).getIsItWorking());
+    assertEquals(updated, service.findIsleBySerialNumber("otherserial"));
+    assertTrue(cache.findBySerialNumber("someserial").isEmpty());
+    verify(repository, times(2)).findBySerialNumber("someserial");
+
+    service.deleteIsleById(isleId);
+    when(repository.findById(isleId)).thenReturn(Optional.empty());
+    when(repository.findBySerialNumber("otherserial")).thenReturn(Optional.empty());
+    assertTrue(cache.findById(isleId).isEmpty());
+    assertTrue(cache.findBySerialNumber("otherserial").isEmpty());
+  }
+
+  @Test
+  @Order(45)
+  @DisplayName("45. Testing the inherited measure repository methods on the bucket storage")
+  void testingTheInheritedMeasureRepositoryMethodsOnTheBucketStorage() {
+    MeasureBucketStore bucketStore = mock(MeasureBucketStore.class);
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    MeasureRepositoryImpl repository = new MeasureRepositoryImpl();
+    ReflectionTestUtils.setField(repository, "bucketStore", bucketStore);
+    ReflectionTestUtils.setField(repository, "mongoTemplate", mongoTemplate);
+    ObjectId id = new ObjectId();
+    Measure measure = new Measure();
+    measure.setId(id);
+    when(bucketStore.isEnabled()).thenReturn(true);
+    when(bucketStore.count()).thenReturn(3L);
+    when(bucketStore.findById(id)).thenReturn(Optional.of(measure));
+    when(bucketStore.findAllById(Set.of(id))).thenReturn(List.of(measure));
+
+    assertEquals(3, repository.count());
+    assertTrue(repository.existsById(id));
+    assertEquals(List.of(measure), repository.findAllById(List.of(id)));
+    repository.deleteById(id);
+    repository.deleteAll(List.of(measure));
+    repository.deleteAll();
+    verify(bucketStore, times(2)).delete(List.of(id));
+    verify(bucketStore).deleteAll();
+
+    ObjectId isleId = new ObjectId();
+    LocalDateTime start = LocalDateTime.of(2023, 6, 23, 13, 0);
+    Measure first = new Measure();
+    first.setId(new ObjectId());
+    first.setIsleId(isleId);
+    first.setAirTemp(new BigDecimal("30.00"));
+    first.setTimestamp(start);
+    Measure second = new Measure();
+    second.setId(new ObjectId());
+    second.setIsleId(new ObjectId());
+    second.setAirTemp(new BigDecimal("20.00"));
+    second.setTimestamp(start.plusMinutes(1));
+    Measure third = new Measure();
+    third.setId(new ObjectId());
+    third.setIsleId(isleId);
+    third.setAirTemp(new BigDecimal("25.00"));
+    third.setTimestamp(start.plusMinutes(2));
+    when(bucketStore.stream(any(), any()))
+        .thenAnswer(invocation -> Stream.of(first, second, third));
+
+    assertEquals(List.of(second, third, first), repository.findAll(Sort.by("airTemp")));
+    assertEquals(List.of(third, second, first),
+        repository.findAll(Sort.by(Direction.DESC, "timestamp")));
+    Page<Measure> page = repository.findAll(PageRequest.of(1, 2, Sort.by("at")));
+    assertEquals(List.of(first), page.getContent());
+    assertEquals(3, page.getTotalElements());
+    assertThrows(IllegalArgumentException.class, () -> repository.findAll(Sort.by("unknown")));
+
+    Measure probe = new Measure();
+    probe.setIsleId(isleId);
+    Example<Measure> example = Example.of(probe);
+    assertEquals(List.of(first, third), repository.findAll(example));
+    assertEquals(List.of(third, first),
+        repository.findAll(example, Sort.by(Direction.ASC, "airTemp")));
+    assertEquals(List.of(third), repository.findAll(example, PageRequest.of(1, 1)).getContent());
+    assertEquals(2, repository.count(example));
+    assertTrue(repository.exists(example));
+    assertEquals(Optional.of(first), repository.findOne(example));
+    assertEquals(third,
+        repository.findBy(example, query -> query.sortBy(Sort.by("airTemp")).firstValue()));
+    probe.setAirTemp(new BigDecimal("30"));
+    assertEquals(List.of(first), repository.findAll(example));
+    Measure anyProbe = new Measure();
+    anyProbe.setAirTemp(new BigDecimal("20"));
+    anyProbe.setTimestamp(start.plusMinutes(2));
+    assertEquals(List.of(second, third),
+        repository.findAll(Example.of(anyProbe, ExampleMatcher.matchingAny())));
+    verifyNoInteractions(mongoTemplate);
+  }
+
+  @Test
+  @Order(46)
+  @DisplayName("46. Testing the storage of a legacy measure with more decimal places")
+  void testingTheStorageOfALegacyMeasureWithMoreDecimalPlaces() {
+    Measure measure = new Measure();
+    measure.setId(new ObjectId());
+    measure.setIsleId(new ObjectId());
+    measure.setAirTemp(new BigDecimal("21.005"));
+    measure.setPressure(new BigDecimal("1014.5"));
+    measure.setTimestamp(LocalDateTime.of(2023, 6, 23, 13, 12));
+
+    Measure decoded = MeasureBucketStore.decode(MeasureBucketStore.encode(new ObjectId(),
+        measure.getIsleId(), measure.getTimestamp(), List.of(measure), 0)).get(0);
+    assertEquals(new BigDecimal("21.005"), decoded.getAirTemp());
+    assertEquals(new BigDecimal("1014.50"), decoded.getPressure());
+
+    MeasureCodec codec = new MeasureCodec(true);
+    BsonDocument encoded = new BsonDocument();
+    codec.encode(new BsonDocumentWriter(encoded), measure, EncoderContext.builder().build());
+    assertEquals("21.005", encoded.getString(MeasureField.AIR_TEMP.getKey()).getValue());
+    assertEquals(101450, encoded.getInt32(MeasureField.PRESSURE.getKey()).getValue());
+    decoded = codec.decode(encoded.asBsonReader(), DecoderContext.builder().build());
+    assertEquals(new BigDecimal("21.005"), decoded.getAirTemp());
+    assertEquals("21.005", new FixedPointConverter(MeasureField.AIR_TEMP, true)
+        .write(new BigDecimal("21.005"), null));
+
+    measure.setAirTemp(new BigDecimal("21.00000000000000000001"));
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> MeasureBlock.encode(List.of(measure)));
+    assertTrue(e.getMessage().contains(measure.getId().toHexString() + " airTemp="));
+  }
+
+  @Test
+  @Order(47)
+  @DisplayName("47. Testing the archive run going on past a failed isle month")
+  void testingTheArchiveRunGoingOnPastAFailedIsleMonth() throws IOException {
+    ObjectId isleId = new ObjectId();
+    ObjectId failingIsleId = new ObjectId();
+    List<Measure> measures = new ArrayList<>();
+    for (int month = 1; month <= 2; month++) {
+      measures.add(new Measure(new ObjectId(), isleId, BigDecimal.ONE, BigDecimal.ONE,
+          BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE,
+          BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, LocalDateTime.of(2022, month, 1, 0, 0)));
+    }
+    MeasureRepository repository = mock(MeasureRepository.class);
+    when(repository.findIsleIds(any())).thenReturn(List.of(failingIsleId, isleId));
+    when(repository.stream(any())).thenAnswer(invocation -> {
+      if (failingIsleId.equals(((MeasureFilter) invocation.getArgument(0)).getIsleId())) {
+        throw new IllegalStateException("Unreadable isle");
+      }
+      return measures.stream();
+    });
+    when(repository.deleteMeasures(anyList()))
+        .thenThrow(new IllegalStateException("Database unavailable"))
+        .thenReturn(1L);
+
+    Path directory = Files.createTempDirectory("archive");
+    MeasureArchive archive = new MeasureArchive();
+    ReflectionTestUtils.setField(archive, "measureRepository", repository);
+    ReflectionTestUtils.setField(archive, "enabled", true);
+    ReflectionTestUtils.setField(archive, "directory", directory.toString());
+    ReflectionTestUtils.setField(archive, "intervalHours", 24L);
+    ReflectionTestUtils.setField(archive, "openSegments", 16L);
+    archive.init();
+    archive.stop();
+
+    assertEquals(1, archive.archive());
+    assertEquals(2, archive.getStatus().get("lastFailedCount"));
+    assertEquals(List.of(failingIsleId.toHexString(), isleId.toHexString() + "/2022-01"),
+        archive.getStatus().get("lastFailed"));
+    assertTrue(Files.exists(directory.resolve(isleId.toHexString()).resolve("2022-02.seg")));
+  }
+
+  @Test
+  @Order(48)
+  @DisplayName("48. Testing the latest measure of each isle by a single bucket aggregation")
+  @SuppressWarnings("unchecked")
+  void testingTheLatestMeasureOfEachIsleByASingleBucketAggregation() {
+    ObjectId isleId = new ObjectId();
+    LocalDateTime start = LocalDateTime.of(2023, 6, 23, 13, 0);
+    List<Measure> measures = new ArrayList<>();
+    for (int minute = 0; minute < 3; minute++) {
+      Measure measure = new Measure();
+      measure.setId(new ObjectId());
+      measure.setIsleId(isleId);
+      measure.setAirTemp(new BigDecimal(20 + minute));
+      measure.setTimestamp(start.plusMinutes(minute));
+      measures.add(measure);
+    }
+    Document bucket = MeasureBucketStore.encode(new ObjectId(), isleId, start, measures, 0);
+    Iterator<Document> groups = List.of(new Document("_id", isleId).append("bucket", bucket))
+        .iterator();
+    MongoCursor<Document> cursor = mock(MongoCursor.class);
+    when(cursor.hasNext()).thenAnswer(invocation -> groups.hasNext());
+    when(cursor.next()).thenAnswer(invocation -> groups.next());
+    AggregateIterable<Document> aggregation = mock(AggregateIterable.class, CALLS_REAL_METHODS);
+    doAnswer(invocation -> cursor).when(aggregation).iterator();
+    MongoCollection<Document> collection = mock(MongoCollection.class);
+    when(collection.aggregate(anyList())).thenReturn(aggregation);
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    when(mongoTemplate.getCollection("measureBuckets")).thenReturn(collection);
+    MeasureBucketStore bucketStore = new MeasureBucketStore();
+    ReflectionTestUtils.setField(bucketStore, "mongoTemplate", mongoTemplate);
+    ReflectionTestUtils.setField(bucketStore, "collection", "measureBuckets");
+
+    List<Measure> latest = bucketStore.findLatestOfEachIsle();
+    assertEquals(1, latest.size());
+    assertEquals(measures.get(2).getId(), latest.get(0).getId());
+    assertEquals(start.plusMinutes(2), latest.get(0).getTimestamp());
+    verify(collection).aggregate(List.of(
+        new Document("$sort", new Document("isleId", -1).append("start", -1)),
+        new Document("$group", new Document("_id", "$isleId")
+            .append("bucket", new Document("$first", "$$ROOT"))),
+        new Document("$sort", new Document("_id", 1))));
+    verify(collection, times(0)).distinct(anyString(), any(Class.class));
+  }
+
+  @Test
+  @Order(49)
+  @DisplayName("49. Testing MeasureBroadcaster by dropping the oldest buffered measure")
+  void testingMeasureBroadcasterByDroppingTheOldestBufferedMeasure() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    MeasureBroadcaster broadcaster = broadcaster(meterRegistry, 2, 16, 1000L);
+    ObjectId isleId = new ObjectId();
+    List<Object> sent = new CopyOnWriteArrayList<>();
+    Semaphore sends = new Semaphore(0);
+    connect(broadcaster.subscribe(isleId), sent, sends);
+
+    Measure sending = streamed(isleId);
+    broadcaster.onMeasureEvent(MeasureEvent.created(List.of(sending)));
+    await(() -> sent.size() == 1);
+    List<Measure> measures = List.of(streamed(isleId), streamed(isleId), streamed(isleId));
+    broadcaster.onMeasureEvent(MeasureEvent.created(measures));
+    assertEquals(1.0, meterRegistry.get("measure.stream.dropped").counter().count());
+
+    sends.release(3);
+    await(() -> sent.size() == 3);
+    assertEquals(List.of(sending.getId().toHexString(), measures.get(1).getId().toHexString(),
+        measures.get(2).getId().toHexString()), sentIds(sent));
+    assertEquals(1.0, meterRegistry.get("measure.stream.subscribers").gauge().value());
+    assertEquals(0.0, meterRegistry.get("measure.stream.slow-consumers").counter().count());
+    broadcaster.stop();
+  }
+
+  @Test
+  @Order(50)
+  @DisplayName("50. Testing MeasureBroadcaster by disconnecting a slow consumer")
+  void testingMeasureBroadcasterByDisconnectingASlowConsumer() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    MeasureBroadcaster broadcaster = broadcaster(meterRegistry, 1, 2, 1000L);
+    ObjectId isleId = new ObjectId();
+    List<Object> sent = new CopyOnWriteArrayList<>();
+    Semaphore sends = new Semaphore(0);
+    connect(broadcaster.subscribe(isleId), sent, sends);
+
+    broadcaster.onMeasureEvent(MeasureEvent.created(List.of(streamed(isleId))));
+    await(() -> sent.size() == 1);
+    broadcaster.onMeasureEvent(MeasureEvent.created(List.of(streamed(isleId),
+        streamed(isleId), streamed(isleId), streamed(isleId))));
+    assertEquals(3.0, meterRegistry.get("measure.stream.dropped").counter().count());
+    assertEquals(1.0, meterRegistry.get("measure.stream.slow-consumers").counter().count());
+    assertEquals(0.0, meterRegistry.get("measure.stream.subscribers").gauge().value());
+    assertFalse(sent.contains("complete"));
+
+    sends.release();
+    await(() -> sent.contains("complete"));
+    assertEquals(1, sentIds(sent).size());
+    broadcaster.stop();
+  }
+
+  @Test
+  @Order(51)
+  @DisplayName("51. Testing MeasureBroadcaster by the watchdog of the sends")
+  void testingMeasureBroadcasterByTheWatchdogOfTheSends() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    MeasureBroadcaster broadcaster = broadcaster(meterRegistry, 16, 16, 50L);
+    ObjectId isleId = new ObjectId();
+    List<Object> stalledSent = new CopyOnWriteArrayList<>();
+    List<Object> sent = new CopyOnWriteArrayList<>();
+    Semaphore sends = new Semaphore(0);
+    connect(broadcaster.subscribe(isleId), stalledSent, sends);
+    connect(broadcaster.subscribe(isleId), sent, null);
+
+    broadcaster.onMeasureEvent(MeasureEvent.created(List.of(streamed(isleId))));
+    await(() -> sent.size() == 1);
+    await(() -> meterRegistry.get("measure.stream.slow-consumers").counter().count() == 1.0);
+    assertEquals(1.0, meterRegistry.get("measure.stream.subscribers").gauge().value());
+    broadcaster.onMeasureEvent(MeasureEvent.created(List.of(streamed(isleId))));
+    await(() -> sent.size() == 2);
+    assertFalse(stalledSent.contains("complete"));
+
+    sends.release();
+    await(() -> stalledSent.contains("complete"));
+    assertEquals(1, sentIds(stalledSent).size());
+    broadcaster.stop();
+  }
+
+  @Test
+  @Order(52)
+  @DisplayName("52. Testing MeasureExporter by the CSV, NDJSON and gzip output")
+  void testingMeasureExporterByTheCsvNdjsonAndGzipOutput() throws IOException {
+    ObjectId isleId = new ObjectId();
+    Measure measure = new Measure(new ObjectId(), isleId, new BigDecimal("30.66"),
+        new BigDecimal("-1.50"), new BigDecimal("4.2"), new BigDecimal("2E+2"),
+        new BigDecimal("1060.54"), new BigDecimal("1050.24"), new BigDecimal("40.23"),
+        new BigDecimal("52.1"), BigDecimal.ZERO, BigDecimal.ONE,
+        LocalDateTime.of(2023, 5, 1, 12, 30));
+    Measure partial = new Measure();
+    partial.setId(new ObjectId());
+    partial.setIsleId(isleId);
+    partial.setAirTemp(new BigDecimal("1E-2"));
+    partial.setTimestamp(LocalDateTime.of(2023, 5, 1, 12, 31, 15));
+    MeasureService measureService = mock(MeasureService.class);
+    when(measureService.streamMeasures(any())).thenAnswer(invocation -> Stream.of(measure,
+        partial));
+    MeasureExporter exporter = new MeasureExporter();
+    ReflectionTestUtils.setField(exporter, "measureService", measureService);
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    ReflectionTestUtils.setField(exporter, "objectMapper", objectMapper);
+    MeasureFilter filter = new MeasureFilter(isleId, null, null, Direction.ASC);
+
+    AtomicBoolean closed = new AtomicBoolean();
+    ByteArrayOutputStream csv = new ByteArrayOutputStream() {
+      @Override
+      public void close() {
+        closed.set(true);
+      }
+    };
+    exporter.export(filter, MeasureExportFormat.CSV, false, csv);
+    assertEquals("id,isleId,timestamp,airTemp,gndTemp,windSpeed,windDirection,irradiance,"
+        + "pressure,airHumidity,gndHumidity,precipitation,rainIntensity\n"
+        + measure.getId().toHexString() + "," + isleId.toHexString()
+        + ",2023-05-01T12:30,30.66,-1.50,4.2,200,1060.54,1050.24,40.23,52.1,0,1\n"
+        + partial.getId().toHexString() + "," + isleId.toHexString()
+        + ",2023-05-01T12:31:15,0.01,,,,,,,,,\n", csv.toString(StandardCharsets.UTF_8));
+    assertFalse(closed.get());
+
+    ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+    exporter.export(filter, MeasureExportFormat.NDJSON, false, ndjson);
+    String lines = ndjson.toString(StandardCharsets.UTF_8);
+    assertTrue(lines.endsWith("}\n"));
+    String[] records = lines.split("\n");
+    assertEquals(2, records.length);
+    JsonNode first = objectMapper.readTree(records[0]);
+    assertEquals(measure.getId().toHexString(), first.get("id").asText());
+    assertEquals(isleId.toHexString(), first.get("isleId").asText());
+    assertEquals("2023-05-01T12:30:00", first.get("timestamp").asText());
+    assertEquals(0, new BigDecimal("-1.50").compareTo(first.get("gndTemp").decimalValue()));
+    JsonNode second = objectMapper.readTree(records[1]);
+    assertEquals(partial.getId().toHexString(), second.get("id").asText());
+    assertEquals(0, new BigDecimal("0.01").compareTo(second.get("airTemp").decimalValue()));
+    assertFalse(second.hasNonNull("gndTemp"));
+
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    exporter.export(filter, MeasureExportFormat.NDJSON, true, gzipped);
+    byte[] bytes = gzipped.toByteArray();
+    assertEquals((byte) 0x1f, bytes[0]);
+    assertEquals((byte) 0x8b, bytes[1]);
+    try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      assertEquals(lines, new String(input.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    gzipped.reset();
+    exporter.export(filter, MeasureExportFormat.CSV, true, gzipped);
+    try (GZIPInputStream input = new GZIPInputStream(
+        new ByteArrayInputStream(gzipped.toByteArray()))) {
+      assertEquals(csv.toString(StandardCharsets.UTF_8),
+          new String(input.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    when(measureService.streamMeasures(any())).thenAnswer(invocation -> Stream.empty());
+    ByteArrayOutputStream empty = new ByteArrayOutputStream();
+    exporter.export(filter, MeasureExportFormat.NDJSON, false, empty);
+    assertEquals(0, empty.size());
+  }
+
+  @Test
+  @Order(53)
+  @DisplayName("53. Testing MeasureRollupService by one upsert of each bucket on create")
+  void testingMeasureRollupServiceByOneUpsertOfEachBucketOnCreate() {
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    BulkOperations bulkOperations = mock(BulkOperations.class);
+    when(mongoTemplate.bulkOps(any(BulkMode.class), any(Class.class), anyString()))
+        .thenReturn(bulkOperations);
+    MeasureService measureService = mock(MeasureService.class);
+    MeasureRollupService rollupService = new MeasureRollupService();
+    ReflectionTestUtils.setField(rollupService, "mongoTemplate", mongoTemplate);
+    ReflectionTestUtils.setField(rollupService, "measureService", measureService);
+
+    ObjectId isleId = new ObjectId();
+    ObjectId anotherIsleId = new ObjectId();
+    LocalDateTime day = LocalDateTime.of(2023, 6, 1, 0, 0);
+    Measure first = rolled(isleId, day.plusMinutes(12 * 60 + 10), "20", "350");
+    Measure second = rolled(isleId, day.plusMinutes(12 * 60 + 40), "30", "20");
+    Measure next = rolled(isleId, day.plusMinutes(13 * 60 + 5), "25", null);
+    Measure another = rolled(anotherIsleId, day.plusMinutes(12 * 60 + 20), "10", null);
+    Measure untimed = rolled(isleId, null, "15", null);
+    rollupService.onMeasureEvent(MeasureEvent.created(List.of(first, second, next, another,
+        untimed)));
+
+    verify(mongoTemplate).bulkOps(BulkMode.UNORDERED, MeasureRollup.class,
+        "measure_rollup_hourly");
+    verify(mongoTemplate).bulkOps(BulkMode.UNORDERED, MeasureRollup.class,
+        "measure_rollup_daily");
+    ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+    verify(bulkOperations, times(5)).upsert(queries.capture(), updates.capture());
+    verify(bulkOperations, times(2)).execute();
+    verifyNoInteractions(measureService);
+
+    assertEquals(List.of(bucket(isleId, day.plusHours(12)), bucket(isleId, day.plusHours(13)),
+        bucket(anotherIsleId, day.plusHours(12)), bucket(isleId, day),
+        bucket(anotherIsleId, day)), queries.getAllValues().stream()
+        .map(Query::getQueryObject).toList());
+    Document hour = updates.getAllValues().get(0).getUpdateObject();
+    Document inc = hour.get("$inc", Document.class);
+    assertEquals(2, inc.get("count"));
+    assertEquals(2L, inc.get("fields.airTemp.count"));
+    assertEquals(50.0, inc.get("fields.airTemp.sum"));
+    assertEquals(20.0, hour.get("$min", Document.class).get("fields.airTemp.min"));
+    assertEquals(30.0, hour.get("$max", Document.class).get("fields.airTemp.max"));
+    assertEquals(Math.sin(Math.toRadians(350)) + Math.sin(Math.toRadians(20)),
+        (Double) inc.get("fields.windDirection.sin"), 1e-9);
+    assertFalse(inc.containsKey("fields.airTemp.sin"));
+    assertFalse(inc.containsKey("fields.pressure.count"));
+    Document daily = updates.getAllValues().get(3).getUpdateObject();
+    assertEquals(3, daily.get("$inc", Document.class).get("count"));
+    assertEquals(20.0, daily.get("$min", Document.class).get("fields.airTemp.min"));
+
+    when(bulkOperations.execute()).thenThrow(new IllegalStateException("Not reachable"));
+    rollupService.onMeasureEvent(MeasureEvent.created(List.of(first)));
+  }
+
+  @Test
+  @Order(54)
+  @DisplayName("54. Testing MeasureRollupService by rebuilding the buckets on update and delete")
+  void testingMeasureRollupServiceByRebuildingTheBucketsOnUpdateAndDelete() {
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    BulkOperations bulkOperations = mock(BulkOperations.class);
+    when(mongoTemplate.bulkOps(any(BulkMode.class), any(Class.class), anyString()))
+        .thenReturn(bulkOperations);
+    when(mongoTemplate.getConverter()).thenReturn(mock(MongoConverter.class));
+    when(mongoTemplate.stream(any(Query.class), any(Class.class), anyString()))
+        .thenAnswer(invocation -> Stream.empty());
+    MeasureService measureService = mock(MeasureService.class);
+    when(measureService.aggregateRollups(any(), anyString(), anyInt()))
+        .thenAnswer(invocation -> {
+          MeasureFilter filter = invocation.getArgument(0);
+          MeasureRollup rollup = new MeasureRollup();
+          rollup.setIsleId(filter.getIsleId());
+          rollup.setTimestamp(filter.getFrom());
+          rollup.setCount(1L);
+          return Stream.of(rollup);
+        });
+    MeasureRollupService rollupService = new MeasureRollupService();
+    ReflectionTestUtils.setField(rollupService, "mongoTemplate", mongoTemplate);
+    ReflectionTestUtils.setField(rollupService, "measureService", measureService);
+
+    ObjectId isleId = new ObjectId();
+    LocalDateTime day = LocalDateTime.of(2023, 6, 1, 0, 0);
+    Measure previous = rolled(isleId, day.plusMinutes(12 * 60 + 10), "20", null);
+    Measure moved = rolled(isleId, day.plusMinutes(14 * 60 + 20), "20", null);
+    moved.setId(previous.getId());
+    rollupService.onMeasureEvent(MeasureEvent.updated(previous, moved));
+
+    ArgumentCaptor<MeasureFilter> filters = ArgumentCaptor.forClass(MeasureFilter.class);
+    ArgumentCaptor<String> units = ArgumentCaptor.forClass(String.class);
+    verify(measureService, times(3)).aggregateRollups(filters.capture(), units.capture(),
+        anyInt());
+    assertEquals(List.of("hour", "hour", "day"), units.getAllValues());
+    assertEquals(List.of(List.of(day.plusHours(12), day.plusHours(13)),
+        List.of(day.plusHours(14), day.plusHours(15)), List.of(day, day.plusDays(1))),
+        filters.getAllValues().stream()
+            .map(filter -> List.of(filter.getFrom(), filter.getTo()))
+            .toList());
+    assertTrue(filters.getAllValues().stream()
+        .allMatch(filter -> isleId.equals(filter.getIsleId())));
+
+    ArgumentCaptor<Query> replaced = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Object> documents = ArgumentCaptor.forClass(Object.class);
+    verify(bulkOperations, times(3)).replaceOne(replaced.capture(), documents.capture(),
+        any(FindAndReplaceOptions.class));
+    verify(bulkOperations, times(0)).upsert(any(Query.class), any(Update.class));
+    assertEquals(bucket(isleId, day.plusHours(12)), replaced.getAllValues().get(0)
+        .getQueryObject());
+    Object run = ((Document) documents.getAllValues().get(0)).get("rebuild");
+    assertTrue(run instanceof ObjectId);
+    ArgumentCaptor<Query> stale = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate, times(3)).stream(stale.capture(), eq(MeasureRollup.class),
+        anyString());
+    Document staleHour = stale.getAllValues().get(0).getQueryObject();
+    assertEquals(isleId, staleHour.get("isleId"));
+    assertEquals(new Document("$gte", day.plusHours(12)).append("$lt", day.plusHours(13)),
+        staleHour.get("timestamp"));
+    assertEquals(new Document("$ne", run), staleHour.get("rebuild"));
+    verify(mongoTemplate, times(0)).remove(any(Query.class), any(Class.class), anyString());
+
+    doAnswer(invocation -> Stream.empty())
+        .when(measureService).aggregateRollups(any(), anyString(), anyInt());
+    doAnswer(invocation -> {
+      MeasureRollup rollup = new MeasureRollup();
+      rollup.setIsleId(isleId);
+      rollup.setTimestamp("measure_rollup_hourly".equals(invocation.getArgument(2))
+          ? day.plusHours(14) : day);
+      return Stream.of(rollup);
+    }).when(mongoTemplate).stream(any(Query.class), any(Class.class), anyString());
+    when(measureService.findMeasures(any(), anyInt())).thenAnswer(invocation -> {
+      MeasureFilter filter = invocation.getArgument(0);
+      return day.plusDays(1).equals(filter.getTo()) ? List.of(previous) : List.of();
+    });
+    rollupService.onMeasureEvent(MeasureEvent.deleted(moved));
+
+    ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).remove(removed.capture(), eq(MeasureRollup.class),
+        eq("measure_rollup_hourly"));
+    verify(mongoTemplate, times(1)).remove(any(Query.class), any(Class.class), anyString());
+    Document removedHour = removed.getValue().getQueryObject();
+    assertEquals(day.plusHours(14), removedHour.get("timestamp"));
+    assertTrue(removedHour.get("rebuild", Document.class).get("$ne") instanceof ObjectId);
+  }
+
+  @Test
+  @Order(55)
+  @DisplayName("55. Testing ImageService by the content hash and length of a created image")
+  void testingImageServiceByTheContentHashAndLengthOfACreatedImage() throws Exception {
+    ImageRepository imageRepository = mock(ImageRepository.class);
+    when(imageRepository.findMetadataByName(anyString())).thenReturn(Optional.empty());
+    when(imageRepository.insert(any(Image.class))).thenAnswer(invocation ->
+        invocation.getArgument(0));
+    GridFsOperations gridFsOperations = mock(GridFsOperations.class);
+    List<byte[]> stored = new ArrayList<>();
+    doAnswer(invocation -> {
+      GridFsUpload<ObjectId> upload = invocation.getArgument(0);
+      stored.add(upload.getContent().readAllBytes());
+      return upload.getFileId();
+    }).when(gridFsOperations).store(any());
+    ImageService imageService = new ImageService();
+    ReflectionTestUtils.setField(imageService, "imageRepository", imageRepository);
+    ReflectionTestUtils.setField(imageService, "gridFsOperations", gridFsOperations);
+    ReflectionTestUtils.setField(imageService, "maxFileSize", DataSize.ofBytes(1024));
+
+    byte[] content = new byte[1000];
+    new Random(7).nextBytes(content);
+    Image image = imageService.createImage(
+        new MockMultipartFile("file", "shelter-1.png", "image/png", content));
+    assertEquals("shelter-1.png", image.getName());
+    assertEquals(1000L, image.getLength());
+    assertEquals(sha256(content), image.getHash());
+    assertNull(image.getImageData());
+    assertEquals(1, stored.size());
+    assertArrayEquals(content, stored.get(0));
+    ArgumentCaptor<GridFsUpload<ObjectId>> uploads = ArgumentCaptor.forClass(GridFsUpload.class);
+    verify(gridFsOperations).store(uploads.capture());
+    assertEquals(image.getId(), uploads.getValue().getFileId());
+    assertEquals("shelter-1.png", uploads.getValue().getFilename());
+
+    assertThrows(ServletException.class, () -> imageService.createImage(
+        new MockMultipartFile("file", "shelter 1.jpg", "image/png", content)));
+    assertThrows(MaxUploadSizeExceededException.class, () -> imageService.createImage(
+        new MockMultipartFile("file", "large.png", "image/png", new byte[1025])));
+    when(imageRepository.findMetadataByName("shelter-1.png")).thenReturn(Optional.of(image));
+    assertThrows(EntityAlreadyExistsException.class, () -> imageService.createImage(
+        new MockMultipartFile("file", "shelter-1.png", "image/png", content)));
+    verify(gridFsOperations, times(1)).store(any());
+
+    when(imageRepository.insert(any(Image.class)))
+        .thenThrow(new DuplicateKeyException("Duplicate name"));
+    assertThrows(DuplicateKeyException.class, () -> imageService.createImage(
+        new MockMultipartFile("file", "shelter-2.png", "image/png", content)));
+    verify(gridFsOperations, times(2)).store(uploads.capture());
+    verify(gridFsOperations).delete(Query.query(
+        Criteria.where("_id").is(uploads.getValue().getFileId())));
+  }
+
+  @Test
+  @Order(56)
+  @DisplayName("56. Testing ImageController by the content hash as the ETag")
+  void testingImageControllerByTheContentHashAsTheEtag() throws Exception {
+    Image image = new Image(new ObjectId(), "shelter-1.png", null);
+    image.setLength(3L);
+    image.setHash(sha256("abc".getBytes(StandardCharsets.US_ASCII)));
+    ImageService imageService = mock(ImageService.class);
+    when(imageService.findImageByName("shelter-1.png")).thenReturn(image);
+    when(imageService.findImageContent(image))
+        .thenReturn(new ByteArrayResource("abc".getBytes(StandardCharsets.US_ASCII)));
+    ImageController controller = new ImageController();
+    ReflectionTestUtils.setField(controller, "imageService", imageService);
+    ReflectionTestUtils.setField(controller, "cacheMaxAgeSeconds", 3600L);
+
+    ResponseEntity<Resource> response = controller.getImageByName("shelter-1.png",
+        new ServletWebRequest(new MockHttpServletRequest()));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("\"" + image.getHash() + "\"", response.getHeaders().getETag());
+    assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType());
+    assertEquals("max-age=3600, private, immutable", response.getHeaders().getCacheControl());
+    assertEquals(3L, response.getBody().contentLength());
+
+    MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/image");
+    conditional.addHeader("If-None-Match", "\"" + image.getHash() + "\"");
+    response = controller.getImageByName("shelter-1.png", new ServletWebRequest(conditional,
+        new MockHttpServletResponse()));
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    assertNull(response.getBody());
+    verify(imageService, times(1)).findImageContent(image);
+
+    image.setHash(null);
+    response = controller.getImageByName("shelter-1.png", new ServletWebRequest(conditional,
+        new MockHttpServletResponse()));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertNull(response.getHeaders().getETag());
+  }
+
+  @Test
+  @Order(57)
+  @DisplayName("57. Testing ImageMigration by batches of ids and one image at a time")
+  void testingImageMigrationByBatchesOfIdsAndOneImageAtATime() throws Exception {
+    byte[] legacyContent = "legacy".getBytes(StandardCharsets.US_ASCII);
+    byte[] resumedContent = "resumed".getBytes(StandardCharsets.US_ASCII);
+    byte[] gridFsContent = "gridfs".getBytes(StandardCharsets.US_ASCII);
+    ObjectId legacyId = new ObjectId();
+    ObjectId deletedId = new ObjectId();
+    ObjectId resumedId = new ObjectId();
+    ObjectId gridFsId = new ObjectId();
+    Map<ObjectId, GridFSFile> files = new HashMap<>();
+    files.put(resumedId, new GridFSFile(new BsonObjectId(resumedId), "resumed.png",
+        resumedContent.length, 255, new Date(), null));
+    files.put(gridFsId, new GridFSFile(new BsonObjectId(gridFsId), "gridfs.png",
+        gridFsContent.length, 255, new Date(), null));
+
+    @SuppressWarnings("unchecked")
+    FindIterable<Document> found = mock(FindIterable.class);
+    when(found.projection(any())).thenReturn(found);
+    when(found.sort(any())).thenReturn(found);
+    when(found.limit(anyInt())).thenReturn(found);
+    List<List<ObjectId>> batches = List.of(List.of(legacyId, deletedId),
+        List.of(resumedId, gridFsId), List.of());
+    AtomicInteger batch = new AtomicInteger();
+    when(found.into(anyList())).thenAnswer(invocation -> {
+      List<Document> ids = invocation.getArgument(0);
+      batches.get(batch.getAndIncrement()).forEach(id -> ids.add(new Document("_id", id)));
+      return ids;
+    });
+    when(found.first()).thenReturn(
+        new Document("_id", legacyId).append("name", "legacy.png")
+            .append("imageData", new Binary(legacyContent)),
+        null,
+        new Document("_id", resumedId).append("name", "resumed.png")
+            .append("imageData", new Binary(resumedContent)),
+        new Document("_id", gridFsId).append("name", "gridfs.png"));
+    @SuppressWarnings("unchecked")
+    MongoCollection<Document> images = mock(MongoCollection.class);
+    when(images.find(any(Bson.class))).thenReturn(found);
+    @SuppressWarnings("unchecked")
+    MongoCollection<Document> chunks = mock(MongoCollection.class);
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    when(mongoTemplate.getCollectionName(Image.class)).thenReturn("image");
+    when(mongoTemplate.getCollection("image")).thenReturn(images);
+    when(mongoTemplate.getCollection("images.chunks")).thenReturn(chunks);
+    List<MigrationProgress> checkpoints = new CopyOnWriteArrayList<>();
+    doAnswer(invocation -> {
+      MigrationProgress progress = invocation.getArgument(0);
+      checkpoints.add(progress);
+      return progress;
+    }).when(mongoTemplate).save(any(MigrationProgress.class));
+    GridFsOperations gridFsOperations = mock(GridFsOperations.class);
+    when(gridFsOperations.findOne(any(Query.class))).thenAnswer(invocation ->
+        files.get(invocation.<Query>getArgument(0).getQueryObject().getObjectId("_id")));
+    when(gridFsOperations.getResource(any(GridFSFile.class))).thenAnswer(invocation ->
+        new GridFsResource(invocation.getArgument(0),
+            new ByteArrayInputStream(gridFsContent)));
+
+    ImageMigration migration = new ImageMigration();
+    ReflectionTestUtils.setField(migration, "mongoTemplate", mongoTemplate);
+    ReflectionTestUtils.setField(migration, "gridFsOperations", gridFsOperations);
+    ReflectionTestUtils.setField(migration, "bucket", "images");
+    assertTrue(migration.start(2));
+    await(() -> !migration.isRunning());
+
+    MigrationProgress progress = checkpoints.get(checkpoints.size() - 1);
+    assertEquals(MigrationProgress.Status.COMPLETED, progress.getStatus());
+    assertEquals(4L, progress.getMigrated());
+    assertEquals(gridFsId, progress.getLastId());
+    verify(found, times(3)).projection(Projections.include("_id"));
+    verify(found, times(3)).limit(2);
+
+    ArgumentCaptor<GridFsUpload<ObjectId>> uploads = ArgumentCaptor.forClass(GridFsUpload.class);
+    verify(gridFsOperations, times(1)).store(uploads.capture());
+    assertEquals(legacyId, uploads.getValue().getFileId());
+    assertEquals("legacy.png", uploads.getValue().getFilename());
+    verify(chunks, times(1)).deleteMany(Filters.eq("files_id", legacyId));
+
+    ArgumentCaptor<Bson> filters = ArgumentCaptor.forClass(Bson.class);
+    ArgumentCaptor<Bson> updates = ArgumentCaptor.forClass(Bson.class);
+    verify(images, times(3)).updateOne(filters.capture(), updates.capture());
+    assertEquals(List.of(legacyId, resumedId, gridFsId), filters.getAllValues().stream()
+        .map(filter -> filter.toBsonDocument().getObjectId("_id").getValue())
+        .toList());
+    BsonDocument legacy = updates.getAllValues().get(0).toBsonDocument();
+    assertTrue(legacy.getDocument("$unset").containsKey("imageData"));
+    assertEquals(legacyContent.length, legacy.getDocument("$set").getInt64("length").getValue());
+    assertEquals(sha256(legacyContent),
+        legacy.getDocument("$set").getString("hash").getValue());
+    BsonDocument resumed = updates.getAllValues().get(1).toBsonDocument();
+    assertEquals(sha256(resumedContent),
+        resumed.getDocument("$set").getString("hash").getValue());
+    BsonDocument gridFs = updates.getAllValues().get(2).toBsonDocument();
+    assertFalse(gridFs.containsKey("$unset"));
+    assertEquals(gridFsContent.length, gridFs.getDocument("$set").getInt64("length").getValue());
+    assertEquals(sha256(gridFsContent), gridFs.getDocument("$set").getString("hash").getValue());
+  }
+
+  /**
+   * Instantiates a started measure broadcaster with a single core sender thread.
+   *
+   * @param meterRegistry the meter registry
+   * @param bufferSize the buffer size of each subscriber
+   * @param maxDropped the measures dropped in a row before a subscriber is disconnected
+   * @param sendTimeoutMs the maximum time of a send
+   * @return the measure broadcaster
+   */
+  private static MeasureBroadcaster broadcaster(MeterRegistry meterRegistry, int bufferSize,
+      int maxDropped, long sendTimeoutMs) {
+    MeasureBroadcaster broadcaster = new MeasureBroadcaster();
+    ReflectionTestUtils.setField(broadcaster, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(broadcaster, "bufferSize", bufferSize);
+    ReflectionTestUtils.setField(broadcaster, "maxDropped", maxDropped);
+    ReflectionTestUtils.setField(broadcaster, "timeoutMs", 60000L);
+    ReflectionTestUtils.setField(broadcaster, "senderThreads", 1);
+    ReflectionTestUtils.setField(broadcaster, "sendTimeoutMs", sendTimeoutMs);
+    broadcaster.start();
+    return broadcaster;
+  }
+
+  /**
+   * Connect an emitter to a client, as the container does once the response is committed. The
+   * client records the sent measures and "complete" when the emitter is completed.
+   *
+   * @param emitter the emitter
+   * @param sent the sent measures
+   * @param sends the permits of the sends, a send blocking until released; null to never block
+   * @throws ClassNotFoundException the class not found exception
+   */
+  private static void connect(SseEmitter emitter, List<Object> sent, Semaphore sends)
+      throws ClassNotFoundException {
+    Class<?> handlerType = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+    Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(),
+        new Class<?>[] {handlerType}, (proxy, method, args) -> {
+          if (method.getName().equals("send") && args[0] instanceof MeasureResponseDto) {
+            sent.add(args[0]);
+            if (sends != null && !sends.tryAcquire(10, TimeUnit.SECONDS)) {
+              throw new IOException("Send not released");
+            }
+          } else if (method.getName().equals("complete")) {
+            sent.add("complete");
+          }
+          return null;
+        });
+    ReflectionTestUtils.invokeMethod(emitter, "initialize", handler);
+  }
+
+  /**
+   * Instantiates a measure of an isle to stream.
+   *
+   * @param isleId the isle id
+   * @return the measure
+   */
+  private static Measure streamed(ObjectId isleId) {
+    Measure measure = new Measure();
+    measure.setId(new ObjectId());
+    measure.setIsleId(isleId);
+    measure.setAirTemp(BigDecimal.valueOf(30));
+    measure.setTimestamp(LocalDateTime.now());
+    return measure;
+  }
+
+  /**
+   * Gets the ids of the sent measures.
+   *
+   * @param sent the sent measures
+   * @return the ids
+   */
+  private static List<String> sentIds(List<Object> sent) {
+    return sent.stream()
+        .filter(MeasureResponseDto.class::isInstance)
+        .map(dto -> ((MeasureResponseDto) dto).getId())
+        .toList();
+  }
+
+  /**
+   * Instantiates a measure to roll up.
+   *
+   * @param isleId the isle id
+   * @param timestamp the timestamp
+   * @param airTemp the air temperature
+   * @param windDirection the wind direction, null if missing
+   * @return the measure
+   */
+  private static Measure rolled(ObjectId isleId, LocalDateTime timestamp, String airTemp,
+      String windDirection) {
+    Measure measure = new Measure();
+    measure.setId(new ObjectId());
+    measure.setIsleId(isleId);
+    measure.setTimestamp(timestamp);
+    measure.setAirTemp(new BigDecimal(airTemp));
+    measure.setWindDirection(windDirection == null ? null : new BigDecimal(windDirection));
+    return measure;
+  }
+
+  /**
+   * Gets the query of the rollup of a bucket.
+   *
+   * @param isleId the isle id
+   * @param timestamp the start of the bucket
+   * @return the query
+   */
+  private static Document bucket(ObjectId isleId, LocalDateTime timestamp) {
+    return new Document("isleId", isleId).append("timestamp", timestamp);
+  }
+
+  /**
+   * Gets the SHA-256 hash of a content, in hexadecimal.
+   *
+   * @param content the content
+   * @return the hash
+   * @throws NoSuchAlgorithmException the no such algorithm exception
+   */
+  private static String sha256(byte[] content) throws NoSuchAlgorithmException {
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+  }
+
+  /**
+   * Instantiates a mapping converter of the measures with custom conversions, without a database.
+   *
+   * @param conversions the custom conversions
+   * @return the mapping converter
+   */
+  private static MappingMongoConverter converter(MongoCustomConversions conversions) {
+    MongoMappingContext mappingContext = new MongoMappingContext();
+    mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+    mappingContext.afterPropertiesSet();
+    MappingMongoConverter converter =
+        new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+    converter.setCustomConversions(conversions);
+    converter.afterPropertiesSet();
+    return converter;
+  }
+
+  /**
+   * Wait for a condition set by a background thread.
+   *
+   * @param condition the condition
+   * @throws InterruptedException the interrupted exception
+   */
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+      Thread.sleep(5);
+    }
+  }
+
+  /**
+   * Value of a field of a measure with the declared scale it is read back with from the
+   * fixed-point storage.
+   *
+   * @param field the field
+   * @param measure the measure
+   * @return the value, null if missing
+   */
+  private static BigDecimal declared(MeasureField field, Measure measure) {
+    BigDecimal value = field.valueOf(measure);
+    return value == null ? null : value.setScale(field.getScale());
+  }
 }
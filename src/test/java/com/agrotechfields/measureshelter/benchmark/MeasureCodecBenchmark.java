@@ -0,0 +1,129 @@
+package com.agrotechfields.measureshelter.benchmark;
+
+import com.agrotechfields.measureshelter.domain.Measure;
+import com.agrotechfields.measureshelter.domain.MeasureField;
+import com.agrotechfields.measureshelter.storage.FixedPointConverter;
+import com.agrotechfields.measureshelter.storage.MeasureCodec;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+/**
+ * Per-document cost of reading and writing a Measure, through the reflective mapping converter
+ * over a decoded Document, as MongoTemplate does, and through MeasureCodec, as the measure
+ * repository reads and bulk inserts do.
+ *
+ * <p>Run with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main Codec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeasureCodecBenchmark {
+
+  @Param({"false", "true"})
+  private boolean fixedPoint;
+
+  private MappingMongoConverter converter;
+  private MeasureCodec codec;
+  private DocumentCodec documentCodec;
+  private Measure measure;
+  private byte[] bytes;
+
+  @Setup
+  public void setup() {
+    MongoCustomConversions conversions = MongoCustomConversions.create(adapter -> adapter
+        .configurePropertyConversions(registrar -> {
+          for (MeasureField field : MeasureField.values()) {
+            registrar.registerConverter(Measure.class, field.getName(),
+                new FixedPointConverter(field, fixedPoint));
+          }
+        }));
+    MongoMappingContext mappingContext = new MongoMappingContext();
+    mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+    mappingContext.afterPropertiesSet();
+    converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+    converter.setCustomConversions(conversions);
+    converter.afterPropertiesSet();
+    codec = new MeasureCodec(fixedPoint);
+    documentCodec = new DocumentCodec();
+
+    measure = new Measure(new ObjectId(), new ObjectId(), new BigDecimal("30"),
+        new BigDecimal("30.66"), new BigDecimal("4.21"), new BigDecimal("200"),
+        new BigDecimal("1060.54"), new BigDecimal("1050.24"), new BigDecimal("40.23"),
+        new BigDecimal("52.1"), new BigDecimal("0"), new BigDecimal("0"),
+        LocalDateTime.of(2023, 6, 23, 13, 12));
+    bytes = codecEncode();
+  }
+
+  /** The previous read path: Document decoded by the driver, then mapped. */
+  @Benchmark
+  public Measure mappingDecode() {
+    Document document = documentCodec.decode(reader(), DecoderContext.builder().build());
+    return converter.read(Measure.class, document);
+  }
+
+  @Benchmark
+  public Measure codecDecode() {
+    return codec.decode(reader(), DecoderContext.builder().build());
+  }
+
+  /** The previous write path: Measure mapped to a Document, then encoded by the driver. */
+  @Benchmark
+  public byte[] mappingEncode() {
+    Document document = new Document();
+    converter.write(measure, document);
+    BasicOutputBuffer buffer = new BasicOutputBuffer();
+    documentCodec.encode(new BsonBinaryWriter(buffer), document,
+        EncoderContext.builder().build());
+    return buffer.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] codecEncode() {
+    BasicOutputBuffer buffer = new BasicOutputBuffer();
+    codec.encode(new BsonBinaryWriter(buffer), measure, EncoderContext.builder().build());
+    return buffer.toByteArray();
+  }
+
+  private BsonBinaryReader reader() {
+    return new BsonBinaryReader(ByteBuffer.wrap(bytes));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(MeasureCodecBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
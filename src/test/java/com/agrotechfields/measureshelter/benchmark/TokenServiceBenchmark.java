@@ -0,0 +1,84 @@
+package com.agrotechfields.measureshelter.benchmark;
+
+import com.agrotechfields.measureshelter.domain.Role;
+import com.agrotechfields.measureshelter.domain.User;
+import com.agrotechfields.measureshelter.security.TokenService;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Per-request cost of TokenService.decodeToken, as paid by JwtSecurityFilter.
+ *
+ * <p>Run with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main Token
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+  private static final String SECRET = "MySuperDifficultSecret";
+  private static final String ISSUER = "Agro_Techfields";
+
+  private TokenService reusedVerifier;
+  private TokenService cachedTokens;
+  private String token;
+
+  @Setup
+  public void setup() {
+    reusedVerifier = tokenService(0);
+    cachedTokens = tokenService(10000);
+    token = cachedTokens.encodeToken(new User(null, "ISLE000001", "password", Role.ROLE_ISLE));
+  }
+
+  /** The previous behavior: algorithm and verifier built on every call. */
+  @Benchmark
+  public String rebuildVerifierPerCall() {
+    Algorithm algorithm = Algorithm.HMAC256(SECRET);
+    return JWT.require(algorithm).withIssuer(ISSUER).build().verify(token).getSubject();
+  }
+
+  @Benchmark
+  public String reusedVerifier() {
+    return reusedVerifier.decodeToken(token);
+  }
+
+  @Benchmark
+  public String cachedVerifiedToken() {
+    return cachedTokens.decodeToken(token);
+  }
+
+  private static TokenService tokenService(long cacheMaxSize) {
+    TokenService tokenService = new TokenService();
+    ReflectionTestUtils.setField(tokenService, "secret", SECRET);
+    ReflectionTestUtils.setField(tokenService, "validity", "24");
+    ReflectionTestUtils.setField(tokenService, "cacheMaxSize", cacheMaxSize);
+    tokenService.init();
+    return tokenService;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(TokenServiceBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}